@@ -1,8 +1,10 @@
 package bcu.cmp5332.bookingsystem.commands;
 
+import bcu.cmp5332.bookingsystem.data.FlightBookingSystemData;
 import bcu.cmp5332.bookingsystem.main.CustomerException;
 import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
 import bcu.cmp5332.bookingsystem.model.Airline;
+import bcu.cmp5332.bookingsystem.model.EntityType;
 import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
 
 /**
@@ -38,14 +40,10 @@ public class AddAirline implements Command {
     @Override
     public void execute(FlightBookingSystem flightBookingSystem)
             throws FlightBookingSystemException, CustomerException {
-        int maxId = 0;
-        if (flightBookingSystem.getAirlines().size() > 0) {
-            int lastIndex = flightBookingSystem.getAirlines().size() - 1;
-            maxId = flightBookingSystem.getPlanes().get(lastIndex).getId();
-        }
-
-        Airline airline = new Airline(++maxId, name, email, password);
+        int id = flightBookingSystem.getIdAllocator().next(EntityType.AIRLINE);
+        Airline airline = new Airline(id, name, email, password);
         flightBookingSystem.addAirline(airline);
+        FlightBookingSystemData.getJournal().logAirline(airline);
         System.out.println("Airline #" + airline.getId() + " " + airline.getName() + " added.");
     }
 }
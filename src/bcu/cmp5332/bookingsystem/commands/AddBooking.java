@@ -2,12 +2,16 @@ package bcu.cmp5332.bookingsystem.commands;
 
 import java.time.LocalDate;
 
+import bcu.cmp5332.bookingsystem.data.FlightBookingSystemData;
 import bcu.cmp5332.bookingsystem.main.CustomerException;
 import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
 import bcu.cmp5332.bookingsystem.model.Booking;
 import bcu.cmp5332.bookingsystem.model.Customer;
+import bcu.cmp5332.bookingsystem.model.EntityType;
 import bcu.cmp5332.bookingsystem.model.Flight;
 import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
+import bcu.cmp5332.bookingsystem.model.FlightLocks;
+import bcu.cmp5332.bookingsystem.model.SeatMap;
 
 /**
  * Command to add a booking in the flight booking system.
@@ -16,18 +20,39 @@ import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
  */
 public class AddBooking implements Command {
 
+    /**
+     * Seat preference asking for the first free window seat.
+     */
+    public static final String WINDOW_SEAT = "window";
+
     private int customer_id;
     private int flight_id;
+    private final String seatPreference;
 
     /**
      * Constructor to create an AddBooking command with specified customer and flight IDs.
+     * The booking is given the first free seat of the flight.
      * 
      * @param customer_id the ID of the customer
      * @param flight_id the ID of the flight
      */
     public AddBooking(int customer_id, int flight_id) {
+        this(customer_id, flight_id, null);
+    }
+
+    /**
+     * Constructor to create an AddBooking command with specified customer and flight IDs
+     * and a seat preference.
+     * 
+     * @param customer_id the ID of the customer
+     * @param flight_id the ID of the flight
+     * @param seatPreference the label of the seat wanted, such as {@code 12C}, {@link #WINDOW_SEAT},
+     *                       or null for the first free seat
+     */
+    public AddBooking(int customer_id, int flight_id, String seatPreference) {
         this.customer_id = customer_id;
         this.flight_id = flight_id;
+        this.seatPreference = seatPreference;
     }
 
     /**
@@ -38,6 +63,7 @@ public class AddBooking implements Command {
      * @throws CustomerException if there is an issue with the customer
      */
     @Override
+    @SuppressWarnings("try")
     public void execute(FlightBookingSystem flightBookingSystem) throws FlightBookingSystemException, CustomerException {
         Customer customer = flightBookingSystem.getCustomerByID(customer_id);
         Flight flight = flightBookingSystem.getFlightByID(flight_id);
@@ -47,30 +73,74 @@ public class AddBooking implements Command {
             return;
         }
 
-        for (Booking booking : flightBookingSystem.getBookings()) {
-            if (booking.getCustomer() == customer && booking.getFlight() == flight) {
-                System.out.println("This booking already exists");
-                return;
-            }
+        if (flightBookingSystem.getBooking(customer, flight) != null) {
+            System.out.println("This booking already exists");
+            return;
         }
 
-        int maxId = 0;
-        if (flightBookingSystem.getBookings().size() > 0) {
-            int lastIndex = flightBookingSystem.getBookings().size() - 1;
-            maxId = flightBookingSystem.getBookings().get(lastIndex).getId();
+        LocalDate today = flightBookingSystem.getPricingEngine().today();
+        if (today.isAfter(flight.getDepartureDate())) {
+            System.out.println("Couldn't book a flight that has already expired!");
+            return;
         }
 
+        // Quoted before the seat is reserved, so under yield pricing the buyer's own seat
+        // does not count towards the load factor they are charged for
         double adjustedPrice = Booking.calculateDynamicPrice(flight);
-        if (LocalDate.now().isBefore(flight.getDepartureDate()) || LocalDate.now().isEqual(flight.getDepartureDate())) {
-            if (flight.getRemainingCapacity() > 0) {
-                Booking booking = new Booking(++maxId, customer, flight, LocalDate.now(), adjustedPrice);
-                flightBookingSystem.addBooking(booking);
-                System.out.println("Booking success #" + customer.getId() + " - " + customer.getName() + " Flight No#" + flight.getId());
-            } else {
-                System.out.println("This flight is already full and cannot be booked.");
+
+        // Reserve the seat before building the booking, so a full flight is turned away
+        // without waiting for its lock
+        if (!flight.tryReserveSeat()) {
+            System.out.println("This flight is already full and cannot be booked.");
+            return;
+        }
+        boolean booked = false;
+        try (FlightLocks.Held held = flightBookingSystem.getFlightLocks().lock(flight)) {
+            // Checked again under the lock, another thread may have booked it meanwhile
+            if (flightBookingSystem.getBooking(customer, flight) != null) {
+                System.out.println("This booking already exists");
+                return;
             }
-        } else {
-            System.out.println("Couldn't book a flight that has already expired!");
+            SeatMap seats = flight.getSeatMap();
+            int seat = chooseSeat(seats);
+            if (seat < 0 && seatPreference != null && !seatPreference.equalsIgnoreCase(WINDOW_SEAT)) {
+                System.out.println("Seat " + seatPreference + " is not available on this flight.");
+                return;
+            }
+            int id = flightBookingSystem.getIdAllocator().next(EntityType.BOOKING);
+            // Seats of bookings made before seats were assigned are not in the map, so it may
+            // run out before the flight is full; such a booking gets no seat
+            String label = seat < 0 ? null : seats.label(seat);
+            Booking booking = new Booking(id, customer, flight, today, adjustedPrice, label);
+            // Journalled before the model changes, so a write that fails on this thread
+            // leaves no booking in memory that the journal does not have
+            FlightBookingSystemData.getJournal().logBooking(booking);
+            customer.addBooking(booking);
+            flight.confirmReservation(customer);
+            booked = true;
+            flightBookingSystem.addBooking(booking);
+            System.out.println("Booking success #" + customer.getId() + " - " + customer.getName() + " Flight No#" + flight.getId()
+                    + (label == null ? "" : " Seat " + label));
+        } finally {
+            if (!booked) {
+                flight.cancelReservation();
+            }
+        }
+    }
+
+    /**
+     * Picks the seat for the booking from the flight's seat map, following the seat preference.
+     * If a window seat is wanted but none is free, the first free seat is taken instead.
+     */
+    private int chooseSeat(SeatMap seats) {
+        if (seatPreference == null) {
+            return seats.nextFreeSeat();
+        }
+        if (seatPreference.equalsIgnoreCase(WINDOW_SEAT)) {
+            int seat = seats.nextFreeWindowSeat();
+            return seat >= 0 ? seat : seats.nextFreeSeat();
         }
+        int seat = seats.seatOf(seatPreference);
+        return seat >= 0 && seats.isFree(seat) ? seat : -1;
     }
 }
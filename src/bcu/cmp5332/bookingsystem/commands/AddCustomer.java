@@ -1,8 +1,10 @@
 package bcu.cmp5332.bookingsystem.commands;
 
+import bcu.cmp5332.bookingsystem.data.FlightBookingSystemData;
 import bcu.cmp5332.bookingsystem.main.CustomerException;
 import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
 import bcu.cmp5332.bookingsystem.model.Customer;
+import bcu.cmp5332.bookingsystem.model.EntityType;
 import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
 
 /**
@@ -41,14 +43,10 @@ public class AddCustomer implements Command {
      */
     @Override
     public void execute(FlightBookingSystem flightBookingSystem) throws FlightBookingSystemException, CustomerException {
-        int maxId = 0;
-        if (flightBookingSystem.getCustomers().size() > 0) {
-            int lastIndex = flightBookingSystem.getCustomers().size() - 1;
-            maxId = flightBookingSystem.getCustomers().get(lastIndex).getId();
-        }
-        
-        Customer customer = new Customer(++maxId, name, age, phone, email);
+        int id = flightBookingSystem.getIdAllocator().next(EntityType.CUSTOMER);
+        Customer customer = new Customer(id, name, age, phone, email);
         flightBookingSystem.addCustomer(customer);
+        FlightBookingSystemData.getJournal().logCustomer(customer);
         System.out.println("Customer #" + customer.getId() + " " + customer.getName() + " added.");
     }
 }
@@ -1,6 +1,8 @@
 package bcu.cmp5332.bookingsystem.commands;
 
+import bcu.cmp5332.bookingsystem.data.FlightBookingSystemData;
 import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
+import bcu.cmp5332.bookingsystem.model.EntityType;
 import bcu.cmp5332.bookingsystem.model.Flight;
 import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
 import bcu.cmp5332.bookingsystem.model.Plane;
@@ -48,15 +50,12 @@ public class AddFlight implements Command {
      */
     @Override
     public void execute(FlightBookingSystem flightBookingSystem) throws FlightBookingSystemException {
-        int maxId = 0;
-        if (flightBookingSystem.getFlights().size() > 0) {
-            int lastIndex = flightBookingSystem.getFlights().size() - 1;
-            maxId = flightBookingSystem.getFlights().get(lastIndex).getId();
-        }
         System.out.println("The flight price is = " + price);
         Plane plane = flightBookingSystem.getPlaneByID(planeId);
-        Flight flight = new Flight(++maxId, flightNumber, origin, destination, price, plane, departureDate);
+        int id = flightBookingSystem.getIdAllocator().next(EntityType.FLIGHT);
+        Flight flight = new Flight(id, flightNumber, origin, destination, price, plane, departureDate);
         flightBookingSystem.addFlight(flight);
+        FlightBookingSystemData.getJournal().logFlight(flight);
         System.out.println("Flight #" + flight.getId() + " added.");
     }
 }
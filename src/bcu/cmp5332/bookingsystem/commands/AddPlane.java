@@ -1,8 +1,10 @@
 package bcu.cmp5332.bookingsystem.commands;
 
+import bcu.cmp5332.bookingsystem.data.FlightBookingSystemData;
 import bcu.cmp5332.bookingsystem.main.CustomerException;
 import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
 import bcu.cmp5332.bookingsystem.model.Airline;
+import bcu.cmp5332.bookingsystem.model.EntityType;
 import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
 import bcu.cmp5332.bookingsystem.model.Plane;
 
@@ -39,14 +41,11 @@ public class AddPlane implements Command {
      */
     @Override
     public void execute(FlightBookingSystem flightBookingSystem) throws FlightBookingSystemException, CustomerException {
-        int maxId = 0;
-        if (flightBookingSystem.getPlanes().size() > 0) {
-            int lastIndex = flightBookingSystem.getPlanes().size() - 1;
-            maxId = flightBookingSystem.getPlanes().get(lastIndex).getId();
-        }
         Airline airline = flightBookingSystem.getAirlineByID(airlineId);
-        Plane plane = new Plane(++maxId, model, capacity, airline);
+        int id = flightBookingSystem.getIdAllocator().next(EntityType.PLANE);
+        Plane plane = new Plane(id, model, capacity, airline);
         flightBookingSystem.addPlane(plane);
+        FlightBookingSystemData.getJournal().logPlane(plane);
         System.out.println("Plane #" + plane.getId() + " " + plane.getModel() + " added.");
     }
 }
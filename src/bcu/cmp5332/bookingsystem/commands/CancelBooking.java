@@ -1,11 +1,13 @@
 package bcu.cmp5332.bookingsystem.commands;
 
+import bcu.cmp5332.bookingsystem.data.FlightBookingSystemData;
 import bcu.cmp5332.bookingsystem.main.CustomerException;
 import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
 import bcu.cmp5332.bookingsystem.model.Booking;
 import bcu.cmp5332.bookingsystem.model.Customer;
 import bcu.cmp5332.bookingsystem.model.Flight;
 import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
+import bcu.cmp5332.bookingsystem.model.FlightLocks;
 
 /**
  * Command to cancel an existing booking in the flight booking system.
@@ -36,6 +38,7 @@ public class CancelBooking implements Command {
      * @throws FlightBookingSystemException if there is an issue with the flight booking system
      */
     @Override
+    @SuppressWarnings("try")
     public void execute(FlightBookingSystem flightBookingSystem) throws CustomerException, FlightBookingSystemException {
         Customer customer = flightBookingSystem.getCustomerByID(customer_id);
         Flight flight = flightBookingSystem.getFlightByID(flight_id);
@@ -45,18 +48,19 @@ public class CancelBooking implements Command {
             return;
         }
 
-        for (Booking booking : flightBookingSystem.getBookings()) {
-            if (booking.getCustomer().getId() == customer_id && booking.getFlight().getId() == flight_id) {
-                double cancellationFee = Booking.calculateDynamicPrice(flight) - flight.getPrice();
-                flightBookingSystem.cancelBooking(booking);
-                customer.cancelBooking(booking);
-                flight.removePassenger(customer);
-                System.out.println("Successfully canceled booking #" + booking.getId() + " for Customer #" + customer_id +
-                        " on Flight #" + flight_id + " Cancellation Fee: $" + cancellationFee);
+        try (FlightLocks.Held held = flightBookingSystem.getFlightLocks().lock(flight)) {
+            Booking booking = flightBookingSystem.getBooking(customer, flight);
+            if (booking == null) {
+                System.out.println("No booking found for Customer #" + customer_id + " on Flight #" + flight_id);
                 return;
             }
+            double cancellationFee = Booking.calculateDynamicPrice(flight) - flight.getPrice();
+            flightBookingSystem.cancelBooking(booking);
+            customer.cancelBooking(booking);
+            flight.removePassenger(customer);
+            FlightBookingSystemData.getJournal().logBookingCancel(booking);
+            System.out.println("Successfully canceled booking #" + booking.getId() + " for Customer #" + customer_id +
+                    " on Flight #" + flight_id + " Cancellation Fee: $" + cancellationFee);
         }
-
-        System.out.println("No booking found for Customer #" + customer_id + " on Flight #" + flight_id);
     }
 }
@@ -31,15 +31,17 @@ public interface Command {
             case "admin":
                 return "Commands:\n"
                     + "\tlistflights                               print all flights\n"
+                    + "\tsearchconnections [from] [to] [date]      find direct and connecting flights, optionally followed by max stops and price or arrival\n"
+                    + "\tfarecalendar [from] [to]                  show the cheapest fare of each of the next 90 days\n"
                     + "\tlistcustomers                             print all customers\n"
-                    + "\taddflight                                 add a new flight\n"
-                    + "\taddcustomer                               add a new customer\n"
-                    + "\taddplane                                  add a new plane\n"
-                    + "\taddairline                                add a new airline\n"
+                    + "\taddflight                                 add a new flight, or give its fields on the line\n"
+                    + "\taddcustomer                               add a new customer, or give its fields on the line\n"
+                    + "\taddplane                                  add a new plane, or give its fields on the line\n"
+                    + "\taddairline                                add a new airline, or give its fields on the line\n"
                     + "\tlistplanes                                print all planes\n"
                     + "\tshowflight [flight id]                    show flight details\n"
                     + "\tshowcustomer [customer id]                show customer details\n"
-                    + "\taddbooking [customer id] [flight id]      add a new booking\n"
+                    + "\taddbooking [customer id] [flight id]      add a new booking, optionally followed by a seat (12C) or window\n"
                     + "\tcancelbooking [customer id] [flight id]   cancel a booking\n"
                     + "\teditbooking [booking id] [flight id]      update a booking\n"
                     + "\tloadgui                                   loads the GUI version of the app\n"
@@ -48,9 +50,11 @@ public interface Command {
             case "airline":
                 return "Commands:\n"
                     + "\tlistflights                               print all flights\n"
+                    + "\tsearchconnections [from] [to] [date]      find direct and connecting flights, optionally followed by max stops and price or arrival\n"
+                    + "\tfarecalendar [from] [to]                  show the cheapest fare of each of the next 90 days\n"
                     + "\tloadgui                                   loads the GUI version of the app\n"                    
-                    + "\taddflight                                 add a new flight\n"
-                    + "\taddplane                                  add a new plane\n"
+                    + "\taddflight                                 add a new flight, or give its fields on the line\n"
+                    + "\taddplane                                  add a new plane, or give its fields on the line\n"
                     + "\tlistplanes                                print all planes\n"
                     + "\tshowflight [flight id]                    show flight details\n"
                     + "\thelp                                      prints this help message\n"
@@ -58,9 +62,11 @@ public interface Command {
             case "customer":
                 return "Commands:\n"
                     + "\tlistflights                               print all flights\n"
-                    + "\taddcustomer                               add a new customer\n"
+                    + "\tsearchconnections [from] [to] [date]      find direct and connecting flights, optionally followed by max stops and price or arrival\n"
+                    + "\tfarecalendar [from] [to]                  show the cheapest fare of each of the next 90 days\n"
+                    + "\taddcustomer                               add a new customer, or give its fields on the line\n"
                     + "\tshowflight [flight id]                    show flight details\n"
-                    + "\taddbooking [customer id] [flight id]      add a new booking\n"
+                    + "\taddbooking [customer id] [flight id]      add a new booking, optionally followed by a seat (12C) or window\n"
                     + "\tcancelbooking [customer id] [flight id]   cancel a booking\n"
                     + "\thelp                                      prints this help message\n"
                     + "\tloadgui                                   loads the GUI version of the app\n"
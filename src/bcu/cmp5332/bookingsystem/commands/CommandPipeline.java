@@ -0,0 +1,260 @@
+package bcu.cmp5332.bookingsystem.commands;
+
+import bcu.cmp5332.bookingsystem.data.FlightBookingSystemData;
+import bcu.cmp5332.bookingsystem.main.CustomerException;
+import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
+import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the commands of the command line and the GUI windows on a single writer thread.
+ *
+ * <p>Callers {@link #submit(Command) submit} commands into a bounded ring buffer and get a
+ * future back. The writer takes every command waiting in the buffer at once, executes
+ * them one after another in the order they were submitted, and then stores the system a
+ * single time for the whole batch, so the journal records of the batch are written with
+ * one write. A command's future completes once the command has run and its changes have
+ * been written with the journal's durability mode, or with the exception the command threw. When the buffer is full, submitting
+ * waits for the writer to catch up.</p>
+ *
+ * <p>Bulk loads {@link #submitDeferred(Command) defer} saving instead: their commands
+ * complete as soon as they have run, and their changes are saved together by the next
+ * {@link #flush()}, which also syncs them to disk, or by the next command submitted normally.</p>
+ *
+ * <p>Because only the writer changes the system, commands never wait for each other's
+ * locks; readers on other threads use {@link FlightBookingSystem#snapshot()}.</p>
+ */
+public class CommandPipeline implements AutoCloseable {
+
+    /**
+     * Number of commands the ring buffer holds before submitting waits.
+     */
+    private static final int CAPACITY = Integer.getInteger("fbs.pipelineCapacity", 1024);
+
+    /**
+     * Most commands executed before the system is stored.
+     */
+    private static final int MAX_BATCH = 256;
+
+    private static final Map<FlightBookingSystem, CommandPipeline> pipelines = new IdentityHashMap<>();
+
+    /**
+     * A submitted command, the future of its result and whether the system is saved
+     * before the future completes. The task without a command tells the writer to stop.
+     */
+    private record Task(Command command, CompletableFuture<Void> result, boolean save) {
+    }
+
+    private static final Task SHUTDOWN = new Task(null, null, false);
+
+    /**
+     * The command of a {@link #flush()}, which makes the writer sync the batch it is in.
+     */
+    private static final Command SYNC = flightBookingSystem -> {
+    };
+
+    private final FlightBookingSystem fbs;
+    private final BlockingQueue<Task> buffer = new ArrayBlockingQueue<>(CAPACITY);
+    private final Thread writer;
+    private volatile boolean closed;
+
+    /**
+     * Creates a pipeline for a system and starts its writer thread.
+     *
+     * @param fbs the system the commands are executed on
+     */
+    public CommandPipeline(FlightBookingSystem fbs) {
+        this.fbs = fbs;
+        this.writer = new Thread(this::run, "command-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Gets the pipeline shared by everything that changes a system, creating it on first use.
+     *
+     * @param fbs the system
+     * @return the system's pipeline
+     */
+    public static CommandPipeline forSystem(FlightBookingSystem fbs) {
+        synchronized (pipelines) {
+            return pipelines.computeIfAbsent(fbs, CommandPipeline::new);
+        }
+    }
+
+    /**
+     * Queues a command for the writer thread.
+     *
+     * @param command the command to execute
+     * @return a future that completes once the command has run and its changes have been
+     *         written with the journal's durability mode
+     */
+    public CompletableFuture<Void> submit(Command command) {
+        return enqueue(command, true);
+    }
+
+    /**
+     * Queues a command for the writer thread without saving the system after it.
+     *
+     * @param command the command to execute
+     * @return a future that completes once the command has run; its changes are only
+     *         durable once a later {@link #flush()} completes
+     */
+    public CompletableFuture<Void> submitDeferred(Command command) {
+        return enqueue(command, false);
+    }
+
+    /**
+     * Saves the changes of every command submitted before it and syncs them to disk,
+     * whatever the journal's durability mode.
+     *
+     * @return a future that completes once those changes are durable
+     */
+    public CompletableFuture<Void> flush() {
+        return enqueue(SYNC, true);
+    }
+
+    private CompletableFuture<Void> enqueue(Command command, boolean save) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        Task task = new Task(command, result, save);
+        try {
+            while (!closed) {
+                if (buffer.offer(task, 100, TimeUnit.MILLISECONDS)) {
+                    // A task that raced with close() may land after the writer's last drain;
+                    // whoever takes it out of the buffer completes it
+                    if (closed && buffer.remove(task)) {
+                        break;
+                    }
+                    return result;
+                }
+            }
+            result.completeExceptionally(new FlightBookingSystemException("The command pipeline has been shut down."));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            result.completeExceptionally(ex);
+        }
+        return result;
+    }
+
+    /**
+     * Queues a command and waits for it to run and for its changes to be written.
+     *
+     * @param command the command to execute
+     * @throws FlightBookingSystemException if the command fails, or its changes cannot be saved
+     * @throws CustomerException if the command fails with a customer error
+     */
+    public void execute(Command command) throws FlightBookingSystemException, CustomerException {
+        try {
+            submit(command).get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new FlightBookingSystemException("Interrupted while waiting for the command to run.");
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof FlightBookingSystemException fbsException) {
+                throw fbsException;
+            } else if (cause instanceof CustomerException customerException) {
+                throw customerException;
+            } else if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            } else if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new FlightBookingSystemException("Unable to save the changes.\nError: " + cause);
+        }
+    }
+
+    /**
+     * Stops the writer once the commands already submitted have run.
+     * Commands submitted afterwards fail.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            buffer.put(SHUTDOWN);
+            writer.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (pipelines) {
+            pipelines.remove(fbs, this);
+        }
+    }
+
+    private void run() {
+        List<Task> batch = new ArrayList<>(MAX_BATCH);
+        List<Task> executed = new ArrayList<>(MAX_BATCH);
+        boolean stop = false;
+        while (!stop) {
+            boolean sync = false;
+            try {
+                batch.add(buffer.take());
+            } catch (InterruptedException ex) {
+                return;
+            }
+            buffer.drainTo(batch, MAX_BATCH - 1);
+            for (Task task : batch) {
+                if (task == SHUTDOWN) {
+                    stop = true;
+                    continue;
+                }
+                try {
+                    task.command().execute(fbs);
+                    if (task.save()) {
+                        executed.add(task);
+                        sync |= task.command() == SYNC;
+                    } else {
+                        task.result().complete(null);
+                    }
+                } catch (Throwable ex) {
+                    // Whatever a command throws only fails its own future, the writer carries on
+                    task.result().completeExceptionally(ex);
+                }
+            }
+            if (!executed.isEmpty()) {
+                CompletableFuture<Void> durable;
+                try {
+                    durable = FlightBookingSystemData.store(fbs);
+                    if (sync) {
+                        durable = FlightBookingSystemData.sync();
+                    }
+                } catch (IOException | RuntimeException ex) {
+                    durable = CompletableFuture.failedFuture(ex);
+                }
+                for (Task task : executed) {
+                    durable.whenComplete((ignored, ex) -> {
+                        if (ex == null) {
+                            task.result().complete(null);
+                        } else {
+                            task.result().completeExceptionally(ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex);
+                        }
+                    });
+                }
+            }
+            batch.clear();
+            executed.clear();
+        }
+        // Commands that raced with close() are failed rather than left waiting
+        Task task;
+        while ((task = buffer.poll()) != null) {
+            if (task != SHUTDOWN) {
+                task.result().completeExceptionally(new FlightBookingSystemException("The command pipeline has been shut down."));
+            }
+        }
+    }
+}
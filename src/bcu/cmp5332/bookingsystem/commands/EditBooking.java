@@ -1,10 +1,14 @@
 package bcu.cmp5332.bookingsystem.commands;
 
+import bcu.cmp5332.bookingsystem.data.FlightBookingSystemData;
 import bcu.cmp5332.bookingsystem.main.CustomerException;
 import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
 import bcu.cmp5332.bookingsystem.model.Booking;
+import bcu.cmp5332.bookingsystem.model.Customer;
 import bcu.cmp5332.bookingsystem.model.Flight;
 import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
+import bcu.cmp5332.bookingsystem.model.FlightLocks;
+import bcu.cmp5332.bookingsystem.model.SeatMap;
 
 /**
  * Command to edit an existing booking by updating the flight associated with it.
@@ -28,21 +32,58 @@ public class EditBooking implements Command {
     /**
      * Executes the command to edit the booking.
      * 
-     * Retrieves the booking and flight by their IDs, updates the booking with the new flight,
-     * and prints a success message to the console.
+     * Retrieves the booking and flight by their IDs, moves the passenger from the
+     * booking's current flight to the first free seat of the new one, updates the booking with the new flight,
+     * and prints a success message to the console. The locks of both flights are held
+     * while the seat moves, taken in the order {@link FlightLocks} requires.
      *
      * @param flightBookingSystem the flight booking system instance
-     * @throws FlightBookingSystemException if the booking or flight cannot be found
+     * @throws FlightBookingSystemException if the booking or flight cannot be found, or
+     *         the booking was cancelled before it could be moved
      * @throws CustomerException if there is an issue with the customer data
      */
     @Override
+    @SuppressWarnings("try")
     public void execute(FlightBookingSystem flightBookingSystem) throws FlightBookingSystemException, CustomerException {
         Booking booking = flightBookingSystem.getBookingByID(bookingId);
         Flight flight = flightBookingSystem.getFlightByID(flightId);
-        booking.updateBooking(flight);
+        while (true) {
+            Flight current = booking.getFlight();
+            try (FlightLocks.Held held = flightBookingSystem.getFlightLocks().lock(current, flight)) {
+                if (booking.getFlight() != current) {
+                    // Moved by another thread before the locks were taken
+                    continue;
+                }
+                if (flightBookingSystem.getBooking(booking.getCustomer(), current) != booking) {
+                    throw new FlightBookingSystemException("Booking #" + booking.getId() + " has been cancelled.");
+                }
+                String seat = booking.getSeat();
+                // Quoted before the seat is reserved, so yield pricing does not charge for it
+                double price = Booking.calculateDynamicPrice(flight);
+                if (current != flight) {
+                    Customer customer = booking.getCustomer();
+                    if (flightBookingSystem.getBooking(customer, flight) != null) {
+                        System.out.println("Customer #" + customer.getId() + " already has a booking on Flight #" + flight.getId());
+                        return;
+                    }
+                    if (!flight.tryReserveSeat()) {
+                        System.out.println("This flight is already full and cannot be booked.");
+                        return;
+                    }
+                    SeatMap seats = flight.getSeatMap();
+                    int free = seats.nextFreeSeat();
+                    seat = free < 0 ? null : seats.label(free);
+                    current.removePassenger(customer);
+                    flight.confirmReservation(customer);
+                }
+                booking.updateBooking(flight, seat, price);
+                FlightBookingSystemData.getJournal().logBookingEdit(booking);
+            }
+            break;
+        }
         System.out.println("Booking successfully updated #" + booking.getId() + 
                            " Flight No#" + flight.getId() + 
-                           " New Flight: " + booking.getFlight().getOrigin() + 
-                           " to " + booking.getFlight().getDestination());
+                           " New Flight: " + flight.getOrigin() + 
+                           " to " + flight.getDestination());
     }
 }
@@ -1,6 +1,5 @@
 package bcu.cmp5332.bookingsystem.commands;
 
-import java.util.List;
 import bcu.cmp5332.bookingsystem.main.CustomerException;
 import bcu.cmp5332.bookingsystem.model.Customer;
 import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
@@ -30,13 +29,10 @@ public class ListCustomers implements Command {
      */
     @Override
     public void execute(FlightBookingSystem flightBookingSystem) throws CustomerException {
-        List<Customer> customers = flightBookingSystem.getCustomers();
         int counter = 0;
-        for (Customer customer : customers) {
-            if (!customer.isRemoved()) {
-                counter++;
-                System.out.println(customer.getDetailsShort());
-            }
+        for (Customer customer : flightBookingSystem.snapshot().getActiveCustomers()) {
+            counter++;
+            System.out.println(customer.getDetailsShort());
         }
         System.out.println(counter + " customer(s)");
     }
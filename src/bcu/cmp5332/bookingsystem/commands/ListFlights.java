@@ -4,16 +4,13 @@ import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
 import bcu.cmp5332.bookingsystem.model.Flight;
 import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
 
-import java.time.LocalDate;
-import java.util.List;
-
 /**
  * Command to list all upcoming flights in the flight booking system.
  * This class implements the {@link Command} interface.
  * 
  * <p>This command retrieves and prints a list of all flights that are not removed 
- * and have a departure date after the current date. It also prints the total number 
- * of these flights.</p>
+ * and have a departure date after the current date, in departure order. It also prints
+ * the total number of these flights.</p>
  * 
  * @see Command
  * @see Flight
@@ -34,13 +31,10 @@ public class ListFlights implements Command {
      */
     @Override
     public void execute(FlightBookingSystem flightBookingSystem) throws FlightBookingSystemException {
-        List<Flight> flights = flightBookingSystem.getFlights();
         int counter = 0;
-        for (Flight flight : flights) {
-            if (!flight.isRemoved() && flight.getDepartureDate().isAfter(LocalDate.now())) {
-                counter++;
-                System.out.println(flight.getDetailsShort());
-            }
+        for (Flight flight : flightBookingSystem.getFutureFlights()) {
+            counter++;
+            System.out.println(flight.getDetailsShort());
         }
         System.out.println(counter + " flight(s)");
     }
@@ -4,7 +4,6 @@ import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
 import bcu.cmp5332.bookingsystem.model.Plane;
 import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
 
-import java.util.List;
 
 /**
  * Command to list all planes in the flight booking system.
@@ -31,9 +30,8 @@ public class ListPlane implements Command {
      */
     @Override
     public void execute(FlightBookingSystem flightBookingSystem) throws FlightBookingSystemException {
-        List<Plane> planes = flightBookingSystem.getPlanes();
         int counter = 0;
-        for (Plane plane : planes) {
+        for (Plane plane : flightBookingSystem.snapshot().getPlanes()) {
             counter++;
             System.out.println(plane.getDetailsShort());
         }
@@ -0,0 +1,43 @@
+package bcu.cmp5332.bookingsystem.commands;
+
+import bcu.cmp5332.bookingsystem.data.FlightBookingSystemData;
+import bcu.cmp5332.bookingsystem.main.CustomerException;
+import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
+import bcu.cmp5332.bookingsystem.model.Customer;
+import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
+
+/**
+ * Command to remove a customer from the flight booking system.
+ * The customer is marked as removed rather than deleted, and the removal is journalled.
+ * 
+ * @see Command
+ * @see CommandPipeline
+ * 
+ */
+public class RemoveCustomer implements Command {
+    private final int id;
+
+    /**
+     * Constructs a RemoveCustomer command with the specified customer ID.
+     * 
+     * @param id the unique ID of the customer to remove
+     */
+    public RemoveCustomer(int id) {
+        this.id = id;
+    }
+
+    /**
+     * Executes the RemoveCustomer command, marking the customer as removed.
+     * 
+     * @param flightBookingSystem the flight booking system
+     * @throws CustomerException if there is no customer with the ID
+     * @throws FlightBookingSystemException if the removal cannot be journalled
+     */
+    @Override
+    public void execute(FlightBookingSystem flightBookingSystem) throws CustomerException, FlightBookingSystemException {
+        Customer customer = flightBookingSystem.getCustomerByID(id);
+        customer.removeCustomer();
+        FlightBookingSystemData.getJournal().logCustomerRemoved(customer);
+        System.out.println("Customer #" + id + " removed.");
+    }
+}
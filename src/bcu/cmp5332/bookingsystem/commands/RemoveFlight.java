@@ -0,0 +1,41 @@
+package bcu.cmp5332.bookingsystem.commands;
+
+import bcu.cmp5332.bookingsystem.data.FlightBookingSystemData;
+import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
+import bcu.cmp5332.bookingsystem.model.Flight;
+import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
+
+/**
+ * Command to remove a flight from the flight booking system.
+ * The flight is marked as removed rather than deleted, and the removal is journalled.
+ * 
+ * @see Command
+ * @see CommandPipeline
+ * 
+ */
+public class RemoveFlight implements Command {
+    private final int id;
+
+    /**
+     * Constructs a RemoveFlight command with the specified flight ID.
+     * 
+     * @param id the unique ID of the flight to remove
+     */
+    public RemoveFlight(int id) {
+        this.id = id;
+    }
+
+    /**
+     * Executes the RemoveFlight command, marking the flight as removed.
+     * 
+     * @param flightBookingSystem the flight booking system
+     * @throws FlightBookingSystemException if there is no flight with the ID
+     */
+    @Override
+    public void execute(FlightBookingSystem flightBookingSystem) throws FlightBookingSystemException {
+        Flight flight = flightBookingSystem.getFlightByID(id);
+        flight.removeFlight();
+        FlightBookingSystemData.getJournal().logFlightRemoved(flight);
+        System.out.println("Flight #" + id + " removed.");
+    }
+}
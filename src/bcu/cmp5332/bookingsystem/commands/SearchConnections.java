@@ -0,0 +1,86 @@
+package bcu.cmp5332.bookingsystem.commands;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
+import bcu.cmp5332.bookingsystem.model.ConnectionSearch;
+import bcu.cmp5332.bookingsystem.model.Flight;
+import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
+
+/**
+ * Command to search for direct and connecting flights between two places.
+ * This class prints the best itineraries found by a {@link ConnectionSearch}, with the
+ * flights of each one.
+ *
+ */
+public class SearchConnections implements Command {
+
+    /**
+     * Most stops searched for when none are given.
+     */
+    public static final int DEFAULT_MAX_STOPS = 2;
+
+    /**
+     * Fewest days between two legs of an itinerary.
+     */
+    public static final int MIN_CONNECTION_DAYS = 0;
+
+    /**
+     * Most days between two legs of an itinerary.
+     */
+    public static final int MAX_LAYOVER_DAYS = 2;
+
+    /**
+     * Most itineraries printed.
+     */
+    public static final int LIMIT = 20;
+
+    private final String origin;
+    private final String destination;
+    private final LocalDate departureDate;
+    private final int maxStops;
+    private final ConnectionSearch.Ranking ranking;
+
+    /**
+     * Constructor to create a SearchConnections command.
+     *
+     * @param origin the place to leave from
+     * @param destination the place to arrive at
+     * @param departureDate the departure date of the first flight, or null for any future date
+     * @param maxStops the most stops an itinerary may make
+     * @param ranking the order to print the itineraries in
+     */
+    public SearchConnections(String origin, String destination, LocalDate departureDate, int maxStops,
+            ConnectionSearch.Ranking ranking) {
+        this.origin = origin;
+        this.destination = destination;
+        this.departureDate = departureDate;
+        this.maxStops = maxStops;
+        this.ranking = ranking;
+    }
+
+    /**
+     * Executes the SearchConnections command, printing the itineraries found.
+     *
+     * @param flightBookingSystem the flight booking system
+     * @throws FlightBookingSystemException if the number of stops is negative
+     */
+    @Override
+    public void execute(FlightBookingSystem flightBookingSystem) throws FlightBookingSystemException {
+        if (maxStops < 0) {
+            throw new FlightBookingSystemException("The number of stops cannot be negative.");
+        }
+        ConnectionSearch search = new ConnectionSearch(flightBookingSystem, maxStops, MIN_CONNECTION_DAYS, MAX_LAYOVER_DAYS);
+        List<ConnectionSearch.Itinerary> itineraries = search.search(origin, destination, departureDate, ranking, LIMIT);
+        int counter = 0;
+        for (ConnectionSearch.Itinerary itinerary : itineraries) {
+            counter++;
+            System.out.println(counter + ". " + itinerary.getDetailsShort());
+            for (Flight leg : itinerary.getLegs()) {
+                System.out.println("\t" + leg.getDetailsShort());
+            }
+        }
+        System.out.println(counter + " itinerary(ies)");
+    }
+}
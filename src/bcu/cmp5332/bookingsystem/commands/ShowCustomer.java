@@ -1,6 +1,5 @@
 package bcu.cmp5332.bookingsystem.commands;
 
-import java.util.List;
 import bcu.cmp5332.bookingsystem.main.CustomerException;
 import bcu.cmp5332.bookingsystem.model.Customer;
 import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
@@ -40,13 +39,12 @@ public class ShowCustomer implements Command {
      */
     @Override
     public void execute(FlightBookingSystem flightBookingSystem) throws CustomerException {
-        try {            
-            List<Customer> customers = flightBookingSystem.getCustomers();
-            Customer customer = customers.get(this.id);
+        try {
+            Customer customer = flightBookingSystem.getCustomerByID(this.id);
             if (!customer.isRemoved()) {
                 System.out.println(customer.getDetailsLong());
             }
-        } catch (Exception ex) {
+        } catch (CustomerException ex) {
             System.out.println("Invalid id of customer");
         }
     }
@@ -0,0 +1,49 @@
+package bcu.cmp5332.bookingsystem.commands;
+
+import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
+import bcu.cmp5332.bookingsystem.model.FareCalendar;
+import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
+
+/**
+ * Command to show the cheapest fare of a route for each of the next
+ * {@value FareCalendar#DAYS} days.
+ *
+ */
+public class ShowFareCalendar implements Command {
+
+    private final String origin;
+    private final String destination;
+
+    /**
+     * Constructor to create a ShowFareCalendar command for a route.
+     *
+     * @param origin the origin of the route
+     * @param destination the destination of the route
+     */
+    public ShowFareCalendar(String origin, String destination) {
+        this.origin = origin;
+        this.destination = destination;
+    }
+
+    /**
+     * Executes the ShowFareCalendar command, printing a line for every day of the calendar.
+     *
+     * @param flightBookingSystem the flight booking system
+     * @throws FlightBookingSystemException if there is an issue with the flight booking system
+     */
+    @Override
+    public void execute(FlightBookingSystem flightBookingSystem) throws FlightBookingSystemException {
+        int counter = 0;
+        System.out.println("Cheapest fares from " + origin + " to " + destination + ":");
+        for (FareCalendar.Fare fare : flightBookingSystem.getFareCalendar(origin, destination)) {
+            if (fare.flight() == null) {
+                System.out.println(fare.date() + " - no flights");
+            } else {
+                counter++;
+                System.out.println(fare.date() + " - Price: " + fare.price() + " - Flight #" + fare.flight().getId()
+                        + " - " + fare.flight().getFlightNumber());
+            }
+        }
+        System.out.println(counter + " day(s) with flights");
+    }
+}
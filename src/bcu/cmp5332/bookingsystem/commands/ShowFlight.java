@@ -1,7 +1,6 @@
 package bcu.cmp5332.bookingsystem.commands;
 
 import java.time.LocalDate;
-import java.util.List;
 import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
 import bcu.cmp5332.bookingsystem.model.Flight;
 import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
@@ -41,8 +40,7 @@ public class ShowFlight implements Command {
      */
     @Override
     public void execute(FlightBookingSystem flightBookingSystem) throws FlightBookingSystemException {
-        List<Flight> flights = flightBookingSystem.getFlights();
-        Flight flight = flights.get(this.id);
+        Flight flight = flightBookingSystem.getFlightByID(this.id);
         if (flight.isRemoved()) {
             System.out.println("The flight with ID " + this.id + " has been removed.");
         } else if (flight.getDepartureDate().isBefore(LocalDate.now())) {
@@ -4,11 +4,7 @@ import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
 import bcu.cmp5332.bookingsystem.model.Airline;
 import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
 
-import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.util.Scanner;
 
 /**
  * This class handles the loading and storing of airline data for the Flight Booking System.
@@ -19,7 +15,7 @@ import java.util.Scanner;
  */
 public class AirlineDataManager implements DataManager {
     
-    private final String RESOURCE = "./resources/data/airlines.txt";
+    static final String RESOURCE = "./resources/data/airlines.txt";
     
     /**
      * Loads airline data from a file into the Flight Booking System.
@@ -30,23 +26,13 @@ public class AirlineDataManager implements DataManager {
      */
     @Override
     public void loadData(FlightBookingSystem fbs) throws IOException, FlightBookingSystemException {
-        try (Scanner sc = new Scanner(new File(RESOURCE))) {
-            int line_idx = 1;
-            while (sc.hasNextLine()) {
-                String line = sc.nextLine();
-                String[] properties = line.split(SEPARATOR, -1);
-                try {
-                    int id = Integer.parseInt(properties[0]);
-                    String name = properties[1];
-                    String email = properties[2];
-                    String password = properties[3];
-                    Airline airline = new Airline(id, name, email, password);
-                    fbs.addAirline(airline);
-                } catch (NumberFormatException ex) {
-                    throw new FlightBookingSystemException("Unable to parse airline id " + properties[0] + " on line " + line_idx
-                        + "\nError: " + ex);
-                }
-                line_idx++;
+        RecordReader in = RecordReader.open(RESOURCE);
+        while (in.nextLine()) {
+            try {
+                fbs.addAirline(parse(in));
+            } catch (NumberFormatException ex) {
+                throw new FlightBookingSystemException("Unable to parse airline id " + in.firstField() + " on line " + in.lineNumber()
+                    + "\nError: " + ex);
             }
         }
     }
@@ -59,14 +45,34 @@ public class AirlineDataManager implements DataManager {
      */
     @Override
     public void storeData(FlightBookingSystem fbs) throws IOException {
-        try (PrintWriter out = new PrintWriter(new FileWriter(RESOURCE))) {
-            for (Airline airline : fbs.getAirlines()) {
-                out.print(airline.getId() + SEPARATOR);
-                out.print(airline.getName() + SEPARATOR);
-                out.print(airline.getEmail() + SEPARATOR);
-                out.print(airline.getPassword() + SEPARATOR);
-                out.println();
-            }
-        }
+        AtomicFile.writeLines(RESOURCE, fbs.getAirlinesView(), AirlineDataManager::format);
+    }
+
+    /**
+     * Creates an airline from the fields of one line of the airlines data file.
+     * 
+     * @param in the reader positioned on the line.
+     * @return the parsed airline.
+     * @throws NumberFormatException if the id field is not a number.
+     */
+    static Airline parse(RecordReader in) {
+        int id = in.nextInt();
+        String name = in.nextString();
+        String email = in.nextString();
+        String password = in.nextString();
+        return new Airline(id, name, email, password);
+    }
+
+    /**
+     * Formats an airline as one line of the airlines data file.
+     * 
+     * @param airline the airline to format.
+     * @return the airline's fields joined by {@link DataManager#SEPARATOR}.
+     */
+    static String format(Airline airline) {
+        return airline.getId() + SEPARATOR
+                + airline.getName() + SEPARATOR
+                + airline.getEmail() + SEPARATOR
+                + airline.getPassword() + SEPARATOR;
     }
 }
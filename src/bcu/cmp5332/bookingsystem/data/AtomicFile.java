@@ -0,0 +1,77 @@
+package bcu.cmp5332.bookingsystem.data;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.function.Function;
+
+/**
+ * The AtomicFile class replaces data files without ever leaving a half-written file behind.
+ *
+ * <p>The new contents are written to a temporary file next to the data file, synced to
+ * disk, and then renamed over the data file in one step. If the program stops while
+ * writing, the old data file is still intact.</p>
+ *
+ * @version 1.0
+ *
+ */
+final class AtomicFile {
+
+    /**
+     * Writes the new contents of a file.
+     */
+    @FunctionalInterface
+    interface Contents {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    private AtomicFile() {
+    }
+
+    /**
+     * Replaces a file with the bytes written by {@code contents}.
+     *
+     * @param resource the path of the file to replace.
+     * @param contents writes the new contents of the file.
+     * @throws IOException if the file cannot be written or replaced.
+     */
+    static void write(String resource, Contents contents) throws IOException {
+        File target = new File(resource);
+        File temp = new File(resource + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temp)) {
+            OutputStream out = new BufferedOutputStream(file, 1 << 16);
+            contents.writeTo(out);
+            out.flush();
+            file.getFD().sync();
+        }
+        Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Replaces a text data file with one line per item.
+     *
+     * @param resource the path of the file to replace.
+     * @param items the items to write.
+     * @param format formats one item as a line.
+     * @throws IOException if the file cannot be written or replaced.
+     */
+    static <T> void writeLines(String resource, Iterable<T> items, Function<T, String> format) throws IOException {
+        write(resource, stream -> {
+            PrintWriter out = new PrintWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+            for (T item : items) {
+                out.println(format.apply(item));
+            }
+            out.flush();
+            if (out.checkError()) {
+                throw new IOException("Unable to write " + resource);
+            }
+        });
+    }
+}
@@ -7,12 +7,8 @@ import bcu.cmp5332.bookingsystem.model.Customer;
 import bcu.cmp5332.bookingsystem.model.Flight;
 import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
 
-import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.time.LocalDate;
-import java.util.Scanner;
 
 /**
  * The BookingDataManager class manages the loading and storing of booking data for the Flight Booking System.
@@ -26,7 +22,7 @@ public class BookingDataManager implements DataManager {
     /**
      * The resource path where booking data is stored or loaded from.
      */
-    public final String RESOURCE = "./resources/data/bookings.txt";
+    public static final String RESOURCE = "./resources/data/bookings.txt";
 
     /**
      * Loads booking data from a file into the Flight Booking System.
@@ -38,32 +34,22 @@ public class BookingDataManager implements DataManager {
      */
     @Override
     public void loadData(FlightBookingSystem fbs) throws IOException, FlightBookingSystemException, CustomerException {
-        try (Scanner sc = new Scanner(new File(RESOURCE))) {
-            int line_idx = 1;
-            while (sc.hasNextLine()) {
-                String line = sc.nextLine();
-                String[] properties = line.split(SEPARATOR, -1);
-                try {
-                	int id = Integer.parseInt(properties[0]);
-                    int customer_id = Integer.parseInt(properties[1]);
-                    Customer customer = fbs.getCustomerByID(customer_id);
-                    int flight_id = Integer.parseInt(properties[2]);
-                    Flight flight = fbs.getFlightByID(flight_id);
-                    LocalDate date = LocalDate.parse(properties[3]);
-                    Double price = Double.parseDouble(properties[4]);
-                    Booking booking = new Booking(id, customer, flight, date, price);
-                    
-                    // Add booking to customer and flight
-                    customer.addBooking(booking);
-                    flight.addPassenger(customer);
-                    
-                    // Add booking to flight booking system
-                    fbs.addBooking(booking);
-                } catch (NumberFormatException ex) {
-                    throw new CustomerException("Unable to parse booking id " + properties[0] + " on line " + line_idx
-                        + "\nError: " + ex);
-                }
-                line_idx++;
+        RecordReader in = RecordReader.open(RESOURCE);
+        while (in.nextLine()) {
+            try {
+                Booking booking = parse(fbs, in);
+                Customer customer = booking.getCustomer();
+                Flight flight = booking.getFlight();
+                
+                // Add booking to customer and flight
+                customer.addBooking(booking);
+                flight.addPassenger(customer);
+                
+                // Add booking to flight booking system
+                fbs.addBooking(booking);
+            } catch (NumberFormatException ex) {
+                throw new CustomerException("Unable to parse booking id " + in.firstField() + " on line " + in.lineNumber()
+                    + "\nError: " + ex);
             }
         }
     }
@@ -76,15 +62,77 @@ public class BookingDataManager implements DataManager {
      */
     @Override
     public void storeData(FlightBookingSystem fbs) throws IOException {
-        try (PrintWriter out = new PrintWriter(new FileWriter(RESOURCE))) {
-            for (Booking booking : fbs.getBookings()) {
-                out.print(booking.getId() + SEPARATOR);
-                out.print(booking.getCustomer().getId() + SEPARATOR);
-                out.print(booking.getFlight().getId() + SEPARATOR);
-                out.print(booking.getBookingDate() + SEPARATOR);
-                out.print(booking.getPrice() + SEPARATOR);
-                out.println();
-            }
+        AtomicFile.writeLines(RESOURCE, fbs.getBookingsView(), BookingDataManager::format);
+    }
+
+    /**
+     * Creates a booking from the fields of one line of the bookings data file.
+     * The booking is not linked to its customer or flight by this method.
+     * 
+     * @param fbs the Flight Booking System used to look up the booking's customer and flight.
+     * @param in the reader positioned on the line.
+     * @return the parsed booking.
+     * @throws FlightBookingSystemException if the referenced flight does not exist.
+     * @throws CustomerException if the referenced customer does not exist.
+     * @throws NumberFormatException if a numeric field cannot be parsed.
+     */
+    static Booking parse(FlightBookingSystem fbs, RecordReader in) throws FlightBookingSystemException, CustomerException {
+        return parseRecord(in).link(fbs);
+    }
+
+    /**
+     * Reads the fields of one line of the bookings data file without looking up the
+     * customer or flight, so lines can be parsed before either has been loaded.
+     * 
+     * @param in the reader positioned on the line.
+     * @return the parsed fields.
+     * @throws NumberFormatException if a numeric field cannot be parsed.
+     */
+    static BookingRecord parseRecord(RecordReader in) {
+        int id = in.nextInt();
+        int customer_id = in.nextInt();
+        int flight_id = in.nextInt();
+        LocalDate date = in.nextDate();
+        double price = in.nextDouble();
+        // Lines written before seats were assigned end after the price
+        String seat = in.hasMoreFields() ? in.nextString() : null;
+        return new BookingRecord(id, customer_id, flight_id, date, price, seat);
+    }
+
+    /**
+     * The fields of one line of the bookings data file, with the customer and flight still referred to by id.
+     */
+    record BookingRecord(int id, int customerId, int flightId, LocalDate date, double price, String seat) {
+
+        /**
+         * Creates the booking, looking up its customer and flight.
+         * The booking is not linked to its customer or flight by this method.
+         * 
+         * @param fbs the Flight Booking System used to look up the booking's customer and flight.
+         * @return the booking.
+         * @throws FlightBookingSystemException if the referenced flight does not exist.
+         * @throws CustomerException if the referenced customer does not exist.
+         */
+        Booking link(FlightBookingSystem fbs) throws FlightBookingSystemException, CustomerException {
+            Customer customer = fbs.getCustomerByID(customerId);
+            Flight flight = fbs.getFlightByID(flightId);
+            return new Booking(id, customer, flight, date, price, seat);
         }
     }
+
+    /**
+     * Formats a booking as one line of the bookings data file. The seat is written
+     * last, and left out if the booking has none.
+     * 
+     * @param booking the booking to format.
+     * @return the booking's fields joined by {@link DataManager#SEPARATOR}.
+     */
+    static String format(Booking booking) {
+        return booking.getId() + SEPARATOR
+                + booking.getCustomer().getId() + SEPARATOR
+                + booking.getFlight().getId() + SEPARATOR
+                + booking.getBookingDate() + SEPARATOR
+                + booking.getPrice() + SEPARATOR
+                + (booking.getSeat() == null ? "" : booking.getSeat() + SEPARATOR);
+    }
 }
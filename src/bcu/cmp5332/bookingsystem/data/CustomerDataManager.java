@@ -4,11 +4,7 @@ import bcu.cmp5332.bookingsystem.main.CustomerException;
 import bcu.cmp5332.bookingsystem.model.Customer;
 import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
 
-import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.util.Scanner;
 
 /**
  * The CustomerDataManager class manages the loading and storing of customer data for the Flight Booking System.
@@ -22,7 +18,7 @@ public class CustomerDataManager implements DataManager {
     /**
      * The resource path where customer data is stored or loaded from.
      */
-    private final String RESOURCE = "./resources/data/customers.txt";
+    static final String RESOURCE = "./resources/data/customers.txt";
 
     /**
      * Loads customer data from a file into the Flight Booking System.
@@ -33,25 +29,13 @@ public class CustomerDataManager implements DataManager {
      */
     @Override
     public void loadData(FlightBookingSystem fbs) throws IOException, CustomerException {
-        try (Scanner sc = new Scanner(new File(RESOURCE))) {
-            int line_idx = 1;
-            while (sc.hasNextLine()) {
-                String line = sc.nextLine();
-                String[] properties = line.split(SEPARATOR, -1);
-                try {
-                    int id = Integer.parseInt(properties[0]);
-                    String name = properties[1];
-                    int age = Integer.parseInt(properties[2]);
-                    String phone = properties[3];
-                    String email = properties[4];
-                    boolean isRemoved = Boolean.parseBoolean(properties[5]);
-                    Customer customer = new Customer(id, name, age, phone, email, isRemoved);
-                    fbs.addCustomer(customer);
-                } catch (NumberFormatException ex) {
-                    throw new CustomerException("Unable to parse customer id " + properties[0] + " on line " + line_idx
-                            + "\nError: " + ex);
-                }
-                line_idx++;
+        RecordReader in = RecordReader.open(RESOURCE);
+        while (in.nextLine()) {
+            try {
+                fbs.addCustomer(parse(in));
+            } catch (NumberFormatException ex) {
+                throw new CustomerException("Unable to parse customer id " + in.firstField() + " on line " + in.lineNumber()
+                        + "\nError: " + ex);
             }
         }
     }
@@ -64,16 +48,38 @@ public class CustomerDataManager implements DataManager {
      */
     @Override
     public void storeData(FlightBookingSystem fbs) throws IOException {
-        try (PrintWriter out = new PrintWriter(new FileWriter(RESOURCE))) {
-            for (Customer customer : fbs.getCustomers()) {
-                out.print(customer.getId() + SEPARATOR);
-                out.print(customer.getName() + SEPARATOR);
-                out.print(customer.getAge() + SEPARATOR);
-                out.print(customer.getPhone() + SEPARATOR);
-                out.print(customer.getEmail() + SEPARATOR);
-                out.print(customer.isRemoved() + SEPARATOR);
-                out.println();
-            }
-        }
+        AtomicFile.writeLines(RESOURCE, fbs.getCustomersView(), CustomerDataManager::format);
+    }
+
+    /**
+     * Creates a customer from the fields of one line of the customers data file.
+     * 
+     * @param in the reader positioned on the line.
+     * @return the parsed customer.
+     * @throws NumberFormatException if the id or age field is not a number.
+     */
+    static Customer parse(RecordReader in) {
+        int id = in.nextInt();
+        String name = in.nextString();
+        int age = in.nextInt();
+        String phone = in.nextString();
+        String email = in.nextString();
+        boolean isRemoved = in.nextBoolean();
+        return new Customer(id, name, age, phone, email, isRemoved);
+    }
+
+    /**
+     * Formats a customer as one line of the customers data file.
+     * 
+     * @param customer the customer to format.
+     * @return the customer's fields joined by {@link DataManager#SEPARATOR}.
+     */
+    static String format(Customer customer) {
+        return customer.getId() + SEPARATOR
+                + customer.getName() + SEPARATOR
+                + customer.getAge() + SEPARATOR
+                + customer.getPhone() + SEPARATOR
+                + customer.getEmail() + SEPARATOR
+                + customer.isRemoved() + SEPARATOR;
     }
 }
@@ -2,11 +2,18 @@ package bcu.cmp5332.bookingsystem.data;
 
 import bcu.cmp5332.bookingsystem.main.CustomerException;
 import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
+import bcu.cmp5332.bookingsystem.model.EntityType;
 import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * The FlightBookingSystemData class manages loading and storing of data for the Flight Booking System.
@@ -18,26 +25,89 @@ import java.util.List;
 public class FlightBookingSystemData {
     
     /**
-     * List of DataManagers that handle different types of data.
+     * DataManagers that handle the text data files of airlines, planes and customers.
+     * Flights and bookings are stored in monthly partitions by {@link PartitionedDataManager}.
      */
-    private static final List<DataManager> dataManagers = new ArrayList<>();
+    private static final Map<EntityType, DataManager> dataManagers = new EnumMap<>(EntityType.class);
+    
+    /**
+     * Binary snapshot used instead of the text data files when the base format is binary.
+     */
+    private static final SnapshotDataManager snapshot = new SnapshotDataManager();
+    
+    /**
+     * High-water marks of the ID sequences, stored alongside the data files in either format.
+     */
+    private static final IdDataManager ids = new IdDataManager();
+    
+    /**
+     * Whether the data files are written as a binary snapshot instead of text files.
+     * Read from the {@code fbs.format} ({@code text} or {@code binary}) system property.
+     */
+    private static volatile boolean binaryFormat = "binary".equalsIgnoreCase(System.getProperty("fbs.format", "text"));
+    
+    /**
+     * Journal of the changes made since the data files were last written. Its durability
+     * is read from the {@code fbs.durability} ({@code sync}, {@code group} or {@code async})
+     * and {@code fbs.groupCommitMillis} system properties.
+     */
+    private static final JournalDataManager journal = JournalDataManager.create(
+            PersistenceScheduler.Durability.valueOf(System.getProperty("fbs.durability", "group").toUpperCase()),
+            Long.getLong("fbs.groupCommitMillis", 10));
+    
+    /**
+     * Number of journal records after which {@link #store(FlightBookingSystem)} starts a checkpoint.
+     */
+    private static final int CHECKPOINT_THRESHOLD = 1000;
+    
+    /**
+     * Seconds between the periodic checkpoints that fold a non-empty journal into the data
+     * files, read from the {@code fbs.checkpointSeconds} system property. Together with
+     * {@link #CHECKPOINT_THRESHOLD} this bounds how much of the journal a restart replays.
+     */
+    private static final long CHECKPOINT_INTERVAL_SECONDS = Long.getLong("fbs.checkpointSeconds", 60);
+    
+    /**
+     * Whether changes are saved by appending to the journal instead of rewriting the data files.
+     */
+    private static volatile boolean journalMode = true;
+    
+    private static final AtomicBoolean checkpointRunning = new AtomicBoolean();
+    private static volatile Thread checkpointThread;
     
     /**
      * Static initialization block to add DataManagers for different entities.
      */
     static {
-        dataManagers.add(new AirlineDataManager());
-        dataManagers.add(new PlaneDataManager());
-        dataManagers.add(new FlightDataManager());
+        dataManagers.put(EntityType.AIRLINE, new AirlineDataManager());
+        dataManagers.put(EntityType.PLANE, new PlaneDataManager());
+        dataManagers.put(EntityType.CUSTOMER, new CustomerDataManager());
         
-        /* Uncomment the two lines below when the implementation of their 
-         * loadData() and storeData() methods is complete */
-        dataManagers.add(new CustomerDataManager());
-        dataManagers.add(new BookingDataManager());
+        if (CHECKPOINT_INTERVAL_SECONDS > 0) {
+            ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "checkpoint-timer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            timer.scheduleWithFixedDelay(FlightBookingSystemData::periodicCheckpoint,
+                    CHECKPOINT_INTERVAL_SECONDS, CHECKPOINT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        }
+        
+        // Sync the journal and let a running checkpoint finish before the JVM exits
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                journal.flush().join();
+            } catch (CompletionException ex) {
+                System.err.println("Unable to flush the journal.\nError: " + ex.getCause());
+            }
+            awaitCheckpoint();
+        }));
     }
     
     /**
      * Loads the entire Flight Booking System from persistent storage.
+     * The data files, or the binary snapshot, are loaded first and the journal is then
+     * replayed on top of them.
      * 
      * @return an instance of FlightBookingSystem loaded with data.
      * @throws FlightBookingSystemException if an error occurs during system loading.
@@ -46,21 +116,225 @@ public class FlightBookingSystemData {
      */
     public static FlightBookingSystem load() throws FlightBookingSystemException, IOException, CustomerException {
         FlightBookingSystem fbs = new FlightBookingSystem();
-        for (DataManager dm : dataManagers) {
-            dm.loadData(fbs);
-        }
+        loadBase(fbs);
+        journal.loadData(fbs);
         return fbs;
     }
 
     /**
      * Stores the entire Flight Booking System to persistent storage.
      * 
+     * <p>In journal mode the changes have already been appended to the journal by the
+     * commands that made them, so this only waits for the journal's next scheduled write and
+     * starts a background checkpoint once the journal has grown past {@value #CHECKPOINT_THRESHOLD}
+     * records; a timer also checkpoints every {@code fbs.checkpointSeconds}. Store requests
+     * made close together are written together, and synced as the durability mode decides;
+     * use {@link #sync()} to force a sync. Otherwise
+     * the data files holding a changed record are rewritten before this method returns.</p>
+     * 
      * @param fbs the FlightBookingSystem instance to be stored.
+     * @return a future that completes once the stored changes have been written with the
+     *         configured durability.
      * @throws IOException if an I/O error occurs during data storage.
      */
-    public static void store(FlightBookingSystem fbs) throws IOException {
-        for (DataManager dm : dataManagers) {
-            dm.storeData(fbs);
+    public static CompletableFuture<Void> store(FlightBookingSystem fbs) throws IOException {
+        if (journalMode) {
+            CompletableFuture<Void> written = journal.nextWrite();
+            if (journal.size() >= CHECKPOINT_THRESHOLD) {
+                checkpoint();
+            }
+            return written;
+        }
+        storeBase(fbs);
+        journal.storeData(fbs);
+        return CompletableFuture.completedFuture(null);
+    }
+    
+    /**
+     * Forces everything stored so far to be synced to disk, whatever the durability mode.
+     * 
+     * @return a future that completes once every earlier change is durable.
+     */
+    public static CompletableFuture<Void> sync() {
+        if (journalMode) {
+            return journal.flush();
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+    
+    /**
+     * Gets the journal that commands append their changes to.
+     * 
+     * @return the journal of the Flight Booking System.
+     */
+    public static JournalDataManager getJournal() {
+        return journal;
+    }
+    
+    /**
+     * Sets how long changes may stay in memory before they are synced to disk.
+     * 
+     * @param durability sync every command, group commits, or write asynchronously.
+     * @param groupCommitMillis the interval used to collect records in group mode.
+     */
+    public static void setDurability(PersistenceScheduler.Durability durability, long groupCommitMillis) {
+        journal.getScheduler().setDurability(durability, groupCommitMillis);
+    }
+    
+    /**
+     * Sets whether changes are saved through the journal or by rewriting every data file.
+     * 
+     * @param enabled true to use the journal, false to rewrite the data files on every store.
+     */
+    public static void setJournalMode(boolean enabled) {
+        journalMode = enabled;
+    }
+    
+    /**
+     * Sets whether the data files are written as a binary snapshot or as text files.
+     * 
+     * @param enabled true to use the binary snapshot, false to use the text data files.
+     */
+    public static void setBinaryFormat(boolean enabled) {
+        binaryFormat = enabled;
+    }
+    
+    /**
+     * Starts folding the journal into the data files on a background thread.
+     * The journal is moved aside first, so commands can keep appending to a new journal
+     * while the checkpoint runs. Does nothing if a checkpoint is already running.
+     * 
+     * @throws IOException if the journal cannot be moved aside.
+     */
+    public static void checkpoint() throws IOException {
+        if (!checkpointRunning.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            journal.rotate();
+        } catch (IOException ex) {
+            checkpointRunning.set(false);
+            throw ex;
         }
-    }  
+        Thread worker = new Thread(() -> {
+            try {
+                foldCheckpointSegment();
+            } catch (IOException | FlightBookingSystemException | CustomerException ex) {
+                System.err.println("Checkpoint failed, the journal will be replayed on the next load.\nError: " + ex);
+            } finally {
+                checkpointRunning.set(false);
+            }
+        }, "journal-checkpoint");
+        checkpointThread = worker;
+        worker.start();
+    }
+    
+    /**
+     * Starts a checkpoint if the journal holds any records. Run by the checkpoint timer.
+     */
+    private static void periodicCheckpoint() {
+        if (!journalMode || journal.size() == 0) {
+            return;
+        }
+        try {
+            checkpoint();
+        } catch (IOException ex) {
+            System.err.println("Periodic checkpoint failed.\nError: " + ex);
+        }
+    }
+    
+    /**
+     * Waits for a running checkpoint, if any, to finish.
+     */
+    public static void awaitCheckpoint() {
+        Thread worker = checkpointThread;
+        if (worker != null) {
+            try {
+                worker.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    /**
+     * Rebuilds the system from the data files and the rotated journal segment, then
+     * writes it back to the data files. The live system is never touched, so commands
+     * are not blocked while this runs.
+     */
+    private static void foldCheckpointSegment() throws IOException, FlightBookingSystemException, CustomerException {
+        FlightBookingSystem copy = new FlightBookingSystem();
+        loadBase(copy);
+        journal.replayCheckpointSegment(copy);
+        storeBase(copy);
+        journal.deleteCheckpointSegment();
+    }
+    
+    /**
+     * Loads the data the journal is replayed on top of. In binary format the snapshot is
+     * mapped into memory; until the first snapshot has been written the text files are
+     * read instead, so an existing installation switches over on its next checkpoint.
+     * The text files are parsed in parallel and then linked by {@link ParallelDataLoader}.
+     * Flights and bookings are read from the monthly partitions of the current and future
+     * months, or from the single flights and bookings files if no partitions have been
+     * written yet. Everything loaded is marked as stored, except text files loaded in
+     * binary format, which stay dirty so that the next store writes the first snapshot.
+     * The stored ID high-water marks are applied first.
+     */
+    private static void loadBase(FlightBookingSystem fbs) throws IOException, FlightBookingSystemException, CustomerException {
+        ids.loadData(fbs);
+        if (binaryFormat && snapshot.exists()) {
+            snapshot.loadData(fbs);
+            fbs.clearDirty();
+            return;
+        }
+        if (PartitionedDataManager.exists()) {
+            new PartitionedDataManager().loadData(fbs);
+            if (binaryFormat) {
+                fbs.loadHistory();
+            }
+        } else {
+            ParallelDataLoader.load(fbs);
+        }
+        if (!binaryFormat) {
+            fbs.clearDirty();
+        }
+    }
+    
+    /**
+     * Writes the data the journal is replayed on top of, in the current base format.
+     * Only the files holding a record that changed since the last load or store are
+     * rewritten; the binary snapshot is rewritten if any record changed. The ID high-water
+     * marks are written whenever anything is.
+     */
+    private static void storeBase(FlightBookingSystem fbs) throws IOException {
+        if (!fbs.isDirty()) {
+            return;
+        }
+        // Written first, so a crash part way through can only skip IDs, never reuse them
+        ids.storeData(fbs);
+        if (binaryFormat) {
+            snapshot.storeData(fbs);
+            fbs.clearDirty();
+            return;
+        }
+        for (Map.Entry<EntityType, DataManager> entry : dataManagers.entrySet()) {
+            if (fbs.isDirty(entry.getKey())) {
+                entry.getValue().storeData(fbs);
+                fbs.clearDirty(entry.getKey());
+            }
+        }
+        if (fbs.isDirty(EntityType.FLIGHT) || fbs.isDirty(EntityType.BOOKING)) {
+            if (fbs.getHistoryLoader() instanceof PartitionedDataManager partitions) {
+                partitions.storeData(fbs);
+            } else {
+                // Loaded from the single flights and bookings files, which the partitions replace
+                PartitionedDataManager partitions = new PartitionedDataManager();
+                partitions.storeAll(fbs);
+                fbs.setHistoryLoader(partitions);
+            }
+            fbs.clearDirty(EntityType.FLIGHT);
+            fbs.clearDirty(EntityType.BOOKING);
+        }
+    }
 }
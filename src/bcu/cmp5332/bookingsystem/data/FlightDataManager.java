@@ -5,12 +5,8 @@ import bcu.cmp5332.bookingsystem.model.Flight;
 import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
 import bcu.cmp5332.bookingsystem.model.Plane;
 
-import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.time.LocalDate;
-import java.util.Scanner;
 
 /**
  * The FlightDataManager class manages loading and storing flight data to/from a text file.
@@ -19,7 +15,7 @@ import java.util.Scanner;
  */
 public class FlightDataManager implements DataManager {
     
-    private final String RESOURCE = "./resources/data/flights.txt";
+    static final String RESOURCE = "./resources/data/flights.txt";
     
     /**
      * Loads flight data from the flights data file into the FlightBookingSystem.
@@ -30,30 +26,13 @@ public class FlightDataManager implements DataManager {
      */
     @Override
     public void loadData(FlightBookingSystem fbs) throws IOException, FlightBookingSystemException {
-        try (Scanner sc = new Scanner(new File(RESOURCE))) {
-            int line_idx = 1;
-            while (sc.hasNextLine()) {
-                String line = sc.nextLine();
-                String[] properties = line.split(SEPARATOR, -1);
-                try {
-                    int id = Integer.parseInt(properties[0]);
-                    String flightNumber = properties[1];
-                    String origin = properties[2];
-                    String destination = properties[3];
-                    double price = Double.parseDouble(properties[4]);
-                    int planeId = Integer.parseInt(properties[5]);
-                    LocalDate departureDate = LocalDate.parse(properties[6]);
-                    Boolean isRemoved = Boolean.parseBoolean(properties[7]);
-
-                    Plane plane = fbs.getPlaneByID(planeId);
-                    Flight flight = new Flight(id, flightNumber, origin, destination, price, plane, departureDate, isRemoved);
-
-                    fbs.addFlight(flight);
-                } catch (NumberFormatException ex) {
-                    throw new FlightBookingSystemException("Unable to parse flight id " + properties[0] + " on line " + line_idx
-                            + "\nError: " + ex);
-                }
-                line_idx++;
+        RecordReader in = RecordReader.open(RESOURCE);
+        while (in.nextLine()) {
+            try {
+                fbs.addFlight(parse(fbs, in));
+            } catch (NumberFormatException ex) {
+                throw new FlightBookingSystemException("Unable to parse flight id " + in.firstField() + " on line " + in.lineNumber()
+                        + "\nError: " + ex);
             }
         }
     }
@@ -66,18 +45,75 @@ public class FlightDataManager implements DataManager {
      */
     @Override
     public void storeData(FlightBookingSystem fbs) throws IOException {
-        try (PrintWriter out = new PrintWriter(new FileWriter(RESOURCE))) {
-            for (Flight flight : fbs.getFlights()) {
-                out.print(flight.getId() + SEPARATOR);
-                out.print(flight.getFlightNumber() + SEPARATOR);
-                out.print(flight.getOrigin() + SEPARATOR);
-                out.print(flight.getDestination() + SEPARATOR);
-                out.print(flight.getPrice() + SEPARATOR);
-                out.print(flight.getPlane().getId() + SEPARATOR);
-                out.print(flight.getDepartureDate() + SEPARATOR);
-                out.print(flight.isRemoved() + SEPARATOR);
-                out.println();
-            }
+        AtomicFile.writeLines(RESOURCE, fbs.getFlightsView(), FlightDataManager::format);
+    }
+
+    /**
+     * Creates a flight from the fields of one line of the flights data file.
+     *
+     * @param fbs The FlightBookingSystem used to look up the flight's plane
+     * @param in The reader positioned on the line
+     * @return The parsed flight
+     * @throws FlightBookingSystemException If the referenced plane does not exist
+     * @throws NumberFormatException If a numeric field cannot be parsed
+     */
+    static Flight parse(FlightBookingSystem fbs, RecordReader in) throws FlightBookingSystemException {
+        return parseRecord(in).link(fbs);
+    }
+
+    /**
+     * Reads the fields of one line of the flights data file without looking up the plane,
+     * so lines can be parsed before any plane has been loaded.
+     *
+     * @param in The reader positioned on the line
+     * @return The parsed fields
+     * @throws NumberFormatException If a numeric field cannot be parsed
+     */
+    static FlightRecord parseRecord(RecordReader in) {
+        int id = in.nextInt();
+        String flightNumber = in.nextString();
+        String origin = in.nextString();
+        String destination = in.nextString();
+        double price = in.nextDouble();
+        int planeId = in.nextInt();
+        LocalDate departureDate = in.nextDate();
+        boolean isRemoved = in.nextBoolean();
+        return new FlightRecord(id, flightNumber, origin, destination, price, planeId, departureDate, isRemoved);
+    }
+
+    /**
+     * The fields of one line of the flights data file, with the plane still referred to by id.
+     */
+    record FlightRecord(int id, String flightNumber, String origin, String destination, double price,
+            int planeId, LocalDate departureDate, boolean isRemoved) {
+
+        /**
+         * Creates the flight, looking up its plane.
+         *
+         * @param fbs The FlightBookingSystem used to look up the flight's plane
+         * @return The flight
+         * @throws FlightBookingSystemException If the referenced plane does not exist
+         */
+        Flight link(FlightBookingSystem fbs) throws FlightBookingSystemException {
+            Plane plane = fbs.getPlaneByID(planeId);
+            return new Flight(id, flightNumber, origin, destination, price, plane, departureDate, isRemoved);
         }
     }
+
+    /**
+     * Formats a flight as one line of the flights data file.
+     *
+     * @param flight The flight to format
+     * @return The flight's fields joined by {@link DataManager#SEPARATOR}
+     */
+    static String format(Flight flight) {
+        return flight.getId() + SEPARATOR
+                + flight.getFlightNumber() + SEPARATOR
+                + flight.getOrigin() + SEPARATOR
+                + flight.getDestination() + SEPARATOR
+                + flight.getPrice() + SEPARATOR
+                + flight.getPlane().getId() + SEPARATOR
+                + flight.getDepartureDate() + SEPARATOR
+                + flight.isRemoved() + SEPARATOR;
+    }
 }
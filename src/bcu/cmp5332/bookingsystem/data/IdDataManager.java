@@ -0,0 +1,65 @@
+package bcu.cmp5332.bookingsystem.data;
+
+import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
+import bcu.cmp5332.bookingsystem.model.EntityType;
+import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
+import bcu.cmp5332.bookingsystem.model.IdAllocator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * This class handles the loading and storing of the ID high-water marks of the Flight
+ * Booking System's {@link IdAllocator}. Each line holds an entity type and the highest ID
+ * handed out for it, for example {@code BOOKING::42::}, so the IDs of cancelled bookings
+ * and of unused leased blocks are not handed out again after a restart.
+ * 
+ * @version 1.0
+ * 
+ */
+public class IdDataManager implements DataManager {
+    
+    static final String RESOURCE = "./resources/data/ids.txt";
+    
+    /**
+     * Raises the Flight Booking System's ID sequences to the stored high-water marks.
+     * Does nothing if no marks have been stored yet.
+     * 
+     * @param fbs the Flight Booking System instance into which data will be loaded.
+     * @throws IOException if an I/O error occurs during data loading.
+     * @throws FlightBookingSystemException if a line cannot be parsed.
+     */
+    @Override
+    public void loadData(FlightBookingSystem fbs) throws IOException, FlightBookingSystemException {
+        if (!new File(RESOURCE).exists()) {
+            return;
+        }
+        RecordReader in = RecordReader.open(RESOURCE);
+        while (in.nextLine()) {
+            if (in.isEmpty()) {
+                continue;
+            }
+            try {
+                EntityType type = EntityType.valueOf(in.nextString());
+                fbs.getIdAllocator().observe(type, in.nextInt());
+            } catch (IllegalArgumentException ex) {
+                throw new FlightBookingSystemException("Unable to parse ID sequence " + in.firstField() + " on line " + in.lineNumber()
+                    + "\nError: " + ex);
+            }
+        }
+    }
+    
+    /**
+     * Stores the high-water mark of every ID sequence of the Flight Booking System.
+     * 
+     * @param fbs the Flight Booking System instance from which data will be stored.
+     * @throws IOException if an I/O error occurs during data storage.
+     */
+    @Override
+    public void storeData(FlightBookingSystem fbs) throws IOException {
+        IdAllocator ids = fbs.getIdAllocator();
+        AtomicFile.writeLines(RESOURCE, List.of(EntityType.values()),
+                type -> type + SEPARATOR + ids.getHighWaterMark(type) + SEPARATOR);
+    }
+}
@@ -0,0 +1,643 @@
+package bcu.cmp5332.bookingsystem.data;
+
+import bcu.cmp5332.bookingsystem.main.CustomerException;
+import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
+import bcu.cmp5332.bookingsystem.model.Airline;
+import bcu.cmp5332.bookingsystem.model.Booking;
+import bcu.cmp5332.bookingsystem.model.Customer;
+import bcu.cmp5332.bookingsystem.model.Flight;
+import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
+import bcu.cmp5332.bookingsystem.model.Plane;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.zip.CRC32;
+
+/**
+ * The JournalDataManager class keeps an append-only log of the changes made to the
+ * Flight Booking System since the data files were last rewritten.
+ *
+ * <p>Every command that changes the system appends one record to the journal, so the
+ * cost of saving a change depends only on the size of that change. Each record is the
+ * CRC-32 of the rest of the line, a record type and the same fields the other
+ * DataManagers write, for example {@code 5d1e0c2a::BOOKING::4::1::3::2024-06-24::110.0::}.
+ * Loading replays the journal on top of the data files, and a checkpoint folds it back
+ * into them.</p>
+ *
+ * <p>Replaying a record that has already been applied has no effect, so a checkpoint
+ * that is interrupted before the journal is cleared does not corrupt the data. Records
+ * at the end of the journal whose checksum does not match were being written when the
+ * program stopped; they are dropped and cut off the journal. A damaged record followed
+ * by intact ones is reported as an error rather than skipped.</p>
+ *
+ * <p>The records are checked and parsed in parallel, since none of them depends on
+ * another until it is applied, and are then applied to the system in journal order.</p>
+ *
+ * <p>Records are written through a {@link PersistenceScheduler}, which decides when they
+ * are synced to disk.</p>
+ *
+ * @version 1.0
+ *
+ */
+public class JournalDataManager implements DataManager {
+
+    /**
+     * The resource path of the journal that new records are appended to.
+     */
+    private final String RESOURCE = "./resources/data/journal.txt";
+
+    /**
+     * The resource path of the journal segment being folded into the data files by a checkpoint.
+     */
+    private final String CHECKPOINT_RESOURCE = "./resources/data/journal.checkpoint.txt";
+
+    private static final String AIRLINE = "AIRLINE";
+    private static final String PLANE = "PLANE";
+    private static final String FLIGHT = "FLIGHT";
+    private static final String CUSTOMER = "CUSTOMER";
+    private static final String BOOKING = "BOOKING";
+    private static final String EDIT_BOOKING = "EDITBOOKING";
+    private static final String CANCEL_BOOKING = "CANCELBOOKING";
+    private static final String REMOVE_FLIGHT = "REMOVEFLIGHT";
+    private static final String REMOVE_CUSTOMER = "REMOVECUSTOMER";
+    private static final Set<String> TYPES = Set.of(AIRLINE, PLANE, FLIGHT, CUSTOMER, BOOKING,
+            EDIT_BOOKING, CANCEL_BOOKING, REMOVE_FLIGHT, REMOVE_CUSTOMER);
+
+    /**
+     * Number of bytes of the journal checked and parsed by one task during replay.
+     */
+    private static final int REPLAY_CHUNK_BYTES = 1 << 16;
+
+    /**
+     * A journal record that has been checked and parsed but not yet applied.
+     *
+     * @param offset the index of the record's first byte in the journal.
+     * @param type the record type, or null if the record is damaged.
+     * @param id the id of the changed entity.
+     * @param fields the parsed fields: an Airline, Customer or the record of a plane, flight
+     *               or booking; null for records that only carry an id.
+     * @param problem why the record could not be read, or null if it is intact.
+     */
+    private record Entry(int offset, String type, int id, Object fields, String problem) {
+    }
+
+    private PersistenceScheduler scheduler;
+    private FileChannel channel;
+    private int records;
+
+    private JournalDataManager() {
+    }
+
+    /**
+     * Creates a journal whose records are written with the given durability. The
+     * scheduler is only handed the journal once the journal has been constructed.
+     *
+     * @param durability the initial durability mode.
+     * @param groupCommitMillis the interval used to collect records in {@link PersistenceScheduler.Durability#GROUP} mode.
+     * @return the new journal.
+     */
+    public static JournalDataManager create(PersistenceScheduler.Durability durability, long groupCommitMillis) {
+        JournalDataManager journal = new JournalDataManager();
+        journal.scheduler = new PersistenceScheduler(journal, durability, groupCommitMillis);
+        return journal;
+    }
+
+    /**
+     * Replays the journal into the Flight Booking System. This must run after the
+     * data files have been loaded. Records still queued by the scheduler are written
+     * first, so a reload always sees every change made so far.
+     *
+     * @param fbs the Flight Booking System instance into which the changes will be replayed.
+     * @throws IOException if an I/O error occurs while reading the journal.
+     * @throws FlightBookingSystemException if a record cannot be parsed or applied.
+     * @throws CustomerException if a record refers to a customer that does not exist.
+     */
+    @Override
+    public void loadData(FlightBookingSystem fbs) throws IOException, FlightBookingSystemException, CustomerException {
+        awaitFlush();
+        synchronized (this) {
+            replay(fbs, CHECKPOINT_RESOURCE);
+            records = replay(fbs, RESOURCE);
+        }
+    }
+
+    /**
+     * Clears the journal. This is called once every change it holds has been written to
+     * the data files.
+     *
+     * @param fbs the Flight Booking System instance that has just been stored.
+     * @throws IOException if the journal cannot be deleted.
+     */
+    @Override
+    public void storeData(FlightBookingSystem fbs) throws IOException {
+        awaitFlush();
+        synchronized (this) {
+            clear();
+        }
+    }
+
+    /**
+     * Deletes the journal and any checkpoint segment.
+     */
+    private void clear() throws IOException {
+        close();
+        Files.deleteIfExists(new File(RESOURCE).toPath());
+        Files.deleteIfExists(new File(CHECKPOINT_RESOURCE).toPath());
+        records = 0;
+    }
+
+    /**
+     * Gets the scheduler that writes the records of this journal.
+     *
+     * @return the persistence scheduler of this journal.
+     */
+    public PersistenceScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Requests that every record appended so far is written and synced to disk.
+     *
+     * @return a future that completes once every earlier record is durable.
+     */
+    public CompletableFuture<Void> flush() {
+        return scheduler.flush();
+    }
+
+    /**
+     * Waits for every record appended so far to be written by the next scheduled write,
+     * synced or not as the durability mode decides.
+     *
+     * @return a future that completes once every earlier record has been written.
+     */
+    public CompletableFuture<Void> nextWrite() {
+        return scheduler.nextWrite();
+    }
+
+    /**
+     * Gets the number of records appended to the journal since it was last rotated or cleared.
+     *
+     * @return the number of records in the journal.
+     */
+    public synchronized int size() {
+        return records;
+    }
+
+    /**
+     * Records that an airline has been added.
+     *
+     * @param airline the airline that was added.
+     * @return a future that completes once the record has been written.
+     * @throws FlightBookingSystemException if the record cannot be written.
+     */
+    public CompletableFuture<Void> logAirline(Airline airline) throws FlightBookingSystemException {
+        return append(AIRLINE, AirlineDataManager.format(airline));
+    }
+
+    /**
+     * Records that a plane has been added.
+     *
+     * @param plane the plane that was added.
+     * @return a future that completes once the record has been written.
+     * @throws FlightBookingSystemException if the record cannot be written.
+     */
+    public CompletableFuture<Void> logPlane(Plane plane) throws FlightBookingSystemException {
+        return append(PLANE, PlaneDataManager.format(plane));
+    }
+
+    /**
+     * Records that a flight has been added.
+     *
+     * @param flight the flight that was added.
+     * @return a future that completes once the record has been written.
+     * @throws FlightBookingSystemException if the record cannot be written.
+     */
+    public CompletableFuture<Void> logFlight(Flight flight) throws FlightBookingSystemException {
+        return append(FLIGHT, FlightDataManager.format(flight));
+    }
+
+    /**
+     * Records that a customer has been added.
+     *
+     * @param customer the customer that was added.
+     * @return a future that completes once the record has been written.
+     * @throws FlightBookingSystemException if the record cannot be written.
+     */
+    public CompletableFuture<Void> logCustomer(Customer customer) throws FlightBookingSystemException {
+        return append(CUSTOMER, CustomerDataManager.format(customer));
+    }
+
+    /**
+     * Records that a booking has been added.
+     *
+     * @param booking the booking that was added.
+     * @return a future that completes once the record has been written.
+     * @throws FlightBookingSystemException if the record cannot be written.
+     */
+    public CompletableFuture<Void> logBooking(Booking booking) throws FlightBookingSystemException {
+        return append(BOOKING, BookingDataManager.format(booking));
+    }
+
+    /**
+     * Records that a booking has been moved to another flight.
+     *
+     * @param booking the booking after it was updated.
+     * @return a future that completes once the record has been written.
+     * @throws FlightBookingSystemException if the record cannot be written.
+     */
+    public CompletableFuture<Void> logBookingEdit(Booking booking) throws FlightBookingSystemException {
+        return append(EDIT_BOOKING, BookingDataManager.format(booking));
+    }
+
+    /**
+     * Records that a booking has been cancelled.
+     *
+     * @param booking the booking that was cancelled.
+     * @return a future that completes once the record has been written.
+     * @throws FlightBookingSystemException if the record cannot be written.
+     */
+    public CompletableFuture<Void> logBookingCancel(Booking booking) throws FlightBookingSystemException {
+        return append(CANCEL_BOOKING, booking.getId() + SEPARATOR);
+    }
+
+    /**
+     * Records that a flight has been marked as removed.
+     *
+     * @param flight the flight that was removed.
+     * @return a future that completes once the record has been written.
+     * @throws FlightBookingSystemException if the record cannot be written.
+     */
+    public CompletableFuture<Void> logFlightRemoved(Flight flight) throws FlightBookingSystemException {
+        return append(REMOVE_FLIGHT, flight.getId() + SEPARATOR);
+    }
+
+    /**
+     * Records that a customer has been marked as removed.
+     *
+     * @param customer the customer that was removed.
+     * @return a future that completes once the record has been written.
+     * @throws FlightBookingSystemException if the record cannot be written.
+     */
+    public CompletableFuture<Void> logCustomerRemoved(Customer customer) throws FlightBookingSystemException {
+        return append(REMOVE_CUSTOMER, customer.getId() + SEPARATOR);
+    }
+
+    /**
+     * Moves the current journal aside so that a checkpoint can fold it into the data
+     * files while new records keep being appended to a fresh journal. If an earlier
+     * checkpoint did not finish, the current journal is added to the end of its segment.
+     *
+     * @throws IOException if the journal cannot be moved.
+     */
+    void rotate() throws IOException {
+        awaitFlush();
+        synchronized (this) {
+            moveToCheckpointSegment();
+        }
+    }
+
+    /**
+     * Renames the journal to the checkpoint segment, or appends it to the segment left by
+     * an unfinished checkpoint.
+     */
+    private void moveToCheckpointSegment() throws IOException {
+        close();
+        File journal = new File(RESOURCE);
+        File segment = new File(CHECKPOINT_RESOURCE);
+        if (journal.exists()) {
+            if (segment.exists()) {
+                try (FileOutputStream append = new FileOutputStream(segment, true)) {
+                    Files.copy(journal.toPath(), append);
+                }
+                Files.delete(journal.toPath());
+            } else if (!journal.renameTo(segment)) {
+                throw new IOException("Unable to rotate journal " + RESOURCE);
+            }
+        }
+        records = 0;
+    }
+
+    /**
+     * Replays the journal segment held by the current checkpoint into the Flight Booking System.
+     *
+     * @param fbs the Flight Booking System instance into which the segment will be replayed.
+     * @throws IOException if an I/O error occurs while reading the segment.
+     * @throws FlightBookingSystemException if a record cannot be parsed or applied.
+     * @throws CustomerException if a record refers to a customer that does not exist.
+     */
+    void replayCheckpointSegment(FlightBookingSystem fbs) throws IOException, FlightBookingSystemException, CustomerException {
+        replay(fbs, CHECKPOINT_RESOURCE);
+    }
+
+    /**
+     * Deletes the journal segment held by the current checkpoint once it has been
+     * written to the data files.
+     *
+     * @throws IOException if the segment cannot be deleted.
+     */
+    void deleteCheckpointSegment() throws IOException {
+        Files.deleteIfExists(new File(CHECKPOINT_RESOURCE).toPath());
+    }
+
+    /**
+     * Appends one record to the journal through the scheduler.
+     *
+     * @param type the record type.
+     * @param fields the fields of the changed entity, already joined by {@link DataManager#SEPARATOR}.
+     * @return a future that completes once the record has been written.
+     * @throws FlightBookingSystemException if the record was written on the caller's thread and failed.
+     */
+    private CompletableFuture<Void> append(String type, String fields) throws FlightBookingSystemException {
+        synchronized (this) {
+            records++;
+        }
+        String record = type + SEPARATOR + fields;
+        CRC32 crc = new CRC32();
+        crc.update(record.getBytes(StandardCharsets.UTF_8));
+        CompletableFuture<Void> done = scheduler.submit(Long.toHexString(crc.getValue()) + SEPARATOR + record);
+        if (done.isCompletedExceptionally()) {
+            try {
+                done.join();
+            } catch (CompletionException ex) {
+                throw new FlightBookingSystemException("Unable to write to journal " + RESOURCE + "\nError: " + ex.getCause());
+            }
+        }
+        return done;
+    }
+
+    /**
+     * Writes a batch of lines to the end of the journal. Called by the {@link PersistenceScheduler}.
+     *
+     * @param lines the lines to append.
+     * @param sync whether to sync the journal to disk after writing.
+     * @throws IOException if the lines cannot be written; the journal is then cut back to
+     *         where the batch started, so no torn line is left for later records to follow,
+     *         and closed.
+     */
+    synchronized void write(List<String> lines, boolean sync) throws IOException {
+        if (channel == null) {
+            channel = FileChannel.open(new File(RESOURCE).toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        long start = channel.size();
+        try {
+            if (!lines.isEmpty()) {
+                StringBuilder batch = new StringBuilder();
+                for (String line : lines) {
+                    batch.append(line).append(System.lineSeparator());
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(batch.toString().getBytes(StandardCharsets.UTF_8));
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            if (sync) {
+                channel.force(false);
+            }
+        } catch (IOException ex) {
+            try {
+                channel.truncate(start);
+            } catch (IOException truncateFailure) {
+                ex.addSuppressed(truncateFailure);
+            }
+            // Reopened by the next write, in case the channel itself is what failed
+            try {
+                close();
+            } catch (IOException closeFailure) {
+                ex.addSuppressed(closeFailure);
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Waits until every record appended so far has been written.
+     *
+     * @throws IOException if one of the records could not be written.
+     */
+    private void awaitFlush() throws IOException {
+        try {
+            scheduler.flush().join();
+        } catch (CompletionException ex) {
+            throw new IOException("Unable to flush journal " + RESOURCE, ex.getCause());
+        }
+    }
+
+    /**
+     * Closes the channel of the current journal, if it is open.
+     */
+    private void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * Replays every record of a journal file into the Flight Booking System. Damaged records
+     * at the end of the file are cut off it, so new records are appended after an intact one.
+     *
+     * @param fbs the Flight Booking System instance into which the records will be replayed.
+     * @param resource the journal file to replay.
+     * @return the number of records replayed.
+     */
+    private int replay(FlightBookingSystem fbs, String resource) throws IOException, FlightBookingSystemException, CustomerException {
+        File file = new File(resource);
+        if (!file.exists()) {
+            return 0;
+        }
+        byte[] data = Files.readAllBytes(file.toPath());
+        List<Entry> entries = ParallelDataLoader.parseLines(resource, data, REPLAY_CHUNK_BYTES, JournalDataManager::parseEntry);
+
+        int intact = entries.size();
+        // A last record without its line separator was cut short, even if its checksum matches
+        if (intact > 0 && lastLineBreak(data) < entries.get(intact - 1).offset()) {
+            intact--;
+        }
+        while (intact > 0 && entries.get(intact - 1).problem() != null) {
+            intact--;
+        }
+        for (int i = 0; i < intact; i++) {
+            Entry entry = entries.get(i);
+            if (entry.problem() != null) {
+                throw new FlightBookingSystemException("Damaged journal record on " + entry.problem() + " of " + resource);
+            }
+            apply(fbs, entry);
+        }
+        if (intact < entries.size()) {
+            int offset = entries.get(intact).offset();
+            System.err.println("Dropping " + (entries.size() - intact) + " incomplete record(s) at the end of " + resource);
+            try (FileChannel truncate = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+                truncate.truncate(offset);
+                truncate.force(false);
+            }
+        }
+        return intact;
+    }
+
+    /**
+     * Checks and parses one journal record. Records written before checksums were added
+     * start with their type and are accepted without a check.
+     *
+     * @return the parsed record, a damaged entry describing the problem, or null for an empty line.
+     */
+    private static Entry parseEntry(RecordReader in) {
+        if (in.isEmpty()) {
+            return null;
+        }
+        int offset = in.lineOffset();
+        try {
+            String type = in.nextString();
+            if (!TYPES.contains(type)) {
+                if (Long.parseLong(type, 16) != in.checksumOfRest()) {
+                    return new Entry(offset, null, 0, null, "line " + in.lineNumber() + ": checksum mismatch");
+                }
+                type = in.nextString();
+            }
+            in.mark();
+            int id = in.nextInt();
+            in.reset();
+            Object fields = switch (type) {
+                case AIRLINE -> AirlineDataManager.parse(in);
+                case PLANE -> PlaneDataManager.parseRecord(in);
+                case FLIGHT -> FlightDataManager.parseRecord(in);
+                case CUSTOMER -> CustomerDataManager.parse(in);
+                case BOOKING, EDIT_BOOKING -> BookingDataManager.parseRecord(in);
+                case CANCEL_BOOKING, REMOVE_FLIGHT, REMOVE_CUSTOMER -> null;
+                default -> throw new IllegalArgumentException("Unknown journal record type " + type);
+            };
+            return new Entry(offset, type, id, fields, null);
+        } catch (RuntimeException ex) {
+            return new Entry(offset, null, 0, null, "line " + in.lineNumber() + ": " + ex);
+        }
+    }
+
+    private static int lastLineBreak(byte[] data) {
+        int i = data.length - 1;
+        while (i >= 0 && data[i] != '\n') {
+            i--;
+        }
+        return i;
+    }
+
+    /**
+     * Applies a single journal record to the Flight Booking System. Records describing a
+     * change that is already present are skipped.
+     */
+    private void apply(FlightBookingSystem fbs, Entry entry) throws FlightBookingSystemException, CustomerException {
+        int id = entry.id();
+        switch (entry.type()) {
+            case AIRLINE:
+                if (!hasAirline(fbs, id)) {
+                    fbs.addAirline((Airline) entry.fields());
+                }
+                break;
+            case PLANE:
+                if (!hasPlane(fbs, id)) {
+                    fbs.addPlane(((PlaneDataManager.PlaneRecord) entry.fields()).link(fbs));
+                }
+                break;
+            case FLIGHT:
+                if (!hasFlight(fbs, id)) {
+                    fbs.addFlight(((FlightDataManager.FlightRecord) entry.fields()).link(fbs));
+                }
+                break;
+            case CUSTOMER:
+                if (!hasCustomer(fbs, id)) {
+                    fbs.addCustomer((Customer) entry.fields());
+                }
+                break;
+            case BOOKING:
+                if (!hasBooking(fbs, id)) {
+                    Booking booking = ((BookingDataManager.BookingRecord) entry.fields()).link(fbs);
+                    booking.getCustomer().addBooking(booking);
+                    booking.getFlight().addPassenger(booking.getCustomer());
+                    fbs.addBooking(booking);
+                }
+                break;
+            case EDIT_BOOKING:
+                if (hasBooking(fbs, id)) {
+                    Booking booking = fbs.getBookingByID(id);
+                    BookingDataManager.BookingRecord edit = (BookingDataManager.BookingRecord) entry.fields();
+                    Flight flight = fbs.getFlightByID(edit.flightId());
+                    booking.getFlight().removePassenger(booking.getCustomer());
+                    booking.updateBooking(flight, edit.seat());
+                    booking.setBookingDate(edit.date());
+                    booking.setPrice(edit.price());
+                    flight.addPassenger(booking.getCustomer());
+                }
+                break;
+            case CANCEL_BOOKING:
+                if (hasBooking(fbs, id)) {
+                    Booking booking = fbs.getBookingByID(id);
+                    fbs.cancelBooking(booking);
+                    booking.getCustomer().cancelBooking(booking);
+                    booking.getFlight().removePassenger(booking.getCustomer());
+                }
+                break;
+            case REMOVE_FLIGHT:
+                fbs.getFlightByID(id).removeFlight();
+                break;
+            case REMOVE_CUSTOMER:
+                fbs.getCustomerByID(id).removeCustomer();
+                break;
+            default:
+                throw new FlightBookingSystemException("Unknown journal record type " + entry.type());
+        }
+    }
+
+    private static boolean hasAirline(FlightBookingSystem fbs, int id) {
+        try {
+            fbs.getAirlineByID(id);
+            return true;
+        } catch (FlightBookingSystemException ex) {
+            return false;
+        }
+    }
+
+    private static boolean hasPlane(FlightBookingSystem fbs, int id) {
+        try {
+            fbs.getPlaneByID(id);
+            return true;
+        } catch (FlightBookingSystemException ex) {
+            return false;
+        }
+    }
+
+    private static boolean hasFlight(FlightBookingSystem fbs, int id) {
+        try {
+            fbs.getFlightByID(id);
+            return true;
+        } catch (FlightBookingSystemException ex) {
+            return false;
+        }
+    }
+
+    private static boolean hasCustomer(FlightBookingSystem fbs, int id) {
+        try {
+            fbs.getCustomerByID(id);
+            return true;
+        } catch (CustomerException ex) {
+            return false;
+        }
+    }
+
+    private static boolean hasBooking(FlightBookingSystem fbs, int id) {
+        try {
+            fbs.getBookingByID(id);
+            return true;
+        } catch (FlightBookingSystemException ex) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package bcu.cmp5332.bookingsystem.data;
+
+import bcu.cmp5332.bookingsystem.main.CustomerException;
+import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
+import bcu.cmp5332.bookingsystem.model.Airline;
+import bcu.cmp5332.bookingsystem.model.Booking;
+import bcu.cmp5332.bookingsystem.model.Customer;
+import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The ParallelDataLoader class loads the five text data files in two phases.
+ *
+ * <p>In the first phase every file is read and parsed on the common fork-join pool, all
+ * files at the same time, with large files split at line boundaries into chunks that are
+ * parsed in parallel by {@link RecordReader}s over the file's bytes. Lines are parsed into records that still refer to other entities by id, so no
+ * file has to wait for another. In the second phase the records are linked and added to
+ * the system in dependency order: airlines, planes, flights, customers and then bookings.</p>
+ *
+ * @version 1.0
+ *
+ */
+final class ParallelDataLoader {
+
+    /**
+     * Number of bytes parsed by one task before a file is split further.
+     */
+    private static final int CHUNK_BYTES = 1 << 20;
+
+    private ParallelDataLoader() {
+    }
+
+    /**
+     * Loads the text data files into the Flight Booking System.
+     *
+     * @param fbs the Flight Booking System instance into which data will be loaded.
+     * @throws IOException if an I/O error occurs while reading a data file.
+     * @throws FlightBookingSystemException if a line cannot be parsed or refers to a plane, flight or airline that does not exist.
+     * @throws CustomerException if a customer or booking line cannot be parsed or a booking refers to a customer that does not exist.
+     */
+    static void load(FlightBookingSystem fbs) throws IOException, FlightBookingSystemException, CustomerException {
+        load(fbs, List.of(FlightDataManager.RESOURCE), List.of(BookingDataManager.RESOURCE));
+    }
+
+    /**
+     * Loads the airline, plane and customer data files, and the flights and bookings held
+     * in the given files, into the Flight Booking System.
+     *
+     * @param fbs the Flight Booking System instance into which data will be loaded.
+     * @param flightFiles the files holding the flights to load, in id order.
+     * @param bookingFiles the files holding the bookings to load, in id order.
+     * @throws IOException if an I/O error occurs while reading a data file.
+     * @throws FlightBookingSystemException if a line cannot be parsed or refers to a plane, flight or airline that does not exist.
+     * @throws CustomerException if a customer or booking line cannot be parsed or a booking refers to a customer that does not exist.
+     */
+    static void load(FlightBookingSystem fbs, List<String> flightFiles, List<String> bookingFiles)
+            throws IOException, FlightBookingSystemException, CustomerException {
+        load(fbs, true, flightFiles, bookingFiles);
+    }
+
+    /**
+     * Loads only the flights and bookings held in the given files into a Flight Booking
+     * System whose airlines, planes and customers have already been loaded.
+     *
+     * @param fbs the Flight Booking System instance into which data will be loaded.
+     * @param flightFiles the files holding the flights to load.
+     * @param bookingFiles the files holding the bookings to load.
+     * @throws IOException if an I/O error occurs while reading a data file.
+     * @throws FlightBookingSystemException if a line cannot be parsed or refers to a plane or flight that does not exist.
+     * @throws CustomerException if a booking line cannot be parsed or refers to a customer that does not exist.
+     */
+    static void loadFlightsAndBookings(FlightBookingSystem fbs, List<String> flightFiles, List<String> bookingFiles)
+            throws IOException, FlightBookingSystemException, CustomerException {
+        load(fbs, false, flightFiles, bookingFiles);
+    }
+
+    private static void load(FlightBookingSystem fbs, boolean withReferenceData, List<String> flightFiles, List<String> bookingFiles)
+            throws IOException, FlightBookingSystemException, CustomerException {
+        List<String> airlineFiles = withReferenceData ? List.of(AirlineDataManager.RESOURCE) : List.of();
+        List<String> planeFiles = withReferenceData ? List.of(PlaneDataManager.RESOURCE) : List.of();
+        List<String> customerFiles = withReferenceData ? List.of(CustomerDataManager.RESOURCE) : List.of();
+        FileTask<Airline> airlines = new FileTask<>(airlineFiles, "airline",
+                AirlineDataManager::parse, FlightBookingSystemException::new, CHUNK_BYTES);
+        FileTask<PlaneDataManager.PlaneRecord> planes = new FileTask<>(planeFiles, "plane",
+                PlaneDataManager::parseRecord, FlightBookingSystemException::new, CHUNK_BYTES);
+        FileTask<FlightDataManager.FlightRecord> flights = new FileTask<>(flightFiles, "flight",
+                FlightDataManager::parseRecord, FlightBookingSystemException::new, CHUNK_BYTES);
+        FileTask<Customer> customers = new FileTask<>(customerFiles, "customer",
+                CustomerDataManager::parse, CustomerException::new, CHUNK_BYTES);
+        FileTask<BookingDataManager.BookingRecord> bookings = new FileTask<>(bookingFiles, "booking",
+                BookingDataManager::parseRecord, CustomerException::new, CHUNK_BYTES);
+
+        try {
+            ForkJoinPool.commonPool().invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(airlines, planes, flights, customers, bookings);
+                }
+            });
+        } catch (ParseFailure ex) {
+            if (ex.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (ex.getCause() instanceof CustomerException customerException) {
+                throw customerException;
+            }
+            throw (FlightBookingSystemException) ex.getCause();
+        }
+
+        for (Airline airline : airlines.join()) {
+            fbs.addAirline(airline);
+        }
+        for (PlaneDataManager.PlaneRecord plane : planes.join()) {
+            fbs.addPlane(plane.link(fbs));
+        }
+        for (FlightDataManager.FlightRecord flight : flights.join()) {
+            fbs.addFlight(flight.link(fbs));
+        }
+        for (Customer customer : customers.join()) {
+            fbs.addCustomer(customer);
+        }
+        for (BookingDataManager.BookingRecord record : bookings.join()) {
+            Booking booking = record.link(fbs);
+            booking.getCustomer().addBooking(booking);
+            booking.getFlight().addPassenger(booking.getCustomer());
+            fbs.addBooking(booking);
+        }
+    }
+
+    /**
+     * Parses the lines of a file that has already been read, splitting it into chunks of
+     * about {@code chunkBytes} bytes that are parsed in parallel. The records are returned
+     * in file order.
+     *
+     * @param resource the path the bytes were read from, for error messages.
+     * @param data the bytes of the whole file.
+     * @param chunkBytes the number of bytes parsed by one task before the file is split further.
+     * @param parser parses one line; it may return null to skip the line.
+     * @return the parsed records.
+     * @throws FlightBookingSystemException if a line cannot be parsed.
+     */
+    static <T> List<T> parseLines(String resource, byte[] data, int chunkBytes, LineParser<T> parser) throws FlightBookingSystemException {
+        FileTask<T> file = new FileTask<>(List.of(resource), "record", parser, FlightBookingSystemException::new, chunkBytes);
+        try {
+            return ForkJoinPool.commonPool().invoke(new ChunkTask<>(file, data, 0, data.length));
+        } catch (ParseFailure ex) {
+            throw (FlightBookingSystemException) ex.getCause();
+        }
+    }
+
+    /**
+     * Parses the fields of one line of a data file.
+     */
+    @FunctionalInterface
+    interface LineParser<T> {
+        T parse(RecordReader in);
+    }
+
+    /**
+     * Creates the exception reported for a line that cannot be parsed.
+     */
+    @FunctionalInterface
+    private interface ErrorFactory {
+        Exception create(String message);
+    }
+
+    /**
+     * Carries a read or parse error out of a fork-join task. It has no public constructor,
+     * so the pool rethrows the original instance rather than a copy.
+     */
+    private static class ParseFailure extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private ParseFailure(Exception cause) {
+            super(cause);
+        }
+    }
+
+    /**
+     * Reads data files and parses their lines. Several files are read in parallel and
+     * their records returned in the order the files were given.
+     */
+    private static class FileTask<T> extends RecursiveTask<List<T>> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient List<String> resources;
+        private final String entity;
+        private final transient LineParser<T> parser;
+        private final transient ErrorFactory error;
+        private final int chunkBytes;
+
+        private FileTask(List<String> resources, String entity, LineParser<T> parser, ErrorFactory error, int chunkBytes) {
+            this.resources = resources;
+            this.entity = entity;
+            this.parser = parser;
+            this.error = error;
+            this.chunkBytes = chunkBytes;
+        }
+
+        @Override
+        protected List<T> compute() {
+            if (resources.size() != 1) {
+                List<FileTask<T>> files = new ArrayList<>();
+                for (String resource : resources) {
+                    files.add(new FileTask<>(List.of(resource), entity, parser, error, chunkBytes));
+                }
+                List<T> records = new ArrayList<>();
+                for (FileTask<T> file : invokeAll(files)) {
+                    records.addAll(file.join());
+                }
+                return records;
+            }
+            byte[] data;
+            try {
+                data = Files.readAllBytes(Path.of(resources.get(0)));
+            } catch (IOException ex) {
+                throw new ParseFailure(ex);
+            }
+            return new ChunkTask<>(this, data, 0, data.length).compute();
+        }
+    }
+
+    /**
+     * Parses a range of bytes of a data file, splitting it in two at a line boundary while
+     * it is larger than the file's chunk size. The records are returned in file order.
+     */
+    private static class ChunkTask<T> extends RecursiveTask<List<T>> {
+        private static final long serialVersionUID = 1L;
+
+        private final FileTask<T> file;
+        private final byte[] data;
+        private final int from;
+        private final int to;
+
+        private ChunkTask(FileTask<T> file, byte[] data, int from, int to) {
+            this.file = file;
+            this.data = data;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<T> compute() {
+            int middle = (from + to + 1) >>> 1;
+            while (middle < to && data[middle - 1] != '\n') {
+                middle++;
+            }
+            if (to - from > file.chunkBytes && middle < to) {
+                ChunkTask<T> left = new ChunkTask<>(file, data, from, middle);
+                left.fork();
+                List<T> right = new ChunkTask<>(file, data, middle, to).compute();
+                List<T> records = left.join();
+                records.addAll(right);
+                return records;
+            }
+            List<T> records = new ArrayList<>();
+            RecordReader in = new RecordReader(data, from, to);
+            while (in.nextLine()) {
+                try {
+                    T record = file.parser.parse(in);
+                    if (record != null) {
+                        records.add(record);
+                    }
+                } catch (NumberFormatException ex) {
+                    throw new ParseFailure(file.error.create("Unable to parse " + file.entity + " id " + in.firstField()
+                            + " on line " + in.lineNumber() + " of " + file.resources.get(0) + "\nError: " + ex));
+                }
+            }
+            return records;
+        }
+    }
+}
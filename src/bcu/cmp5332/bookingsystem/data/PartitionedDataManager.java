@@ -0,0 +1,408 @@
+package bcu.cmp5332.bookingsystem.data;
+
+import bcu.cmp5332.bookingsystem.main.CustomerException;
+import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
+import bcu.cmp5332.bookingsystem.model.Booking;
+import bcu.cmp5332.bookingsystem.model.EntityType;
+import bcu.cmp5332.bookingsystem.model.Flight;
+import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+/**
+ * The PartitionedDataManager class stores flights and bookings in one file per departure
+ * month, such as {@code flights/2024-06.seg} and {@code bookings/2024-06.seg}. A booking is
+ * stored in the month of its flight's departure, so a flight and its passengers always
+ * share a partition.
+ *
+ * <p>Only the partitions of the current and future months are loaded with the rest of
+ * the system. Past months are loaded the first time they are needed: all of them when a
+ * report or view asks the system for its history, and only the months that may hold it
+ * when a record is looked up by ID. A manifest, {@code partitions.txt}, records the
+ * highest flight and booking ID of every month, so new IDs can be chosen, and the months
+ * a lookup has to read can be told apart, without loading the past months.</p>
+ *
+ * <p>One instance is created for each loaded system and acts as its
+ * {@link FlightBookingSystem.HistoryLoader}. It remembers which partition every loaded
+ * record was read from, so storing only rewrites the partitions a changed record was
+ * read from or now belongs to.</p>
+ *
+ * @version 1.0
+ *
+ */
+public class PartitionedDataManager implements DataManager, FlightBookingSystem.HistoryLoader {
+
+    static final String FLIGHTS_DIRECTORY = "./resources/data/flights";
+    static final String BOOKINGS_DIRECTORY = "./resources/data/bookings";
+    static final String MANIFEST = "./resources/data/partitions.txt";
+    private static final String EXTENSION = ".seg";
+
+    private final Map<Integer, YearMonth> flightMonths = new HashMap<>();
+    private final Map<Integer, YearMonth> bookingMonths = new HashMap<>();
+    private final SortedMap<YearMonth, int[]> highestIds = new TreeMap<>();
+    private final SortedSet<YearMonth> history = new TreeSet<>();
+
+    /**
+     * Checks whether flights and bookings have been written as partitions.
+     *
+     * @return true if the partition directory exists, false otherwise.
+     */
+    public static boolean exists() {
+        return new File(FLIGHTS_DIRECTORY).isDirectory();
+    }
+
+    /**
+     * Loads the airlines, planes and customers, and the flights and bookings of the
+     * current and future months, into the Flight Booking System. The past months are
+     * left to {@link #loadHistory(FlightBookingSystem)}.
+     *
+     * @param fbs the Flight Booking System instance into which data will be loaded.
+     * @throws IOException if an I/O error occurs during data loading.
+     * @throws FlightBookingSystemException if a record cannot be parsed or refers to a record that does not exist.
+     * @throws CustomerException if a customer or booking record cannot be parsed or refers to a customer that does not exist.
+     */
+    @Override
+    public void loadData(FlightBookingSystem fbs) throws IOException, FlightBookingSystemException, CustomerException {
+        readManifest();
+        YearMonth current = YearMonth.from(fbs.getSystemDate());
+        List<YearMonth> active = new ArrayList<>();
+        for (YearMonth month : storedMonths()) {
+            // A past month missing from the manifest is loaded now, since its highest IDs are unknown
+            if (month.isBefore(current) && highestIds.containsKey(month)) {
+                history.add(month);
+            } else {
+                active.add(month);
+            }
+        }
+        ParallelDataLoader.load(fbs, segments(FLIGHTS_DIRECTORY, active), segments(BOOKINGS_DIRECTORY, active));
+        track(fbs, active);
+        fbs.setHistoryLoader(this);
+    }
+
+    /**
+     * Loads the flights and bookings of the past months not loaded yet into the Flight
+     * Booking System.
+     *
+     * @param fbs the Flight Booking System instance into which data will be loaded.
+     * @throws FlightBookingSystemException if a partition cannot be read or parsed.
+     */
+    @Override
+    public void loadHistory(FlightBookingSystem fbs) throws FlightBookingSystemException {
+        load(fbs, new ArrayList<>(history));
+    }
+
+    /**
+     * Loads the past months that may hold a flight or booking. A month may hold the ID if
+     * its highest ID of that type is at least as high. IDs grow as records are added, so
+     * the month with the lowest such highest ID is read first, and the search stops at
+     * the month the record turns up in.
+     *
+     * @param fbs the Flight Booking System instance into which data will be loaded.
+     * @param type the type of the record looked up.
+     * @param id the ID of the record looked up.
+     * @return true if every past month has now been loaded, false otherwise.
+     * @throws FlightBookingSystemException if a partition cannot be read or parsed.
+     */
+    @Override
+    public boolean loadHistory(FlightBookingSystem fbs, EntityType type, int id) throws FlightBookingSystemException {
+        int index = index(type);
+        if (index >= 0) {
+            List<YearMonth> candidates = new ArrayList<>();
+            for (YearMonth month : history) {
+                if (highestIds.get(month)[index] >= id) {
+                    candidates.add(month);
+                }
+            }
+            candidates.sort(Comparator.comparingInt(month -> highestIds.get(month)[index]));
+            for (YearMonth month : candidates) {
+                if (load(fbs, List.of(month)).get(type).contains(id)) {
+                    break;
+                }
+            }
+        }
+        return history.isEmpty();
+    }
+
+    /**
+     * Loads the given past months and takes them out of the history.
+     *
+     * @return the IDs of the flights and bookings of those months.
+     */
+    private Map<EntityType, List<Integer>> load(FlightBookingSystem fbs, List<YearMonth> months) throws FlightBookingSystemException {
+        try {
+            ParallelDataLoader.loadFlightsAndBookings(fbs, segments(FLIGHTS_DIRECTORY, months), segments(BOOKINGS_DIRECTORY, months));
+        } catch (IOException | CustomerException ex) {
+            throw new FlightBookingSystemException("Unable to load past flights and bookings.\nError: " + ex);
+        }
+        // The past records are as they were stored, so they must not be written again
+        Map<EntityType, List<Integer>> loaded = track(fbs, months);
+        fbs.clearDirty(EntityType.FLIGHT, loaded.get(EntityType.FLIGHT));
+        fbs.clearDirty(EntityType.BOOKING, loaded.get(EntityType.BOOKING));
+        history.removeAll(months);
+        return loaded;
+    }
+
+    /**
+     * Gets the highest flight or booking ID stored in a past month that has not been loaded.
+     *
+     * @param type the type of record.
+     * @return the highest ID, or 0 if there is none.
+     */
+    @Override
+    public int getHighestId(EntityType type) {
+        int index = index(type);
+        if (index < 0) {
+            return 0;
+        }
+        int highest = 0;
+        for (YearMonth month : history) {
+            highest = Math.max(highest, highestIds.get(month)[index]);
+        }
+        return highest;
+    }
+
+    /**
+     * Rewrites the partitions holding a flight or booking that changed since the last
+     * load or store, and the manifest. A past month is loaded first if a changed record
+     * belongs to it, so it is never rewritten without its other records.
+     *
+     * @param fbs the Flight Booking System instance from which data will be stored.
+     * @throws IOException if an I/O error occurs during data storage.
+     */
+    @Override
+    public void storeData(FlightBookingSystem fbs) throws IOException {
+        Set<Integer> dirtyFlights = fbs.getDirtyIds(EntityType.FLIGHT);
+        Set<Integer> dirtyBookings = fbs.getDirtyIds(EntityType.BOOKING);
+
+        Map<YearMonth, List<Flight>> flights = new TreeMap<>();
+        Map<YearMonth, List<Booking>> bookings = new TreeMap<>();
+        SortedSet<YearMonth> changed = new TreeSet<>();
+        for (Flight flight : fbs.getFlightsView()) {
+            YearMonth month = YearMonth.from(flight.getDepartureDate());
+            flights.computeIfAbsent(month, key -> new ArrayList<>()).add(flight);
+            if (dirtyFlights.contains(flight.getId())) {
+                changed.add(month);
+            }
+        }
+        for (Booking booking : fbs.getBookingsView()) {
+            YearMonth month = YearMonth.from(booking.getFlight().getDepartureDate());
+            bookings.computeIfAbsent(month, key -> new ArrayList<>()).add(booking);
+            if (dirtyBookings.contains(booking.getId())) {
+                changed.add(month);
+            }
+        }
+        // The partitions the changed records were read from, including moved and cancelled ones
+        for (int id : dirtyFlights) {
+            addIfPresent(changed, flightMonths.get(id));
+        }
+        for (int id : dirtyBookings) {
+            addIfPresent(changed, bookingMonths.get(id));
+        }
+        if (changed.isEmpty()) {
+            return;
+        }
+        List<YearMonth> unloaded = new ArrayList<>();
+        for (YearMonth month : changed) {
+            if (history.contains(month)) {
+                unloaded.add(month);
+            }
+        }
+        if (!unloaded.isEmpty()) {
+            try {
+                load(fbs, unloaded);
+            } catch (FlightBookingSystemException ex) {
+                throw new IOException(ex.getMessage(), ex);
+            }
+            storeData(fbs);
+            return;
+        }
+        write(changed, flights, bookings);
+        for (int id : dirtyBookings) {
+            bookingMonths.remove(id);
+        }
+        for (YearMonth month : changed) {
+            for (Flight flight : flights.getOrDefault(month, List.of())) {
+                flightMonths.put(flight.getId(), month);
+            }
+            for (Booking booking : bookings.getOrDefault(month, List.of())) {
+                bookingMonths.put(booking.getId(), month);
+            }
+        }
+    }
+
+    /**
+     * Writes every flight and booking of the Flight Booking System as partitions, replacing
+     * the single flights and bookings data files. Used the first time a system loaded from
+     * those files is stored.
+     *
+     * @param fbs the Flight Booking System instance from which data will be stored.
+     * @throws IOException if an I/O error occurs during data storage.
+     */
+    void storeAll(FlightBookingSystem fbs) throws IOException {
+        Map<YearMonth, List<Flight>> flights = new TreeMap<>();
+        Map<YearMonth, List<Booking>> bookings = new TreeMap<>();
+        for (Flight flight : fbs.getFlightsView()) {
+            flights.computeIfAbsent(YearMonth.from(flight.getDepartureDate()), key -> new ArrayList<>()).add(flight);
+        }
+        for (Booking booking : fbs.getBookingsView()) {
+            bookings.computeIfAbsent(YearMonth.from(booking.getFlight().getDepartureDate()), key -> new ArrayList<>()).add(booking);
+        }
+        SortedSet<YearMonth> months = new TreeSet<>(flights.keySet());
+        months.addAll(bookings.keySet());
+        months.addAll(storedMonths());
+        write(months, flights, bookings);
+        track(fbs, new ArrayList<>(months));
+        Files.deleteIfExists(Path.of(FlightDataManager.RESOURCE));
+        Files.deleteIfExists(Path.of(BookingDataManager.RESOURCE));
+    }
+
+    /**
+     * Rewrites the given months from the grouped records, then the manifest.
+     */
+    private void write(SortedSet<YearMonth> months, Map<YearMonth, List<Flight>> flights, Map<YearMonth, List<Booking>> bookings) throws IOException {
+        Files.createDirectories(Path.of(FLIGHTS_DIRECTORY));
+        Files.createDirectories(Path.of(BOOKINGS_DIRECTORY));
+        for (YearMonth month : months) {
+            List<Flight> monthFlights = flights.getOrDefault(month, List.of());
+            List<Booking> monthBookings = bookings.getOrDefault(month, List.of());
+            writeSegment(segment(FLIGHTS_DIRECTORY, month), monthFlights, FlightDataManager::format);
+            writeSegment(segment(BOOKINGS_DIRECTORY, month), monthBookings, BookingDataManager::format);
+            if (monthFlights.isEmpty() && monthBookings.isEmpty()) {
+                highestIds.remove(month);
+            } else {
+                int highestFlight = monthFlights.isEmpty() ? 0 : monthFlights.get(monthFlights.size() - 1).getId();
+                int highestBooking = monthBookings.isEmpty() ? 0 : monthBookings.get(monthBookings.size() - 1).getId();
+                highestIds.put(month, new int[] {highestFlight, highestBooking});
+            }
+        }
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<YearMonth, int[]> entry : highestIds.entrySet()) {
+            lines.add(entry.getKey() + SEPARATOR + entry.getValue()[0] + SEPARATOR + entry.getValue()[1] + SEPARATOR);
+        }
+        AtomicFile.writeLines(MANIFEST, lines, Function.identity());
+    }
+
+    private static <T> void writeSegment(String resource, List<T> records, Function<T, String> format) throws IOException {
+        if (records.isEmpty()) {
+            Files.deleteIfExists(Path.of(resource));
+        } else {
+            AtomicFile.writeLines(resource, records, format);
+        }
+    }
+
+    /**
+     * Remembers the partition every loaded flight and booking of the given months was read from.
+     *
+     * @return the IDs of the flights and bookings of those months.
+     */
+    private Map<EntityType, List<Integer>> track(FlightBookingSystem fbs, List<YearMonth> months) {
+        Set<YearMonth> loaded = new HashSet<>(months);
+        Map<EntityType, List<Integer>> ids = Map.of(EntityType.FLIGHT, new ArrayList<>(), EntityType.BOOKING, new ArrayList<>());
+        for (Flight flight : fbs.getFlightsView()) {
+            YearMonth month = YearMonth.from(flight.getDepartureDate());
+            if (loaded.contains(month)) {
+                flightMonths.put(flight.getId(), month);
+                ids.get(EntityType.FLIGHT).add(flight.getId());
+            }
+        }
+        for (Booking booking : fbs.getBookingsView()) {
+            YearMonth month = YearMonth.from(booking.getFlight().getDepartureDate());
+            if (loaded.contains(month)) {
+                bookingMonths.put(booking.getId(), month);
+                ids.get(EntityType.BOOKING).add(booking.getId());
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Reads the highest IDs of every month from the manifest, if it exists.
+     */
+    private void readManifest() throws IOException, FlightBookingSystemException {
+        if (!new File(MANIFEST).exists()) {
+            return;
+        }
+        RecordReader in = RecordReader.open(MANIFEST);
+        while (in.nextLine()) {
+            if (in.isEmpty()) {
+                continue;
+            }
+            try {
+                YearMonth month = YearMonth.parse(in.nextString());
+                highestIds.put(month, new int[] {in.nextInt(), in.nextInt()});
+            } catch (NumberFormatException | DateTimeParseException ex) {
+                throw new FlightBookingSystemException("Unable to parse partition " + in.firstField() + " on line " + in.lineNumber()
+                        + " of " + MANIFEST + "\nError: " + ex);
+            }
+        }
+    }
+
+    /**
+     * Lists the months that have a flight or booking partition on disk.
+     */
+    private static SortedSet<YearMonth> storedMonths() {
+        SortedSet<YearMonth> months = new TreeSet<>();
+        for (String directory : new String[] {FLIGHTS_DIRECTORY, BOOKINGS_DIRECTORY}) {
+            String[] names = new File(directory).list();
+            if (names == null) {
+                continue;
+            }
+            for (String name : names) {
+                if (name.endsWith(EXTENSION)) {
+                    try {
+                        months.add(YearMonth.parse(name.substring(0, name.length() - EXTENSION.length())));
+                    } catch (DateTimeParseException ex) {
+                        // Not a partition
+                    }
+                }
+            }
+        }
+        return months;
+    }
+
+    private static List<String> segments(String directory, List<YearMonth> months) {
+        List<String> resources = new ArrayList<>();
+        for (YearMonth month : months) {
+            String resource = segment(directory, month);
+            if (new File(resource).exists()) {
+                resources.add(resource);
+            }
+        }
+        return resources;
+    }
+
+    private static String segment(String directory, YearMonth month) {
+        return directory + "/" + month + EXTENSION;
+    }
+
+    /**
+     * Gets the position of a type's highest ID in the manifest, or -1 for types that are
+     * not partitioned.
+     */
+    private static int index(EntityType type) {
+        return type == EntityType.FLIGHT ? 0 : type == EntityType.BOOKING ? 1 : -1;
+    }
+
+    private static void addIfPresent(Set<YearMonth> months, YearMonth month) {
+        if (month != null) {
+            months.add(month);
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package bcu.cmp5332.bookingsystem.data;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The PersistenceScheduler class batches the records written to the journal.
+ *
+ * <p>Records submitted by the command line and by the GUI windows are queued and written
+ * by a single thread, so several changes made close together share one write and one
+ * fsync. Every record and every flush request returns a future that completes once the
+ * record has been written with the configured {@link Durability}, so callers only wait
+ * for the disk when they need to. Only an explicit {@link #flush()} cuts the group commit
+ * interval short or forces a sync in {@link Durability#ASYNC} mode; callers that just want
+ * to know when their records are written wait for the {@link #nextWrite() next write}.</p>
+ *
+ * <p>A batch that cannot be written is left out of the journal and its futures fail. The
+ * records that follow it may depend on it, so until a {@link #flush()} gets through to
+ * the disk again, new records are refused rather than written after the gap.</p>
+ *
+ * @version 1.0
+ *
+ */
+public class PersistenceScheduler {
+
+    /**
+     * How long a caller's change may stay in memory before it is written and synced to disk.
+     */
+    public enum Durability {
+        /**
+         * Every record is written and synced on the caller's thread before the command returns.
+         */
+        SYNC,
+        /**
+         * Records are collected for a short interval and written with a single sync.
+         */
+        GROUP,
+        /**
+         * Records are written as soon as possible but only synced when a flush is requested.
+         */
+        ASYNC
+    }
+
+    /**
+     * A record waiting to be written, or a marker if it has no line: a flush request, or a
+     * request to be told when the next write completes.
+     */
+    private static class Pending {
+        private final String line;
+        private final boolean flush;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        private Pending(String line, boolean flush) {
+            this.line = line;
+            this.flush = flush;
+        }
+    }
+
+    private final JournalDataManager journal;
+    private final Object lock = new Object();
+    private final Object writeLock = new Object();
+    private List<Pending> queue = new ArrayList<>();
+    private boolean flushRequested;
+    private Thread writer;
+    private Throwable failure;
+
+    private volatile Durability durability;
+    private volatile long groupCommitMillis;
+
+    /**
+     * Creates a scheduler that writes to the given journal.
+     *
+     * @param journal the journal the batched records are written to.
+     * @param durability the initial durability mode.
+     * @param groupCommitMillis the interval used to collect records in {@link Durability#GROUP} mode.
+     */
+    PersistenceScheduler(JournalDataManager journal, Durability durability, long groupCommitMillis) {
+        this.journal = journal;
+        setDurability(durability, groupCommitMillis);
+    }
+
+    /**
+     * Changes the durability mode. Records already queued are written with the new mode.
+     *
+     * @param durability the new durability mode.
+     * @param groupCommitMillis the interval used to collect records in {@link Durability#GROUP} mode.
+     */
+    public void setDurability(Durability durability, long groupCommitMillis) {
+        if (groupCommitMillis < 0) {
+            throw new IllegalArgumentException("Group commit interval should not be negative");
+        }
+        this.durability = durability;
+        this.groupCommitMillis = groupCommitMillis;
+        if (durability == Durability.SYNC) {
+            drain();
+        }
+    }
+
+    /**
+     * Gets the current durability mode.
+     *
+     * @return the current durability mode.
+     */
+    public Durability getDurability() {
+        return durability;
+    }
+
+    /**
+     * Queues one journal line to be written.
+     *
+     * @param line the line to append to the journal.
+     * @return a future that completes once the line has been written with the current durability.
+     */
+    CompletableFuture<Void> submit(String line) {
+        return enqueue(new Pending(line, false));
+    }
+
+    /**
+     * Requests that everything submitted so far is written and synced to disk.
+     *
+     * @return a future that completes once every earlier record is durable.
+     */
+    public CompletableFuture<Void> flush() {
+        return enqueue(new Pending(null, true));
+    }
+
+    /**
+     * Waits for everything submitted so far to be written by the next scheduled write,
+     * without cutting the group commit interval short or forcing a sync.
+     *
+     * @return a future that completes once every earlier record has been written with the
+     *         current durability.
+     */
+    public CompletableFuture<Void> nextWrite() {
+        return enqueue(new Pending(null, false));
+    }
+
+    private CompletableFuture<Void> enqueue(Pending pending) {
+        synchronized (lock) {
+            if (failure != null && !pending.flush) {
+                pending.done.completeExceptionally(failure);
+                return pending.done;
+            }
+            queue.add(pending);
+            if (pending.flush) {
+                flushRequested = true;
+            }
+            lock.notifyAll();
+        }
+        if (durability == Durability.SYNC) {
+            drain();
+        } else {
+            startWriter();
+        }
+        return pending.done;
+    }
+
+    private void startWriter() {
+        synchronized (lock) {
+            if (writer == null) {
+                writer = new Thread(this::runWriter, "persistence-writer");
+                writer.setDaemon(true);
+                writer.start();
+            }
+        }
+    }
+
+    /**
+     * Body of the writer thread. In group mode it waits for the commit interval after the
+     * first queued record, unless a flush is requested, so later records join the same batch.
+     */
+    private void runWriter() {
+        try {
+            while (true) {
+                synchronized (lock) {
+                    while (queue.isEmpty()) {
+                        lock.wait();
+                    }
+                    if (durability == Durability.GROUP) {
+                        long deadline = System.currentTimeMillis() + groupCommitMillis;
+                        long remaining = groupCommitMillis;
+                        while (!flushRequested && remaining > 0) {
+                            lock.wait(remaining);
+                            remaining = deadline - System.currentTimeMillis();
+                        }
+                    }
+                }
+                drain();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // Let the next record start a new writer instead of waiting on this one
+            synchronized (lock) {
+                if (writer == Thread.currentThread()) {
+                    writer = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes every queued record in one batch and completes their futures.
+     * Runs on the writer thread, or on the caller's thread in {@link Durability#SYNC} mode.
+     */
+    private void drain() {
+        synchronized (writeLock) {
+            List<Pending> batch;
+            boolean sync;
+            boolean flush;
+            synchronized (lock) {
+                if (queue.isEmpty()) {
+                    return;
+                }
+                batch = queue;
+                queue = new ArrayList<>();
+                flush = flushRequested;
+                sync = durability != Durability.ASYNC || flush;
+                flushRequested = false;
+            }
+            List<String> lines = new ArrayList<>(batch.size());
+            for (Pending pending : batch) {
+                if (pending.line != null) {
+                    lines.add(pending.line);
+                }
+            }
+            try {
+                journal.write(lines, sync);
+            } catch (IOException | RuntimeException ex) {
+                fail(batch, ex);
+                return;
+            } catch (Error error) {
+                fail(batch, error);
+                throw error;
+            }
+            if (flush) {
+                synchronized (lock) {
+                    failure = null;
+                }
+            }
+            for (Pending pending : batch) {
+                pending.done.complete(null);
+            }
+        }
+    }
+
+    /**
+     * Fails a batch that could not be written, along with every record queued behind it,
+     * and refuses new records until a flush succeeds. Flush requests stay queued, since
+     * one of them is what lets the scheduler accept records again.
+     */
+    private void fail(List<Pending> batch, Throwable cause) {
+        List<Pending> refused = new ArrayList<>(batch);
+        synchronized (lock) {
+            failure = cause;
+            List<Pending> flushes = new ArrayList<>();
+            for (Pending pending : queue) {
+                if (pending.flush) {
+                    flushes.add(pending);
+                } else {
+                    refused.add(pending);
+                }
+            }
+            queue = flushes;
+            flushRequested = !flushes.isEmpty();
+        }
+        for (Pending pending : refused) {
+            pending.done.completeExceptionally(cause);
+        }
+    }
+}
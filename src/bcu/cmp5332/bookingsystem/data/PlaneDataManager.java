@@ -5,11 +5,7 @@ import bcu.cmp5332.bookingsystem.model.Airline;
 import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
 import bcu.cmp5332.bookingsystem.model.Plane;
 
-import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.util.Scanner;
 
 /**
  * The PlaneDataManager class manages loading and storing plane data to/from a text file.
@@ -18,7 +14,7 @@ import java.util.Scanner;
  */
 public class PlaneDataManager implements DataManager {
     
-    private final String RESOURCE = "./resources/data/planes.txt";
+    static final String RESOURCE = "./resources/data/planes.txt";
     
     /**
      * Loads plane data from the planes data file into the FlightBookingSystem.
@@ -29,24 +25,13 @@ public class PlaneDataManager implements DataManager {
      */
     @Override
     public void loadData(FlightBookingSystem fbs) throws IOException, FlightBookingSystemException {
-        try (Scanner sc = new Scanner(new File(RESOURCE))) {
-            int line_idx = 1;
-            while (sc.hasNextLine()) {
-                String line = sc.nextLine();
-                String[] properties = line.split(SEPARATOR, -1);
-                try {
-                    int id = Integer.parseInt(properties[0]);
-                    String model = properties[1];
-                    int capacity = Integer.parseInt(properties[2]);
-                    int airlineID = Integer.parseInt(properties[3]);
-                    Airline airline = fbs.getAirlineByID(airlineID);
-                    Plane plane = new Plane(id, model, capacity, airline);
-                    fbs.addPlane(plane);
-                } catch (NumberFormatException ex) {
-                    throw new FlightBookingSystemException("Unable to parse plane id " + properties[0] + " on line " + line_idx
-                        + "\nError: " + ex);
-                }
-                line_idx++;
+        RecordReader in = RecordReader.open(RESOURCE);
+        while (in.nextLine()) {
+            try {
+                fbs.addPlane(parse(fbs, in));
+            } catch (NumberFormatException ex) {
+                throw new FlightBookingSystemException("Unable to parse plane id " + in.firstField() + " on line " + in.lineNumber()
+                    + "\nError: " + ex);
             }
         }
     }
@@ -59,14 +44,66 @@ public class PlaneDataManager implements DataManager {
      */
     @Override
     public void storeData(FlightBookingSystem fbs) throws IOException {
-        try (PrintWriter out = new PrintWriter(new FileWriter(RESOURCE))) {
-            for (Plane plane : fbs.getPlanes()) {
-                out.print(plane.getId() + SEPARATOR);
-                out.print(plane.getModel() + SEPARATOR);
-                out.print(plane.getCapacity() + SEPARATOR);
-                out.print(plane.getAirline().getId() + SEPARATOR);
-                out.println();
-            }
+        AtomicFile.writeLines(RESOURCE, fbs.getPlanesView(), PlaneDataManager::format);
+    }
+
+    /**
+     * Creates a plane from the fields of one line of the planes data file.
+     *
+     * @param fbs The FlightBookingSystem used to look up the plane's airline
+     * @param in The reader positioned on the line
+     * @return The parsed plane
+     * @throws FlightBookingSystemException If the referenced airline does not exist
+     * @throws NumberFormatException If a numeric field cannot be parsed
+     */
+    static Plane parse(FlightBookingSystem fbs, RecordReader in) throws FlightBookingSystemException {
+        return parseRecord(in).link(fbs);
+    }
+
+    /**
+     * Reads the fields of one line of the planes data file without looking up the airline,
+     * so lines can be parsed before any airline has been loaded.
+     *
+     * @param in The reader positioned on the line
+     * @return The parsed fields
+     * @throws NumberFormatException If a numeric field cannot be parsed
+     */
+    static PlaneRecord parseRecord(RecordReader in) {
+        int id = in.nextInt();
+        String model = in.nextString();
+        int capacity = in.nextInt();
+        int airlineID = in.nextInt();
+        return new PlaneRecord(id, model, capacity, airlineID);
+    }
+
+    /**
+     * The fields of one line of the planes data file, with the airline still referred to by id.
+     */
+    record PlaneRecord(int id, String model, int capacity, int airlineID) {
+
+        /**
+         * Creates the plane, looking up its airline.
+         *
+         * @param fbs The FlightBookingSystem used to look up the plane's airline
+         * @return The plane
+         * @throws FlightBookingSystemException If the referenced airline does not exist
+         */
+        Plane link(FlightBookingSystem fbs) throws FlightBookingSystemException {
+            Airline airline = fbs.getAirlineByID(airlineID);
+            return new Plane(id, model, capacity, airline);
         }
     }
+
+    /**
+     * Formats a plane as one line of the planes data file.
+     *
+     * @param plane The plane to format
+     * @return The plane's fields joined by {@link DataManager#SEPARATOR}
+     */
+    static String format(Plane plane) {
+        return plane.getId() + SEPARATOR
+                + plane.getModel() + SEPARATOR
+                + plane.getCapacity() + SEPARATOR
+                + plane.getAirline().getId() + SEPARATOR;
+    }
 }
@@ -0,0 +1,363 @@
+package bcu.cmp5332.bookingsystem.data;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.zip.CRC32;
+
+/**
+ * The RecordReader class reads the lines and fields of a data file in the
+ * {@link DataManager#SEPARATOR} format straight from the file's bytes.
+ *
+ * <p>Numbers, booleans and dates are parsed from the bytes in place, so reading a line
+ * only creates Strings for the text fields that are kept, such as names and emails. Call
+ * {@link #nextLine()} to move to a line and then read its fields in order.</p>
+ *
+ * @version 1.0
+ *
+ */
+final class RecordReader {
+
+    private static final byte[] SEPARATOR_BYTES = DataManager.SEPARATOR.getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Powers of ten that are exact as doubles.
+     */
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+        1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final byte[] data;
+    private final int end;
+    private int next;
+    private int lineStart;
+    private int lineEnd;
+    private int position;
+    private int mark;
+
+    /**
+     * Creates a reader over a range of bytes. The range should start at the beginning
+     * of a line.
+     *
+     * @param data the bytes of the whole file.
+     * @param from the index of the first byte to read.
+     * @param to the index after the last byte to read.
+     */
+    RecordReader(byte[] data, int from, int to) {
+        this.data = data;
+        this.next = from;
+        this.end = to;
+        this.lineStart = from;
+        this.lineEnd = from;
+        this.position = to + 1;
+    }
+
+    /**
+     * Creates a reader over the whole of a data file.
+     *
+     * @param resource the path of the file to read.
+     * @return a reader positioned before the first line of the file.
+     * @throws IOException if the file cannot be read.
+     */
+    static RecordReader open(String resource) throws IOException {
+        byte[] data = Files.readAllBytes(Path.of(resource));
+        return new RecordReader(data, 0, data.length);
+    }
+
+    /**
+     * Moves to the next line.
+     *
+     * @return true if there is another line, false at the end of the range.
+     */
+    boolean nextLine() {
+        if (next >= end) {
+            return false;
+        }
+        lineStart = next;
+        int i = next;
+        while (i < end && data[i] != '\n') {
+            i++;
+        }
+        next = i + 1;
+        lineEnd = i > lineStart && data[i - 1] == '\r' ? i - 1 : i;
+        position = lineStart;
+        mark = lineStart;
+        return true;
+    }
+
+    /**
+     * Checks whether the current line is empty.
+     *
+     * @return true if the current line has no characters.
+     */
+    boolean isEmpty() {
+        return lineStart == lineEnd;
+    }
+
+    /**
+     * Gets the number of the current line. It is counted from the start of the file
+     * when called, so it is meant for error messages.
+     *
+     * @return the one-based number of the current line.
+     */
+    int lineNumber() {
+        int line = 1;
+        for (int i = 0; i < lineStart; i++) {
+            if (data[i] == '\n') {
+                line++;
+            }
+        }
+        return line;
+    }
+
+    /**
+     * Gets the text of the first field of the current line, for error messages.
+     *
+     * @return the first field of the current line.
+     */
+    String firstField() {
+        int fieldEnd = indexOfSeparator(lineStart);
+        return decode(lineStart, fieldEnd < 0 ? lineEnd : fieldEnd);
+    }
+
+    /**
+     * Gets the index of the first byte of the current line.
+     *
+     * @return the offset of the current line in the data.
+     */
+    int lineOffset() {
+        return lineStart;
+    }
+
+    /**
+     * Computes the CRC-32 of the rest of the current line, from the next field to the end
+     * of the line, without its line separator.
+     *
+     * @return the checksum of the remaining bytes of the line.
+     */
+    long checksumOfRest() {
+        CRC32 crc = new CRC32();
+        int from = Math.min(position, lineEnd);
+        crc.update(data, from, lineEnd - from);
+        return crc.getValue();
+    }
+
+    /**
+     * Remembers the position of the next field, so it can be read again after {@link #reset()}.
+     */
+    void mark() {
+        mark = position;
+    }
+
+    /**
+     * Moves back to the field remembered by {@link #mark()}, or to the first field of the line.
+     */
+    void reset() {
+        position = mark;
+    }
+
+    /**
+     * Checks whether the current line has a field left to read. A line ending with a
+     * separator has no field after it.
+     *
+     * @return true if another field can be read from the line.
+     */
+    boolean hasMoreFields() {
+        return position < lineEnd;
+    }
+
+    /**
+     * Skips the next field.
+     *
+     * @throws NumberFormatException if the line has no more fields.
+     */
+    void skip() {
+        advance();
+    }
+
+    /**
+     * Reads the next field as text.
+     *
+     * @return the field.
+     * @throws NumberFormatException if the line has no more fields.
+     */
+    String nextString() {
+        int start = position;
+        return decode(start, advance());
+    }
+
+    /**
+     * Reads the next field as an int, accepting the same text as {@link Integer#parseInt(String)}.
+     *
+     * @return the field's value.
+     * @throws NumberFormatException if the field is not a valid int or the line has no more fields.
+     */
+    int nextInt() {
+        int start = position;
+        int fieldEnd = advance();
+        int i = start;
+        boolean negative = false;
+        if (i < fieldEnd && (data[i] == '-' || data[i] == '+')) {
+            negative = data[i] == '-';
+            i++;
+        }
+        if (i == fieldEnd) {
+            throw invalid(start, fieldEnd);
+        }
+        long value = 0;
+        for (; i < fieldEnd; i++) {
+            int digit = data[i] - '0';
+            if (digit < 0 || digit > 9 || value > Integer.MAX_VALUE) {
+                throw invalid(start, fieldEnd);
+            }
+            value = value * 10 + digit;
+        }
+        value = negative ? -value : value;
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw invalid(start, fieldEnd);
+        }
+        return (int) value;
+    }
+
+    /**
+     * Reads the next field as a double, accepting the same text as {@link Double#parseDouble(String)}.
+     * Plain decimals of up to 15 significant digits are converted directly from the bytes;
+     * anything else, such as exponents, falls back to {@link Double#parseDouble(String)}.
+     *
+     * @return the field's value.
+     * @throws NumberFormatException if the field is not a valid double or the line has no more fields.
+     */
+    double nextDouble() {
+        int start = position;
+        int fieldEnd = advance();
+        int i = start;
+        boolean negative = false;
+        if (i < fieldEnd && (data[i] == '-' || data[i] == '+')) {
+            negative = data[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int significantDigits = 0;
+        int fractionDigits = -1;
+        boolean hasDigit = false;
+        for (; i < fieldEnd; i++) {
+            byte b = data[i];
+            if (b == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else if (b >= '0' && b <= '9' && significantDigits < 15) {
+                mantissa = mantissa * 10 + (b - '0');
+                hasDigit = true;
+                if (mantissa != 0) {
+                    significantDigits++;
+                }
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+            } else {
+                break;
+            }
+        }
+        if (i < fieldEnd || !hasDigit || fractionDigits >= POWERS_OF_TEN.length) {
+            return Double.parseDouble(decode(start, fieldEnd));
+        }
+        double value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+        return negative ? -value : value;
+    }
+
+    /**
+     * Reads the next field as a boolean, accepting the same text as {@link Boolean#parseBoolean(String)}.
+     *
+     * @return true if the field is "true", ignoring case, false otherwise.
+     * @throws NumberFormatException if the line has no more fields.
+     */
+    boolean nextBoolean() {
+        int start = position;
+        int fieldEnd = advance();
+        return fieldEnd - start == 4
+                && (data[start] | 0x20) == 't'
+                && (data[start + 1] | 0x20) == 'r'
+                && (data[start + 2] | 0x20) == 'u'
+                && (data[start + 3] | 0x20) == 'e';
+    }
+
+    /**
+     * Reads the next field as an ISO date such as 2024-06-01.
+     *
+     * @return the field's value.
+     * @throws NumberFormatException if the line has no more fields.
+     * @throws java.time.DateTimeException if the field is not a valid date.
+     */
+    LocalDate nextDate() {
+        int start = position;
+        int fieldEnd = advance();
+        if (fieldEnd - start == 10 && data[start + 4] == '-' && data[start + 7] == '-') {
+            int year = digits(start, 4);
+            int month = digits(start + 5, 2);
+            int day = digits(start + 8, 2);
+            if (year >= 0 && month >= 0 && day >= 0) {
+                return LocalDate.of(year, month, day);
+            }
+        }
+        return LocalDate.parse(decode(start, fieldEnd));
+    }
+
+    /**
+     * Moves past the next field and its separator.
+     *
+     * @return the index after the last byte of the field.
+     */
+    private int advance() {
+        if (position > lineEnd) {
+            throw new NumberFormatException("Missing field on line " + lineNumber());
+        }
+        int separator = indexOfSeparator(position);
+        if (separator < 0) {
+            position = lineEnd + 1;
+            return lineEnd;
+        }
+        position = separator + SEPARATOR_BYTES.length;
+        return separator;
+    }
+
+    private int indexOfSeparator(int from) {
+        int last = lineEnd - SEPARATOR_BYTES.length;
+        outer:
+        for (int i = from; i <= last; i++) {
+            for (int j = 0; j < SEPARATOR_BYTES.length; j++) {
+                if (data[i + j] != SEPARATOR_BYTES[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Reads a fixed number of decimal digits.
+     *
+     * @return the value of the digits, or -1 if any of them is not a digit.
+     */
+    private int digits(int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            int digit = data[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private String decode(int from, int to) {
+        return new String(data, from, to - from, StandardCharsets.UTF_8);
+    }
+
+    private NumberFormatException invalid(int from, int to) {
+        return new NumberFormatException("For input string: \"" + decode(from, to) + "\"");
+    }
+}
@@ -0,0 +1,345 @@
+package bcu.cmp5332.bookingsystem.data;
+
+import bcu.cmp5332.bookingsystem.main.CustomerException;
+import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
+import bcu.cmp5332.bookingsystem.model.Airline;
+import bcu.cmp5332.bookingsystem.model.Booking;
+import bcu.cmp5332.bookingsystem.model.Customer;
+import bcu.cmp5332.bookingsystem.model.Flight;
+import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
+import bcu.cmp5332.bookingsystem.model.Plane;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The SnapshotDataManager class loads and stores the whole Flight Booking System as a
+ * single versioned binary snapshot, as an alternative to the five text data files.
+ *
+ * <p>The snapshot starts with a fixed-size header holding the record counts and the
+ * offset of every section. It is followed by a string table, where every distinct
+ * string is stored once, and then one section of fixed-width records per entity, in
+ * id order, whose text fields are indexes into the string table.</p>
+ *
+ * <p>Loading maps each section of the file into memory with a {@link FileChannel}
+ * instead of reading and splitting text lines, which keeps start-up time low with
+ * millions of bookings.</p>
+ *
+ * @version 1.0
+ *
+ */
+public class SnapshotDataManager implements DataManager {
+
+    private final String RESOURCE = "./resources/data/snapshot.bin";
+
+    /**
+     * Magic number identifying a snapshot file ("FBSS").
+     */
+    private static final int MAGIC = 0x46425353;
+
+    /**
+     * Version of the snapshot format written by this class. Version 2 added the seat to
+     * the booking records. Version 3 dropped the {@code (id, offset)} index that used to
+     * end the file, and its offsets from the header, since the whole snapshot is always
+     * loaded. Snapshots of versions 1 and 2 can still be read: their header starts the
+     * same way, and the index is never looked at.
+     */
+    private static final int VERSION = 3;
+
+    private static final int AIRLINES = 0;
+    private static final int PLANES = 1;
+    private static final int FLIGHTS = 2;
+    private static final int CUSTOMERS = 3;
+    private static final int BOOKINGS = 4;
+
+    /**
+     * Width in bytes of one record of each entity, in section order.
+     */
+    private static final int[] RECORD_WIDTH = {16, 16, 36, 24, 28};
+
+    /**
+     * Width in bytes of one record of each entity in a version 1 snapshot.
+     */
+    private static final int[] RECORD_WIDTH_V1 = {16, 16, 36, 24, 24};
+
+    /**
+     * Magic, version, five record counts, the string count, and the offsets of the
+     * string table and the five record sections.
+     */
+    private static final int HEADER_SIZE = 4 + 4 + 5 * 4 + 4 + 8 + 5 * 8;
+
+    /**
+     * Checks whether a snapshot has been written.
+     *
+     * @return true if the snapshot file exists, false otherwise.
+     */
+    public boolean exists() {
+        return new File(RESOURCE).exists();
+    }
+
+    /**
+     * Loads the snapshot into the Flight Booking System.
+     *
+     * @param fbs the Flight Booking System instance into which data will be loaded.
+     * @throws IOException if an I/O error occurs or the file is not a snapshot of a supported version.
+     * @throws FlightBookingSystemException if a record refers to a plane, flight or airline that does not exist.
+     * @throws CustomerException if a booking refers to a customer that does not exist.
+     */
+    @Override
+    public void loadData(FlightBookingSystem fbs) throws IOException, FlightBookingSystemException, CustomerException {
+        try (FileChannel channel = FileChannel.open(new File(RESOURCE).toPath(), StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException("Snapshot " + RESOURCE + " is truncated");
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt() != MAGIC) {
+                throw new IOException(RESOURCE + " is not a snapshot file");
+            }
+            int version = header.getInt();
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + " in " + RESOURCE);
+            }
+            int[] counts = new int[5];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = header.getInt();
+            }
+            int stringCount = header.getInt();
+            long stringsOffset = header.getLong();
+            long[] sectionOffsets = new long[5];
+            for (int i = 0; i < sectionOffsets.length; i++) {
+                sectionOffsets[i] = header.getLong();
+            }
+
+            int[] widths = version == 1 ? RECORD_WIDTH_V1 : RECORD_WIDTH;
+            String[] strings = readStrings(channel, stringsOffset, sectionOffsets[AIRLINES], stringCount);
+
+            ByteBuffer in = section(channel, sectionOffsets, counts, widths, AIRLINES);
+            for (int i = 0; i < counts[AIRLINES]; i++) {
+                fbs.addAirline(new Airline(in.getInt(), strings[in.getInt()], strings[in.getInt()], strings[in.getInt()]));
+            }
+
+            in = section(channel, sectionOffsets, counts, widths, PLANES);
+            for (int i = 0; i < counts[PLANES]; i++) {
+                int id = in.getInt();
+                String model = strings[in.getInt()];
+                int capacity = in.getInt();
+                Airline airline = fbs.getAirlineByID(in.getInt());
+                fbs.addPlane(new Plane(id, model, capacity, airline));
+            }
+
+            in = section(channel, sectionOffsets, counts, widths, FLIGHTS);
+            for (int i = 0; i < counts[FLIGHTS]; i++) {
+                int id = in.getInt();
+                String flightNumber = strings[in.getInt()];
+                String origin = strings[in.getInt()];
+                String destination = strings[in.getInt()];
+                double price = in.getDouble();
+                Plane plane = fbs.getPlaneByID(in.getInt());
+                LocalDate departureDate = LocalDate.ofEpochDay(in.getInt());
+                boolean isRemoved = in.getInt() != 0;
+                fbs.addFlight(new Flight(id, flightNumber, origin, destination, price, plane, departureDate, isRemoved));
+            }
+
+            in = section(channel, sectionOffsets, counts, widths, CUSTOMERS);
+            for (int i = 0; i < counts[CUSTOMERS]; i++) {
+                int id = in.getInt();
+                String name = strings[in.getInt()];
+                int age = in.getInt();
+                String phone = strings[in.getInt()];
+                String email = strings[in.getInt()];
+                boolean isRemoved = in.getInt() != 0;
+                fbs.addCustomer(new Customer(id, name, age, phone, email, isRemoved));
+            }
+
+            in = section(channel, sectionOffsets, counts, widths, BOOKINGS);
+            for (int i = 0; i < counts[BOOKINGS]; i++) {
+                int id = in.getInt();
+                Customer customer = fbs.getCustomerByID(in.getInt());
+                Flight flight = fbs.getFlightByID(in.getInt());
+                LocalDate bookingDate = LocalDate.ofEpochDay(in.getInt());
+                double price = in.getDouble();
+                int seat = version == 1 ? -1 : in.getInt();
+                Booking booking = new Booking(id, customer, flight, bookingDate, price, seat < 0 ? null : strings[seat]);
+                customer.addBooking(booking);
+                flight.addPassenger(customer);
+                fbs.addBooking(booking);
+            }
+        }
+    }
+
+    /**
+     * Writes the whole Flight Booking System to a new snapshot, replacing the old one
+     * with {@link AtomicFile}. Past flights and bookings that have not been loaded yet
+     * are loaded first, so the snapshot is complete.
+     *
+     * @param fbs the Flight Booking System instance from which data will be stored.
+     * @throws IOException if an I/O error occurs during data storage.
+     */
+    @Override
+    public void storeData(FlightBookingSystem fbs) throws IOException {
+        try {
+            fbs.loadHistory();
+        } catch (FlightBookingSystemException ex) {
+            throw new IOException(ex.getMessage(), ex);
+        }
+        Collection<Airline> airlines = fbs.getAirlinesView();
+        Collection<Plane> planes = fbs.getPlanesView();
+        Collection<Flight> flights = fbs.getFlightsView();
+        Collection<Customer> customers = fbs.getCustomersView();
+        Collection<Booking> bookings = fbs.getBookingsView();
+        int[] counts = {airlines.size(), planes.size(), flights.size(), customers.size(), bookings.size()};
+
+        StringTable strings = new StringTable();
+        for (Airline airline : airlines) {
+            strings.add(airline.getName());
+            strings.add(airline.getEmail());
+            strings.add(airline.getPassword());
+        }
+        for (Plane plane : planes) {
+            strings.add(plane.getModel());
+        }
+        for (Flight flight : flights) {
+            strings.add(flight.getFlightNumber());
+            strings.add(flight.getOrigin());
+            strings.add(flight.getDestination());
+        }
+        for (Customer customer : customers) {
+            strings.add(customer.getName());
+            strings.add(customer.getPhone());
+            strings.add(customer.getEmail());
+        }
+        for (Booking booking : bookings) {
+            if (booking.getSeat() != null) {
+                strings.add(booking.getSeat());
+            }
+        }
+
+        long stringsOffset = HEADER_SIZE;
+        long[] sectionOffsets = new long[5];
+        long offset = stringsOffset + strings.size;
+        for (int i = 0; i < sectionOffsets.length; i++) {
+            sectionOffsets[i] = offset;
+            offset += (long) counts[i] * RECORD_WIDTH[i];
+        }
+
+        AtomicFile.write(RESOURCE, stream -> {
+            DataOutputStream out = new DataOutputStream(stream);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            for (int count : counts) {
+                out.writeInt(count);
+            }
+            out.writeInt(strings.values.size());
+            out.writeLong(stringsOffset);
+            for (long sectionOffset : sectionOffsets) {
+                out.writeLong(sectionOffset);
+            }
+
+            for (byte[] value : strings.values) {
+                out.writeInt(value.length);
+                out.write(value);
+            }
+
+            for (Airline airline : airlines) {
+                out.writeInt(airline.getId());
+                out.writeInt(strings.indexOf(airline.getName()));
+                out.writeInt(strings.indexOf(airline.getEmail()));
+                out.writeInt(strings.indexOf(airline.getPassword()));
+            }
+            for (Plane plane : planes) {
+                out.writeInt(plane.getId());
+                out.writeInt(strings.indexOf(plane.getModel()));
+                out.writeInt(plane.getCapacity());
+                out.writeInt(plane.getAirline().getId());
+            }
+            for (Flight flight : flights) {
+                out.writeInt(flight.getId());
+                out.writeInt(strings.indexOf(flight.getFlightNumber()));
+                out.writeInt(strings.indexOf(flight.getOrigin()));
+                out.writeInt(strings.indexOf(flight.getDestination()));
+                out.writeDouble(flight.getPrice());
+                out.writeInt(flight.getPlane().getId());
+                out.writeInt((int) flight.getDepartureDate().toEpochDay());
+                out.writeInt(flight.isRemoved() ? 1 : 0);
+            }
+            for (Customer customer : customers) {
+                out.writeInt(customer.getId());
+                out.writeInt(strings.indexOf(customer.getName()));
+                out.writeInt(customer.getAge());
+                out.writeInt(strings.indexOf(customer.getPhone()));
+                out.writeInt(strings.indexOf(customer.getEmail()));
+                out.writeInt(customer.isRemoved() ? 1 : 0);
+            }
+            for (Booking booking : bookings) {
+                out.writeInt(booking.getId());
+                out.writeInt(booking.getCustomer().getId());
+                out.writeInt(booking.getFlight().getId());
+                out.writeInt((int) booking.getBookingDate().toEpochDay());
+                out.writeDouble(booking.getPrice());
+                out.writeInt(booking.getSeat() == null ? -1 : strings.indexOf(booking.getSeat()));
+            }
+
+            out.flush();
+        });
+    }
+
+    /**
+     * Maps one record section of the snapshot into memory, given the record widths of its version.
+     */
+    private static MappedByteBuffer section(FileChannel channel, long[] sectionOffsets, int[] counts, int[] widths, int section) throws IOException {
+        long size = (long) counts[section] * widths[section];
+        return channel.map(FileChannel.MapMode.READ_ONLY, sectionOffsets[section], size);
+    }
+
+    /**
+     * Maps the string table into memory and decodes every string in it.
+     */
+    private static String[] readStrings(FileChannel channel, long start, long end, int count) throws IOException {
+        MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        String[] strings = new String[count];
+        byte[] bytes = new byte[64];
+        for (int i = 0; i < count; i++) {
+            int length = in.getInt();
+            if (length > bytes.length) {
+                bytes = new byte[Math.max(length, bytes.length * 2)];
+            }
+            in.get(bytes, 0, length);
+            strings[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+        return strings;
+    }
+
+    /**
+     * Collects the distinct strings of a snapshot in the order they are first seen.
+     */
+    private static class StringTable {
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final List<byte[]> values = new ArrayList<>();
+        private long size;
+
+        private void add(String value) {
+            if (!indexes.containsKey(value)) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                indexes.put(value, values.size());
+                values.add(bytes);
+                size += 4 + bytes.length;
+            }
+        }
+
+        private int indexOf(String value) {
+            return indexes.get(value);
+        }
+    }
+}
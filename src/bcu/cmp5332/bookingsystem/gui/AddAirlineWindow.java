@@ -2,6 +2,7 @@ package bcu.cmp5332.bookingsystem.gui;
 
 import bcu.cmp5332.bookingsystem.commands.AddAirline;
 import bcu.cmp5332.bookingsystem.commands.Command;
+import bcu.cmp5332.bookingsystem.commands.CommandPipeline;
 import bcu.cmp5332.bookingsystem.main.CustomerException;
 import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
 
@@ -114,7 +115,7 @@ public class AddAirlineWindow extends JFrame implements ActionListener {
 
         // Create AddAirline command and execute it
         Command addAirlineCommand = new AddAirline(name, email, password);
-        addAirlineCommand.execute(mw.getFlightBookingSystem());
+        CommandPipeline.forSystem(mw.getFlightBookingSystem()).execute(addAirlineCommand);
 
         // Update airline list in main window
         mw.displayAirlines();
@@ -2,6 +2,7 @@ package bcu.cmp5332.bookingsystem.gui;
 
 import bcu.cmp5332.bookingsystem.commands.AddBooking;
 import bcu.cmp5332.bookingsystem.commands.Command;
+import bcu.cmp5332.bookingsystem.commands.CommandPipeline;
 import bcu.cmp5332.bookingsystem.main.CustomerException;
 import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
 
@@ -108,7 +109,7 @@ public class AddBookingWindow extends JFrame implements ActionListener {
             int flightID = Integer.parseInt(flightId.getText());
 
             Command addBooking = new AddBooking(customerID, flightID);
-            addBooking.execute(mw.getFlightBookingSystem());
+            CommandPipeline.forSystem(mw.getFlightBookingSystem()).execute(addBooking);
 
             this.setVisible(false); // Close the window after adding
         } catch (FlightBookingSystemException ex) {
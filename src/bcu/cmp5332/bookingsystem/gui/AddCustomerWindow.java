@@ -2,6 +2,7 @@ package bcu.cmp5332.bookingsystem.gui;
 
 import bcu.cmp5332.bookingsystem.commands.AddCustomer;
 import bcu.cmp5332.bookingsystem.commands.Command;
+import bcu.cmp5332.bookingsystem.commands.CommandPipeline;
 import bcu.cmp5332.bookingsystem.main.CustomerException;
 import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
 
@@ -118,7 +119,7 @@ public class AddCustomerWindow extends JFrame implements ActionListener {
             String phone = phoneText.getText();
 
             Command addCustomer = new AddCustomer(name, age, phone, email);
-            addCustomer.execute(mw.getFlightBookingSystem());
+            CommandPipeline.forSystem(mw.getFlightBookingSystem()).execute(addCustomer);
 
             mw.displayCustomers(); // Update customer list in main window
 
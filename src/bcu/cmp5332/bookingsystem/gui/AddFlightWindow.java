@@ -2,6 +2,7 @@ package bcu.cmp5332.bookingsystem.gui;
 
 import bcu.cmp5332.bookingsystem.commands.AddFlight;
 import bcu.cmp5332.bookingsystem.commands.Command;
+import bcu.cmp5332.bookingsystem.commands.CommandPipeline;
 import bcu.cmp5332.bookingsystem.main.CustomerException;
 import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
 
@@ -161,10 +162,10 @@ public class AddFlightWindow extends JFrame implements ActionListener {
         Command addFlightCmd = new AddFlight(flightNumber, origin, destination, price, capacity, departureDate);
 
         if (mw != null) {
-            addFlightCmd.execute(mw.getFlightBookingSystem());
+            CommandPipeline.forSystem(mw.getFlightBookingSystem()).execute(addFlightCmd);
             mw.displayFlights();
         } else if (aw != null) {
-            addFlightCmd.execute(aw.getFlightBookingSystem());
+            CommandPipeline.forSystem(aw.getFlightBookingSystem()).execute(addFlightCmd);
             aw.displayFlights();
         }
 
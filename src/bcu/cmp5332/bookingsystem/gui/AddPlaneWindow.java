@@ -2,6 +2,7 @@ package bcu.cmp5332.bookingsystem.gui;
 
 import bcu.cmp5332.bookingsystem.commands.AddPlane;
 import bcu.cmp5332.bookingsystem.commands.Command;
+import bcu.cmp5332.bookingsystem.commands.CommandPipeline;
 import bcu.cmp5332.bookingsystem.main.CustomerException;
 import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
 
@@ -153,11 +154,11 @@ public class AddPlaneWindow extends JFrame implements ActionListener {
 
         if (mw != null) {
             addPlaneCmd = new AddPlane(name, capacity, airlineId);
-            addPlaneCmd.execute(mw.getFlightBookingSystem());
+            CommandPipeline.forSystem(mw.getFlightBookingSystem()).execute(addPlaneCmd);
             mw.displayPlane();
         } else if (aw != null) {
             addPlaneCmd = new AddPlane(name, capacity, this.id);
-            addPlaneCmd.execute(aw.getFlightBookingSystem());
+            CommandPipeline.forSystem(aw.getFlightBookingSystem()).execute(addPlaneCmd);
             aw.displayPlane();
         }
 
@@ -5,9 +5,8 @@ import java.awt.Container;
 import java.awt.Font;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.io.IOException;
-import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import javax.swing.ImageIcon;
@@ -26,7 +25,8 @@ import javax.swing.UIManager;
 import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
 
-import bcu.cmp5332.bookingsystem.data.FlightBookingSystemData;
+import bcu.cmp5332.bookingsystem.commands.CommandPipeline;
+import bcu.cmp5332.bookingsystem.commands.RemoveFlight;
 import bcu.cmp5332.bookingsystem.main.CustomerException;
 import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
 import bcu.cmp5332.bookingsystem.model.Booking;
@@ -171,16 +171,8 @@ public class AirlineWindow extends JFrame implements ActionListener {
      */
     @Override
     public void actionPerformed(ActionEvent ae) {
-        try {
-            FlightBookingSystemData.load();
-            FlightBookingSystemData.store(fbs);
-        } catch (IOException ex) {
-            JOptionPane.showMessageDialog(this, ex, "Error", JOptionPane.ERROR_MESSAGE);
-        } catch (FlightBookingSystemException e) {
-            e.printStackTrace();
-        } catch (CustomerException e) {
-            e.printStackTrace();
-        }
+        // Saved by the writer thread, which is the only one that touches the system
+        CommandPipeline.forSystem(fbs).flush();
         if (ae.getSource() == adminExit) {
             System.exit(0);
         } else if (ae.getSource() == adminLogout) {
@@ -205,7 +197,7 @@ public class AirlineWindow extends JFrame implements ActionListener {
      * Filters planes based on the airline ID.
      */
     public void displayPlane() {
-        List<Plane> planeList = fbs.getPlanes();
+        Collection<Plane> planeList = fbs.snapshot().getPlanes();
         String[] columns = new String[]{"Plane ID", "Plane Name", "Capacity", "Airlines"};
 
         List<Plane> selfPlane = new ArrayList<>();
@@ -237,7 +229,7 @@ public class AirlineWindow extends JFrame implements ActionListener {
      * Shows detailed flight information including dynamic price calculation.
      */
     public void displayAllFlights() {
-        List<Flight> flightsList = fbs.getFlights();
+        Collection<Flight> flightsList = fbs.snapshot().getFlights();
         String[] columns = new String[]{"Flight ID", "Flight No", "Origin", "Destination", "Departure Date", "Price", "Capacity", "Plane", "Airline"};
 
         List<Flight> selfFlights = new ArrayList<>();
@@ -270,11 +262,9 @@ public class AirlineWindow extends JFrame implements ActionListener {
                     int selectedRow = table.getSelectedRow();
                     if (selectedRow != -1) {
                         int selectedData = (int) table.getValueAt(selectedRow, 0);
-                        try {
-                            Flight flight = fbs.getFlightByID(selectedData);
+                        Flight flight = fbs.snapshot().getFlight(selectedData);
+                        if (flight != null) {
                             new ShowFlightWindow(flight);
-                        } catch (FlightBookingSystemException e1) {
-                            e1.printStackTrace();
                         }
                     }
                 }
@@ -291,15 +281,10 @@ public class AirlineWindow extends JFrame implements ActionListener {
      * Shows detailed flight information including dynamic price calculation.
      */
     public void displayFlights() {
-        List<Flight> flightsList = fbs.getFlights();
         String[] columns = new String[]{"Flight ID", "Flight No", "Origin", "Destination", "Departure Date", "Price", "Capacity", "Plane", "Airline"};
 
-        List<Flight> activeFlights = new ArrayList<>();
-        for (Flight flight : flightsList) {
-            if (!flight.isRemoved() && flight.getDepartureDate().isAfter(LocalDate.now()) && flight.getPlane().getAirline().getId() == this.id) {
-                activeFlights.add(flight);
-            }
-        }
+        List<Flight> activeFlights = fbs.getFutureFlights();
+        activeFlights.removeIf(flight -> flight.getPlane().getAirline().getId() != this.id);
 
         Object[][] data = new Object[activeFlights.size()][9];
         for (int i = 0; i < activeFlights.size(); i++) {
@@ -324,11 +309,9 @@ public class AirlineWindow extends JFrame implements ActionListener {
                     int selectedRow = table.getSelectedRow();
                     if (selectedRow != -1) {
                         int selectedData = (int) table.getValueAt(selectedRow, 0);
-                        try {
-                            Flight flight = fbs.getFlightByID(selectedData);
+                        Flight flight = fbs.snapshot().getFlight(selectedData);
+                        if (flight != null) {
                             new ShowFlightWindow(flight);
-                        } catch (FlightBookingSystemException e1) {
-                            e1.printStackTrace();
                         }
                     }
                 }
@@ -344,15 +327,10 @@ public class AirlineWindow extends JFrame implements ActionListener {
      * Displays confirmation dialog before deleting.
      */
     public void deleteFlight() {
-        List<Flight> flightsList = fbs.getFlights();
         String[] columns = new String[]{"Flight ID", "Flight No", "Origin", "Destination", "Departure Date", "Price", "Capacity", "Plane", "Airline"};
 
-        List<Flight> activeFlights = new ArrayList<>();
-        for (Flight flight : flightsList) {
-            if (!flight.isRemoved() && flight.getDepartureDate().isAfter(LocalDate.now()) && flight.getPlane().getAirline().getId() == this.id) {
-                activeFlights.add(flight);
-            }
-        }
+        List<Flight> activeFlights = fbs.getFutureFlights();
+        activeFlights.removeIf(flight -> flight.getPlane().getAirline().getId() != this.id);
 
         Object[][] data = new Object[activeFlights.size()][9];
         for (int i = 0; i < activeFlights.size(); i++) {
@@ -377,9 +355,7 @@ public class AirlineWindow extends JFrame implements ActionListener {
                     int selectedRow = table.getSelectedRow();
                     if (selectedRow != -1) {
                         int selectedData = (int) table.getValueAt(selectedRow, 0);
-                        Flight flight;
                         try {
-                            flight = fbs.getFlightByID(selectedData);
                             int response = JOptionPane.showConfirmDialog(
                                     AirlineWindow.this,
                                     "Do you want to continue action?",
@@ -389,10 +365,10 @@ public class AirlineWindow extends JFrame implements ActionListener {
                             );
 
                             if (response == JOptionPane.YES_OPTION) {
-                                flight.removeFlight();
+                                CommandPipeline.forSystem(fbs).execute(new RemoveFlight(selectedData));
                                 deleteFlight();
                             }
-                        } catch (FlightBookingSystemException e1) {
+                        } catch (FlightBookingSystemException | CustomerException e1) {
                             e1.printStackTrace();
                         }
                     }
@@ -3,7 +3,7 @@ package bcu.cmp5332.bookingsystem.gui;
 import bcu.cmp5332.bookingsystem.commands.AddBooking;
 import bcu.cmp5332.bookingsystem.commands.AddCustomer;
 import bcu.cmp5332.bookingsystem.commands.Command;
-import bcu.cmp5332.bookingsystem.data.FlightBookingSystemData;
+import bcu.cmp5332.bookingsystem.commands.CommandPipeline;
 import bcu.cmp5332.bookingsystem.main.CustomerException;
 import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
 import bcu.cmp5332.bookingsystem.model.Customer;
@@ -14,7 +14,6 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.io.IOException;
 
 /**
  * Represents a window for booking a flight in the flight booking system.
@@ -36,14 +35,12 @@ public class BookingWindow extends JFrame implements ActionListener {
     /**
      * Constructs a BookingWindow object for the specified flight.
      * 
+     * @param fbs the flight booking system the booking is made in
      * @param flight the flight to be booked
-     * @throws FlightBookingSystemException if an error occurs in the flight booking system
-     * @throws IOException if an I/O error occurs
-     * @throws CustomerException if a customer-related error occurs
      */
-    public BookingWindow(Flight flight) throws FlightBookingSystemException, IOException, CustomerException {
+    public BookingWindow(FlightBookingSystem fbs, Flight flight) {
         this.flight = flight;
-        this.fbs = FlightBookingSystemData.load();
+        this.fbs = fbs;
         initialize();
     }
 
@@ -118,7 +115,7 @@ public class BookingWindow extends JFrame implements ActionListener {
         if (ae.getSource() == bookBtn) {
             try {
                 bookFlight();
-            } catch (CustomerException | FlightBookingSystemException | IOException e) {
+            } catch (CustomerException | FlightBookingSystemException e) {
                 JOptionPane.showMessageDialog(this, "Booking failed: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
             }
         } else if (ae.getSource() == cancelBtn) {
@@ -128,14 +125,13 @@ public class BookingWindow extends JFrame implements ActionListener {
 
     /**
      * Retrieves customer details input values, checks if the customer already exists,
-     * creates commands to add the customer (if new) and booking, executes them on the flight booking system,
-     * and stores the updated data.
+     * creates commands to add the customer (if new) and booking, and executes them through the
+     * system's command pipeline, which stores the updated data.
      *
      * @throws CustomerException if a customer-related error occurs
      * @throws FlightBookingSystemException if an error occurs in the flight booking system
-     * @throws IOException if an I/O error occurs
      */
-    private void bookFlight() throws CustomerException, FlightBookingSystemException, IOException {
+    private void bookFlight() throws CustomerException, FlightBookingSystemException {
         String name = nameText.getText();
         String ageStr = ageText.getText();
         String phone = phoneText.getText();
@@ -157,17 +153,13 @@ public class BookingWindow extends JFrame implements ActionListener {
         if (customer == null) {
             // Customer does not exist, add a new customer
             Command addCustomerCmd = new AddCustomer(name, age, phone, email);
-            addCustomerCmd.execute(fbs);
+            CommandPipeline.forSystem(fbs).execute(addCustomerCmd);
             customer = fbs.getCustomerByPhone(phone);
         }
 
-        // Add booking for the flight
+        // Add booking for the flight; the pipeline returns once the booking is durable
         Command addBookingCmd = new AddBooking(customer.getId(), flight.getId());
-        addBookingCmd.execute(fbs);
-        flight.addPassenger(customer);
-
-        // Store updated data
-        FlightBookingSystemData.store(fbs);
+        CommandPipeline.forSystem(fbs).execute(addBookingCmd);
 
         JOptionPane.showMessageDialog(this, "Booking successful for " + name + ".", "Success", JOptionPane.INFORMATION_MESSAGE);
         this.dispose();
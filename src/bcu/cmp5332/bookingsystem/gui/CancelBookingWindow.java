@@ -2,6 +2,7 @@ package bcu.cmp5332.bookingsystem.gui;
 
 import bcu.cmp5332.bookingsystem.commands.CancelBooking;
 import bcu.cmp5332.bookingsystem.commands.Command;
+import bcu.cmp5332.bookingsystem.commands.CommandPipeline;
 import bcu.cmp5332.bookingsystem.main.CustomerException;
 import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
 
@@ -95,7 +96,7 @@ public class CancelBookingWindow extends JFrame implements ActionListener {
             int flightID = Integer.parseInt(flightId.getText());
 
             Command cancelBooking = new CancelBooking(customerID, flightID);
-            cancelBooking.execute(mw.getFlightBookingSystem());
+            CommandPipeline.forSystem(mw.getFlightBookingSystem()).execute(cancelBooking);
 
             this.setVisible(false);
         } catch (FlightBookingSystemException ex) {
@@ -1,10 +1,10 @@
 package bcu.cmp5332.bookingsystem.gui;
 
-import bcu.cmp5332.bookingsystem.data.FlightBookingSystemData;
-import bcu.cmp5332.bookingsystem.main.CustomerException;
-import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
+import bcu.cmp5332.bookingsystem.commands.SearchConnections;
 import bcu.cmp5332.bookingsystem.model.Airline;
 import bcu.cmp5332.bookingsystem.model.Booking;
+import bcu.cmp5332.bookingsystem.model.ConnectionSearch;
+import bcu.cmp5332.bookingsystem.model.FareCalendar;
 import bcu.cmp5332.bookingsystem.model.Flight;
 import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
 import bcu.cmp5332.bookingsystem.model.Plane;
@@ -15,9 +15,9 @@ import javax.swing.event.ListSelectionListener;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.io.IOException;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -46,7 +46,10 @@ public class CustomerWindow extends JFrame implements ActionListener {
     private JTextField originSearchField = new JTextField(15);
     private JTextField destinationSearchField = new JTextField(15);
     private JTextField departureDateSearchField = new JTextField(10);
+    private JComboBox<Integer> stopsSearchField = new JComboBox<>(new Integer[]{0, 1, 2, 3});
+    private JComboBox<ConnectionSearch.Ranking> sortSearchField = new JComboBox<>(ConnectionSearch.Ranking.values());
     private JButton searchButton = new JButton("Search");
+    private JButton fareCalendarButton = new JButton("Fare Calendar");
 
     private FlightBookingSystem fbs;
     private JLabel welcomeLabel;
@@ -88,6 +91,9 @@ public class CustomerWindow extends JFrame implements ActionListener {
         setDefaultCloseOperation(EXIT_ON_CLOSE);
         setLocationRelativeTo(null);
 
+        // The search panel is rebuilt by every search, so the calendar takes the one the button is on
+        fareCalendarButton.addActionListener(e -> displayFareCalendar((JPanel) fareCalendarButton.getParent()));
+
         menuBar = new JMenuBar();
         setJMenuBar(menuBar);
 
@@ -132,13 +138,6 @@ public class CustomerWindow extends JFrame implements ActionListener {
      */
     @Override
     public void actionPerformed(ActionEvent ae) {
-        try {
-            FlightBookingSystemData.store(fbs);
-            fbs = FlightBookingSystemData.load();
-        } catch (IOException | FlightBookingSystemException | CustomerException e) {
-            JOptionPane.showMessageDialog(this, e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-        }
-
         if (ae.getSource() == profileExit) {
             System.exit(0);
         } else if (ae.getSource() == flightsView) {
@@ -154,7 +153,7 @@ public class CustomerWindow extends JFrame implements ActionListener {
      * Displays a table of bookings for the current customer.
      */
     public void displayBookings() {
-        List<Booking> bookingsList = fbs.getBookings();
+        Collection<Booking> bookingsList = fbs.snapshot().getBookings();
         String[] columns = new String[]{"Booking ID", "Customer Name", "Flight No", "Origin", "Destination", "Departure Date", "Booking Date"};
 
         List<Booking> activeBookings = new ArrayList<>();
@@ -187,16 +186,17 @@ public class CustomerWindow extends JFrame implements ActionListener {
      * Displays a table of planes in the FlightBookingSystem.
      */
     public void displayPlanes() {
-        List<Plane> planeList = fbs.getPlanes();
+        Collection<Plane> planeList = fbs.snapshot().getPlanes();
         String[] columns = {"Plane ID", "Plane Name", "Capacity", "Airline"};
 
         Object[][] data = new Object[planeList.size()][4];
-        for (int i = 0; i < planeList.size(); i++) {
-            Plane plane = planeList.get(i);
+        int i = 0;
+        for (Plane plane : planeList) {
             data[i][0] = plane.getId();
             data[i][1] = plane.getModel();
             data[i][2] = plane.getCapacity();
             data[i][3] = plane.getAirline().getName();
+            i++;
         }
 
         JTable table = new JTable(data, columns);
@@ -210,15 +210,16 @@ public class CustomerWindow extends JFrame implements ActionListener {
      * Displays a table of airlines in the FlightBookingSystem.
      */
     public void displayAirlines() {
-        List<Airline> airlineList = fbs.getAirlines();
+        Collection<Airline> airlineList = fbs.snapshot().getAirlines();
         String[] columns = {"Airline ID", "Airline Name", "Email"};
 
         Object[][] data = new Object[airlineList.size()][3];
-        for (int i = 0; i < airlineList.size(); i++) {
-            Airline airline = airlineList.get(i);
+        int i = 0;
+        for (Airline airline : airlineList) {
             data[i][0] = airline.getId();
             data[i][1] = airline.getName();
             data[i][2] = airline.getEmail();
+            i++;
         }
 
         JTable table = new JTable(data, columns);
@@ -246,7 +247,7 @@ public class CustomerWindow extends JFrame implements ActionListener {
      */
     public void displayFlights() {
         JPanel searchPanel = new JPanel();
-        searchPanel.setLayout(new GridLayout(3, 4, 10, 10));
+        searchPanel.setLayout(new GridLayout(4, 4, 10, 10));
         searchPanel.add(new JLabel("Airline:"));
         searchPanel.add(airlineSearchField);
         searchPanel.add(new JLabel("Origin:"));
@@ -255,15 +256,24 @@ public class CustomerWindow extends JFrame implements ActionListener {
         searchPanel.add(destinationSearchField);
         searchPanel.add(new JLabel("Departure Date (YYYY-MM-DD):"));
         searchPanel.add(departureDateSearchField);
-        searchPanel.add(new JLabel());
+        searchPanel.add(new JLabel("Max stops:"));
+        searchPanel.add(stopsSearchField);
+        searchPanel.add(new JLabel("Sort connections by:"));
+        searchPanel.add(sortSearchField);
+        searchPanel.add(fareCalendarButton);
         searchPanel.add(searchButton);
         searchPanel.add(new JLabel());
         searchPanel.add(new JLabel("Click row to book flight", SwingConstants.CENTER));
 
+        int maxStops = (Integer) stopsSearchField.getSelectedItem();
+        if (maxStops > 0 && !originSearchField.getText().isBlank() && !destinationSearchField.getText().isBlank()) {
+            displayConnections(searchPanel, maxStops);
+            return;
+        }
+
         String[] columns = {"Flight ID", "Flight No", "Origin", "Destination", "Departure Date", "Price", "Capacity", "Plane", "Airline"};
 
-        List<Flight> flightsList = fbs.getFlights();
-        List<Flight> activeFlights = filterFlights(flightsList);
+        List<Flight> activeFlights = filterFlights();
 
         Object[][] data = new Object[activeFlights.size()][9];
         for (int i = 0; i < activeFlights.size(); i++) {
@@ -288,11 +298,9 @@ public class CustomerWindow extends JFrame implements ActionListener {
                     int selectedRow = table.getSelectedRow();
                     if (selectedRow != -1) {
                         int selectedData = (int) table.getValueAt(selectedRow, 0);
-                        try {
-                            Flight flight = fbs.getFlightByID(selectedData);
-                            new BookingWindow(flight);
-                        } catch (FlightBookingSystemException | IOException | CustomerException e1) {
-                            e1.printStackTrace();
+                        Flight flight = fbs.snapshot().getFlight(selectedData);
+                        if (flight != null) {
+                            new BookingWindow(fbs, flight);
                         }
                     }
                 }
@@ -314,13 +322,112 @@ public class CustomerWindow extends JFrame implements ActionListener {
     }
 
     /**
-     * Filters flights based on search criteria provided in the CustomerWindow.
+     * Displays the direct and connecting flights between the origin and destination of the
+     * search, with up to the given number of stops. Clicking an itinerary opens a booking
+     * window for each of its flights.
+     *
+     * @param searchPanel The search panel to show above the itineraries.
+     * @param maxStops The most stops an itinerary may make.
+     */
+    private void displayConnections(JPanel searchPanel, int maxStops) {
+        LocalDate departureDate = null;
+        String departureDateStr = departureDateSearchField.getText().trim();
+        if (!departureDateStr.isEmpty()) {
+            try {
+                departureDate = LocalDate.parse(departureDateStr);
+            } catch (Exception e) {
+                JOptionPane.showMessageDialog(this, "Invalid date format. Please use YYYY-MM-DD.", "Error", JOptionPane.ERROR_MESSAGE);
+            }
+        }
+        ConnectionSearch search = new ConnectionSearch(fbs, maxStops, SearchConnections.MIN_CONNECTION_DAYS, SearchConnections.MAX_LAYOVER_DAYS);
+        List<ConnectionSearch.Itinerary> itineraries = search.search(originSearchField.getText().trim(),
+                destinationSearchField.getText().trim(), departureDate,
+                (ConnectionSearch.Ranking) sortSearchField.getSelectedItem(), SearchConnections.LIMIT);
+
+        String[] columns = {"#", "Route", "Flights", "Departure Date", "Arrival Date", "Stops", "Total Price"};
+        Object[][] data = new Object[itineraries.size()][7];
+        for (int i = 0; i < itineraries.size(); i++) {
+            ConnectionSearch.Itinerary itinerary = itineraries.get(i);
+            StringBuilder route = new StringBuilder(itinerary.getLegs().get(0).getOrigin());
+            StringBuilder flights = new StringBuilder();
+            for (Flight leg : itinerary.getLegs()) {
+                route.append(" - ").append(leg.getDestination());
+                flights.append(flights.length() == 0 ? "" : ", ").append(leg.getFlightNumber());
+            }
+            data[i][0] = i + 1;
+            data[i][1] = route.toString();
+            data[i][2] = flights.toString();
+            data[i][3] = itinerary.getDepartureDate();
+            data[i][4] = itinerary.getArrivalDate();
+            data[i][5] = itinerary.getStops();
+            data[i][6] = itinerary.getPrice();
+        }
+
+        JTable table = new JTable(data, columns);
+        ListSelectionModel itineraryModel = table.getSelectionModel();
+        itineraryModel.addListSelectionListener(e -> {
+            if (!e.getValueIsAdjusting() && table.getSelectedRow() != -1) {
+                for (Flight leg : itineraries.get(table.getSelectedRow()).getLegs()) {
+                    new BookingWindow(fbs, leg);
+                }
+            }
+        });
+
+        this.getContentPane().removeAll();
+        this.getContentPane().setLayout(new BorderLayout());
+        this.getContentPane().add(searchPanel, BorderLayout.NORTH);
+        this.getContentPane().add(new JScrollPane(table), BorderLayout.CENTER);
+        this.revalidate();
+    }
+
+    /**
+     * Displays the cheapest fare of each of the next days between the origin and destination
+     * of the search. Clicking a day opens a booking window for its cheapest flight.
+     *
+     * @param searchPanel The search panel to show above the calendar.
+     */
+    private void displayFareCalendar(JPanel searchPanel) {
+        String origin = originSearchField.getText().trim();
+        String destination = destinationSearchField.getText().trim();
+        if (origin.isEmpty() || destination.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "Enter an origin and a destination to see their fares.", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        List<FareCalendar.Fare> fares = fbs.getFareCalendar(origin, destination);
+
+        String[] columns = {"Departure Date", "Cheapest Price", "Flight ID", "Flight No"};
+        Object[][] data = new Object[fares.size()][4];
+        for (int i = 0; i < fares.size(); i++) {
+            FareCalendar.Fare fare = fares.get(i);
+            data[i][0] = fare.date();
+            data[i][1] = fare.flight() == null ? "-" : fare.price();
+            data[i][2] = fare.flight() == null ? "" : fare.flight().getId();
+            data[i][3] = fare.flight() == null ? "No flights" : fare.flight().getFlightNumber();
+        }
+
+        JTable table = new JTable(data, columns);
+        table.getSelectionModel().addListSelectionListener(e -> {
+            int selectedRow = table.getSelectedRow();
+            if (!e.getValueIsAdjusting() && selectedRow != -1 && fares.get(selectedRow).flight() != null) {
+                new BookingWindow(fbs, fares.get(selectedRow).flight());
+            }
+        });
+
+        this.getContentPane().removeAll();
+        this.getContentPane().setLayout(new BorderLayout());
+        this.getContentPane().add(searchPanel, BorderLayout.NORTH);
+        this.getContentPane().add(new JScrollPane(table), BorderLayout.CENTER);
+        this.revalidate();
+    }
+
+    /**
+     * Finds the future flights matching the search criteria provided in the CustomerWindow.
+     * The origin, destination and date are looked up in the system's route and departure
+     * indexes; the airline is then matched against the flights found.
      *
-     * @param flightsList The list of flights to filter.
      * @return List of flights that match the search criteria.
      */
-    private List<Flight> filterFlights(List<Flight> flightsList) {
-        List<Flight> activeFlights = new ArrayList<>();
+    private List<Flight> filterFlights() {
         String airline = airlineSearchField.getText().trim();
         String origin = originSearchField.getText().trim();
         String destination = destinationSearchField.getText().trim();
@@ -335,25 +442,9 @@ public class CustomerWindow extends JFrame implements ActionListener {
             }
         }
 
-        for (Flight flight : flightsList) {
-            if (!flight.isRemoved() && flight.getDepartureDate().isAfter(LocalDate.now())) {
-                boolean matches = true;
-                if (!airline.isEmpty() && !flight.getPlane().getAirline().getName().equalsIgnoreCase(airline)) {
-                    matches = false;
-                }
-                if (!origin.isEmpty() && !flight.getOrigin().equalsIgnoreCase(origin)) {
-                    matches = false;
-                }
-                if (!destination.isEmpty() && !flight.getDestination().equalsIgnoreCase(destination)) {
-                    matches = false;
-                }
-                if (departureDate != null && !flight.getDepartureDate().isEqual(departureDate)) {
-                    matches = false;
-                }
-                if (matches) {
-                    activeFlights.add(flight);
-                }
-            }
+        List<Flight> activeFlights = fbs.searchFlights(origin, destination, departureDate);
+        if (!airline.isEmpty()) {
+            activeFlights.removeIf(flight -> !flight.getPlane().getAirline().getName().equalsIgnoreCase(airline));
         }
         return activeFlights;
     }
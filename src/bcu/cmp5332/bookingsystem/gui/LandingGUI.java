@@ -3,7 +3,7 @@ package bcu.cmp5332.bookingsystem.gui;
 import java.awt.*;
 import java.awt.event.*;
 import java.io.IOException;
-import java.util.List;
+import java.util.Collection;
 import javax.swing.*;
 
 import bcu.cmp5332.bookingsystem.data.FlightBookingSystemData;
@@ -322,7 +322,7 @@ public class LandingGUI {
      * @throws IOException If an error occurs during credential verification.
      */
     private boolean verifyAirline(String email, String password) throws IOException {
-        List<Airline> airlines = fbs.getAirlines();
+        Collection<Airline> airlines = fbs.snapshot().getAirlines();
         for (Airline airline : airlines) {
             if (airline.getEmail().equals(email) && airline.getPassword().equals(password)) {
                 loginFrame.setVisible(false);
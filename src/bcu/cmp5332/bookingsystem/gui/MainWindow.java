@@ -5,10 +5,11 @@ import java.awt.Container;
 import java.awt.Font;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.io.IOException;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 import javax.swing.JFrame;
 import javax.swing.JLabel;
@@ -21,11 +22,14 @@ import javax.swing.JScrollPane;
 import javax.swing.JTable;
 import javax.swing.ListSelectionModel;
 import javax.swing.SwingConstants;
+import javax.swing.SwingWorker;
 import javax.swing.UIManager;
 import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
 
-import bcu.cmp5332.bookingsystem.data.FlightBookingSystemData;
+import bcu.cmp5332.bookingsystem.commands.CommandPipeline;
+import bcu.cmp5332.bookingsystem.commands.RemoveCustomer;
+import bcu.cmp5332.bookingsystem.commands.RemoveFlight;
 import bcu.cmp5332.bookingsystem.main.CustomerException;
 import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
 import bcu.cmp5332.bookingsystem.model.Airline;
@@ -205,16 +209,8 @@ public class MainWindow extends JFrame implements ActionListener {
     }
     @Override
     public void actionPerformed(ActionEvent ae) {
-    	try {
-    		FlightBookingSystemData.load();
-    		FlightBookingSystemData.store(fbs);
-    	} catch (IOException ex) {
-    		JOptionPane.showMessageDialog(this, ex, "Error", JOptionPane.ERROR_MESSAGE);
-    	} catch (FlightBookingSystemException e) {
-			e.printStackTrace();
-		} catch (CustomerException e) {
-			e.printStackTrace();
-		}
+    	// Saved by the writer thread, which is the only one that touches the system
+    	CommandPipeline.forSystem(fbs).flush();
         if (ae.getSource() == adminExit) {
             System.exit(0);
         }else if (ae.getSource() == flightsViewAll) {
@@ -255,13 +251,17 @@ public class MainWindow extends JFrame implements ActionListener {
     }
     
     public void displayAllBookings() {
-        List<Booking> bookingsList = fbs.getBookings();
+        afterHistoryLoaded(this::showAllBookings);
+    }
+
+    private void showAllBookings() {
+        Collection<Booking> bookingsList = fbs.snapshot().getBookings();
         String[] columns = new String[]{"Bookings ID","Customer Name", "Flight No", "Origin", "Destination", "Departure Date", "Booking Date"};
 
 
         Object[][] data = new Object[bookingsList.size()][7];
-        for (int i = 0; i < bookingsList.size(); i++) {
-            Booking booking = bookingsList.get(i);
+        int i = 0;
+        for (Booking booking : bookingsList) {
             data[i][0] = booking.getId();
             data[i][1] = booking.getCustomer().getName();
             data[i][2] = booking.getFlight().getId();
@@ -269,6 +269,7 @@ public class MainWindow extends JFrame implements ActionListener {
             data[i][4] = booking.getFlight().getDestination();
             data[i][5] = booking.getFlight().getDepartureDate();
             data[i][6] = booking.getBookingDate();
+            i++;
         }
 
         JTable table = new JTable(data, columns);  
@@ -278,7 +279,7 @@ public class MainWindow extends JFrame implements ActionListener {
     }
     
     public void displayBookings() {
-        List<Booking> bookingsList = fbs.getBookings();
+        Collection<Booking> bookingsList = fbs.snapshot().getBookings();
         String[] columns = new String[]{"Bookings ID","Customer Name", "Flight No", "Origin", "Destination", "Departure Date", "Booking Date"};
 
         
@@ -311,16 +312,17 @@ public class MainWindow extends JFrame implements ActionListener {
     
 
     public void displayPlane() {
-        List<Plane> planeList = fbs.getPlanes();
+        Collection<Plane> planeList = fbs.snapshot().getPlanes();
         String[] columns = new String[]{"Plane ID", "Plane Name", "Capacity","Airlines"};
 
         Object[][] data = new Object[planeList.size()][4];
-        for (int i = 0; i < planeList.size(); i++) {
-            Plane plane = planeList.get(i);
+        int i = 0;
+        for (Plane plane : planeList) {
             data[i][0] = plane.getId();
             data[i][1] = plane.getModel();
             data[i][2] = plane.getCapacity();
             data[i][3] = plane.getAirline().getName();
+            i++;
         }
 
         JTable table = new JTable(data, columns);
@@ -330,13 +332,17 @@ public class MainWindow extends JFrame implements ActionListener {
     }
 
     public void displayAllFlights() {
-        List<Flight> flightsList = fbs.getFlights();
+        afterHistoryLoaded(this::showAllFlights);
+    }
+
+    private void showAllFlights() {
+        Collection<Flight> flightsList = fbs.snapshot().getFlights();
         String[] columns = new String[]{"Flight ID", "Flight No", "Origin", "Destination", "Departure Date", "Price", "Capacity","Plane","Airline"};
 
 
         Object[][] data = new Object[flightsList.size()][9];
-        for (int i = 0; i < flightsList.size(); i++) {
-            Flight flight = flightsList.get(i);
+        int i = 0;
+        for (Flight flight : flightsList) {
             data[i][0] = flight.getId();
             data[i][1] = flight.getFlightNumber();
             data[i][2] = flight.getOrigin();
@@ -347,6 +353,7 @@ public class MainWindow extends JFrame implements ActionListener {
             data[i][7] = flight.getPlane().getModel();
             data[i][8] = flight.getPlane().getAirline().getName();
             
+            i++;
         }
 
         JTable table = new JTable(data, columns);
@@ -358,11 +365,9 @@ public class MainWindow extends JFrame implements ActionListener {
                     int selectedRow = table.getSelectedRow();
                     if (selectedRow != -1) {
                         int selectedData = (int) table.getValueAt(selectedRow, 0);
-                        try {
-                            Flight flight = fbs.getFlightByID(selectedData);
+                        Flight flight = fbs.snapshot().getFlight(selectedData);
+                        if (flight != null) {
                             new ShowFlightWindow(flight);
-                        } catch (FlightBookingSystemException e1) {
-                            e1.printStackTrace();
                         }
                     }
                 }
@@ -375,18 +380,19 @@ public class MainWindow extends JFrame implements ActionListener {
     
     
     public void displayAirlines() {
-        List<Airline> airlineList = fbs.getAirlines();
+        Collection<Airline> airlineList = fbs.snapshot().getAirlines();
         String[] columns = new String[]{"Airline ID", "Airline Name", "Email", "Password"};
 
 
 
         Object[][] data = new Object[airlineList.size()][4];
-        for (int i = 0; i < airlineList.size(); i++) {
-            Airline airline = airlineList.get(i);
+        int i = 0;
+        for (Airline airline : airlineList) {
             data[i][0] = airline.getId();
             data[i][1] = airline.getName();
             data[i][2] = airline.getEmail();
             data[i][3] = airline.getPassword();
+            i++;
         }
 
         JTable table = new JTable(data, columns);
@@ -410,15 +416,9 @@ public class MainWindow extends JFrame implements ActionListener {
     
 
     public void displayFlights() {
-        List<Flight> flightsList = fbs.getFlights();
         String[] columns = new String[]{"Flight ID", "Flight No", "Origin", "Destination", "Departure Date", "Price", "Capacity","Plane","Airline"};
 
-        List<Flight> activeFlights = new ArrayList<>();
-        for (Flight flight : flightsList) {
-            if (!flight.isRemoved() && flight.getDepartureDate().isAfter(LocalDate.now())) {
-                activeFlights.add(flight);
-            }
-        }
+        List<Flight> activeFlights = fbs.getFutureFlights();
 
         Object[][] data = new Object[activeFlights.size()][9];
         for (int i = 0; i < activeFlights.size(); i++) {
@@ -443,11 +443,9 @@ public class MainWindow extends JFrame implements ActionListener {
                     int selectedRow = table.getSelectedRow();
                     if (selectedRow != -1) {
                         int selectedData = (int) table.getValueAt(selectedRow, 0);
-                        try {
-                            Flight flight = fbs.getFlightByID(selectedData);
+                        Flight flight = fbs.snapshot().getFlight(selectedData);
+                        if (flight != null) {
                             new ShowFlightWindow(flight);
-                        } catch (FlightBookingSystemException e1) {
-                            e1.printStackTrace();
                         }
                     }
                 }
@@ -459,7 +457,7 @@ public class MainWindow extends JFrame implements ActionListener {
     }
     
     public void deleteCustomer() {
-        List<Customer> customerList = fbs.getCustomers();
+        Collection<Customer> customerList = fbs.snapshot().getCustomers();
         String[] columns = new String[]{"Customer ID", "Name","Age", "Email", "Phone Number", "Number of Booking"};
 
         List<Customer> activeCustomers = new ArrayList<>();
@@ -490,7 +488,6 @@ public class MainWindow extends JFrame implements ActionListener {
                     if (selectedRow != -1) {
                         int selectedData = (int) table.getValueAt(selectedRow, 0);
                         try {
-                            Customer customer = fbs.getCustomerByID(selectedData);
                             int response = JOptionPane.showConfirmDialog(
                                 MainWindow.this,
                                 "Do you want to continue action?",
@@ -500,11 +497,11 @@ public class MainWindow extends JFrame implements ActionListener {
                             );
                             
                             if (response == JOptionPane.YES_OPTION) {
-                                customer.removeCustomer();
+                                CommandPipeline.forSystem(fbs).execute(new RemoveCustomer(selectedData));
                                 deleteCustomer();
                             }
 
-                        } catch (CustomerException e1) {
+                        } catch (CustomerException | FlightBookingSystemException e1) {
                             e1.printStackTrace();
                         }
                     }
@@ -518,15 +515,9 @@ public class MainWindow extends JFrame implements ActionListener {
     }
     
     public void deleteFlight() {
-        List<Flight> flightsList = fbs.getFlights();
         String[] columns = new String[]{"Flight ID", "Flight No", "Origin", "Destination", "Departure Date", "Price", "Capacity","Plane","Airline"};
 
-        List<Flight> activeFlights = new ArrayList<>();
-        for (Flight flight : flightsList) {
-            if (!flight.isRemoved() && flight.getDepartureDate().isAfter(LocalDate.now())) {
-                activeFlights.add(flight);
-            }
-        }
+        List<Flight> activeFlights = fbs.getFutureFlights();
 
         Object[][] data = new Object[activeFlights.size()][9];
         for (int i = 0; i < activeFlights.size(); i++) {
@@ -551,9 +542,7 @@ public class MainWindow extends JFrame implements ActionListener {
                     int selectedRow = table.getSelectedRow();
                     if (selectedRow != -1) {
                         int selectedData = (int) table.getValueAt(selectedRow, 0);
-                        Flight flight;
 						try {
-							flight = fbs.getFlightByID(selectedData);
 							int response = JOptionPane.showConfirmDialog(
 									MainWindow.this,
 									"Do you want to continue action?",
@@ -563,10 +552,10 @@ public class MainWindow extends JFrame implements ActionListener {
 									);
 							
 							if (response == JOptionPane.YES_OPTION) {
-								flight.removeFlight();
+								CommandPipeline.forSystem(fbs).execute(new RemoveFlight(selectedData));
 								deleteFlight();
 							}
-						} catch (FlightBookingSystemException e1) {
+						} catch (FlightBookingSystemException | CustomerException e1) {
 							// TODO Auto-generated catch block
 							e1.printStackTrace();
 						}
@@ -582,7 +571,7 @@ public class MainWindow extends JFrame implements ActionListener {
     
 
     public void displayCustomers() {
-        List<Customer> customerList = fbs.getCustomers();
+        Collection<Customer> customerList = fbs.snapshot().getCustomers();
         String[] columns = new String[]{"Customer ID", "Name","Age", "Email", "Phone Number", "Number of Booking"};
 
         List<Customer> activeCustomers = new ArrayList<>();
@@ -612,12 +601,12 @@ public class MainWindow extends JFrame implements ActionListener {
                     int selectedRow = table.getSelectedRow();
                     if (selectedRow != -1) {
                         int selectedData = (int) table.getValueAt(selectedRow, 0);
-                        try {
-                            Customer customer = fbs.getCustomerByID(selectedData);
-                            new ShowCustomerWindow(customer);
-                        } catch (CustomerException e1) {
-                            e1.printStackTrace();
-                        }
+                        afterHistoryLoaded(() -> {
+                            Customer customer = fbs.snapshot().getCustomer(selectedData);
+                            if (customer != null) {
+                                new ShowCustomerWindow(customer);
+                            }
+                        });
                     }
                 }
             }
@@ -633,18 +622,19 @@ public class MainWindow extends JFrame implements ActionListener {
     }
     
     public void displayAllCustomers() {
-        List<Customer> customerList = fbs.getCustomers();
+        Collection<Customer> customerList = fbs.snapshot().getCustomers();
         String[] columns = new String[]{"Customer ID", "Name","Age", "Email", "Phone Number", "Number of Booking"};
         
         Object[][] data = new Object[customerList.size()][6];
-        for (int i = 0; i < customerList.size(); i++) {
-            Customer customer = customerList.get(i);
+        int i = 0;
+        for (Customer customer : customerList) {
             data[i][0] = customer.getId();
             data[i][1] = customer.getName();
             data[i][2] = customer.getAge();
             data[i][3] = customer.getEmail();
             data[i][4] = customer.getPhone();
             data[i][5] = customer.getBookings().size();
+            i++;
         }
 
         JTable table = new JTable(data, columns);
@@ -656,12 +646,12 @@ public class MainWindow extends JFrame implements ActionListener {
                     int selectedRow = table.getSelectedRow();
                     if (selectedRow != -1) {
                         int selectedData = (int) table.getValueAt(selectedRow, 0);
-                        try {
-                            Customer customer = fbs.getCustomerByID(selectedData);
-                            new ShowCustomerWindow(customer);
-                        } catch (CustomerException e1) {
-                            e1.printStackTrace();
-                        }
+                        afterHistoryLoaded(() -> {
+                            Customer customer = fbs.snapshot().getCustomer(selectedData);
+                            if (customer != null) {
+                                new ShowCustomerWindow(customer);
+                            }
+                        });
                     }
                 }
             }
@@ -671,4 +661,35 @@ public class MainWindow extends JFrame implements ActionListener {
         this.revalidate();
     }
 
+    /**
+     * Loads the flights and bookings of past months on the writer thread, so the event
+     * thread neither parses them nor changes the system, then runs the action on the
+     * event thread.
+     *
+     * @param action what to show once the history is in the system's snapshot
+     */
+    private void afterHistoryLoaded(Runnable action) {
+        new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() throws Exception {
+                CommandPipeline.forSystem(fbs).execute(FlightBookingSystem::loadHistory);
+                return null;
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    get();
+                } catch (ExecutionException ex) {
+                    JOptionPane.showMessageDialog(MainWindow.this, ex.getCause(), "Error", JOptionPane.ERROR_MESSAGE);
+                    return;
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                action.run();
+            }
+        }.execute();
+    }
+
 }
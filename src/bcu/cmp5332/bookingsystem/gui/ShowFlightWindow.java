@@ -1,6 +1,7 @@
 package bcu.cmp5332.bookingsystem.gui;
 
 import java.awt.Container;
+import java.util.List;
 import javax.swing.ImageIcon;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
@@ -49,17 +50,17 @@ public class ShowFlightWindow extends JFrame {
         
         String[] columns = new String[]{"Customer ID", "Name", "Email", "Phone Number", "Price"};
         
-        Object[][] data = new Object[flight.getPassengers().size()][5];
-        for (int i = 0; i < flight.getPassengers().size(); i++) {
-            Customer customer = flight.getPassengers().get(i);
+        List<Customer> passengers = flight.getPassengers();
+        Object[][] data = new Object[passengers.size()][5];
+        for (int i = 0; i < passengers.size(); i++) {
+            Customer customer = passengers.get(i);
             data[i][0] = customer.getId();
             data[i][1] = customer.getName();
             data[i][2] = customer.getEmail();
             data[i][3] = customer.getPhone();
-            for (Booking booking : customer.getBookings()) {
-                if (booking.getFlight() == flight) {
-                    data[i][4] = booking.getPrice();
-                }
+            Booking booking = flight.getBooking(customer);
+            if (booking != null) {
+                data[i][4] = booking.getPrice();
             }
         }
 
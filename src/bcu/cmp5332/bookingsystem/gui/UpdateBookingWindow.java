@@ -1,8 +1,8 @@
 package bcu.cmp5332.bookingsystem.gui;
 
 import bcu.cmp5332.bookingsystem.commands.Command;
+import bcu.cmp5332.bookingsystem.commands.CommandPipeline;
 import bcu.cmp5332.bookingsystem.commands.EditBooking;
-import bcu.cmp5332.bookingsystem.data.FlightBookingSystemData;
 import bcu.cmp5332.bookingsystem.main.CustomerException;
 import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
 import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
@@ -102,7 +102,7 @@ public class UpdateBookingWindow extends JFrame implements ActionListener {
 
     /**
      * Retrieves booking ID and flight ID input values, creates an EditBooking command,
-     * executes it on the flight booking system, and closes this window.
+     * executes it through the system's command pipeline, and closes this window.
      * 
      * @throws CustomerException if there is an issue with the customer data
      * @throws IOException if an I/O error occurs
@@ -113,7 +113,7 @@ public class UpdateBookingWindow extends JFrame implements ActionListener {
             int flightID = Integer.parseInt(flightId.getText());
 
             Command updateBooking = new EditBooking(bookingID, flightID);
-            updateBooking.execute(FlightBookingSystemData.load());
+            CommandPipeline.forSystem(mw).execute(updateBooking);
 
             this.setVisible(false);
         } catch (FlightBookingSystemException ex) {
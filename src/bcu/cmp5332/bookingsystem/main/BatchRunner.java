@@ -0,0 +1,111 @@
+package bcu.cmp5332.bookingsystem.main;
+
+import bcu.cmp5332.bookingsystem.commands.Command;
+import bcu.cmp5332.bookingsystem.commands.CommandPipeline;
+import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a script of fully specified one-line commands without prompting.
+ *
+ * <p>Every line of the script is parsed with one reused {@link CommandTokenizer} by
+ * {@link CommandParser#parse(CommandTokenizer, String)} and queued on the system's
+ * {@link CommandPipeline} without waiting for it to run, so parsing and executing overlap.
+ * The changes are saved once every {@code saveEvery} commands and once more at the end
+ * of the script, rather than after each command. Blank lines and lines starting with
+ * {@code #} are skipped, and {@code exit} ends the script early.</p>
+ *
+ * <p>A line that cannot be parsed or whose command fails is reported with its line number
+ * on the error stream and the script carries on.</p>
+ */
+public class BatchRunner {
+
+    /**
+     * Number of commands run between saves when none is given.
+     */
+    public static final int DEFAULT_SAVE_EVERY = Integer.getInteger("fbs.batchSaveEvery", 10_000);
+
+    private final FlightBookingSystem fbs;
+    private final String role;
+    private final int saveEvery;
+
+    /**
+     * Creates a runner for a system.
+     *
+     * @param fbs the system the commands are run on
+     * @param role the role the commands are run as (admin, airline, customer)
+     * @param saveEvery the number of commands run between saves
+     */
+    public BatchRunner(FlightBookingSystem fbs, String role, int saveEvery) {
+        if (saveEvery <= 0) {
+            throw new IllegalArgumentException("The number of commands between saves must be positive.");
+        }
+        this.fbs = fbs;
+        this.role = role;
+        this.saveEvery = saveEvery;
+    }
+
+    /**
+     * Runs every command of a script and waits for their changes to be saved.
+     *
+     * @param script the script to read the commands from
+     * @return the number of commands that failed, including lines that could not be parsed
+     * @throws IOException if the script cannot be read
+     * @throws FlightBookingSystemException if the changes cannot be saved
+     */
+    public int run(BufferedReader script) throws IOException, FlightBookingSystemException {
+        CommandPipeline pipeline = CommandPipeline.forSystem(fbs);
+        CommandTokenizer tokens = new CommandTokenizer();
+        AtomicInteger failed = new AtomicInteger();
+        int queued = 0;
+        int lineNumber = 0;
+        String line;
+        while ((line = script.readLine()) != null) {
+            lineNumber++;
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            if (trimmed.equals("exit")) {
+                break;
+            }
+            Command command;
+            try {
+                command = CommandParser.parse(tokens.reset(trimmed), role);
+            } catch (FlightBookingSystemException ex) {
+                report(lineNumber, ex);
+                failed.incrementAndGet();
+                continue;
+            }
+            int reported = lineNumber;
+            pipeline.submitDeferred(command).whenComplete((ignored, ex) -> {
+                if (ex != null) {
+                    report(reported, ex);
+                    failed.incrementAndGet();
+                }
+            });
+            if (++queued % saveEvery == 0) {
+                save(pipeline.flush());
+            }
+        }
+        save(pipeline.flush());
+        return failed.get();
+    }
+
+    private static void save(CompletableFuture<Void> saved) throws FlightBookingSystemException {
+        try {
+            saved.join();
+        } catch (CompletionException ex) {
+            throw new FlightBookingSystemException("Unable to save the changes.\nError: " + ex.getCause());
+        }
+    }
+
+    private static void report(int lineNumber, Throwable ex) {
+        System.err.println("Line " + lineNumber + ": " + ex.getMessage());
+    }
+}
@@ -2,6 +2,7 @@ package bcu.cmp5332.bookingsystem.main;
 
 import bcu.cmp5332.bookingsystem.commands.*;
 import bcu.cmp5332.bookingsystem.model.Airline;
+import bcu.cmp5332.bookingsystem.model.ConnectionSearch;
 import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
 
 import java.io.BufferedReader;
@@ -9,7 +10,7 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
-import java.util.List;
+import java.util.Collection;
 
 /**
  * The CommandParser class parses user input commands and creates Command objects accordingly.
@@ -18,8 +19,26 @@ import java.util.List;
  */
 public class CommandParser {
 
+    private static BufferedReader console;
+
+    /**
+     * Gets the reader over the console shared by the prompts of the command line.
+     * A single reader is used, so lines typed ahead of a prompt are not lost in the
+     * buffer of another one.
+     *
+     * @return the console reader
+     */
+    static synchronized BufferedReader console() {
+        if (console == null) {
+            console = new BufferedReader(new InputStreamReader(System.in));
+        }
+        return console;
+    }
+
     /**
      * Parses the user input command and returns the corresponding Command object.
+     * The add commands given without their fields prompt for each of them on the console;
+     * every other command is parsed from the line alone, see {@link #parse(CommandTokenizer, String)}.
      * 
      * @param line The user input command line
      * @param role The role of the user (admin, airline, customer)
@@ -28,12 +47,14 @@ public class CommandParser {
      * @throws FlightBookingSystemException If there is an error in command parsing or execution
      */
     public static Command parse(String line, String role) throws IOException, FlightBookingSystemException {
-        BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
+        CommandTokenizer tokens = new CommandTokenizer(line);
+        String cmd = tokens.hasNext() ? tokens.next() : "";
+        if (tokens.hasNext()) {
+            return parse(tokens.reset(line), role);
+        }
+        BufferedReader reader = console();
 
         try {
-            String[] parts = line.split(" ", 3);
-            String cmd = parts[0];
-
             if (cmd.equals("addflight")) {
                 checkPermissions(role, "airline");
                 System.out.print("Flight Number: ");
@@ -77,46 +98,127 @@ public class CommandParser {
                 System.out.print("Password: ");
                 String password = reader.readLine();
                 return new AddAirline(name, email, password);
-            } else if (cmd.equals("loadgui")) {
-                return new LoadGUI();
-            } else if (parts.length == 1) {
-                if (line.equals("listflights")) {
-                    return new ListFlights();
-                } else if (line.equals("listplanes")) {
-                    return new ListPlane();
-                } else if (line.equals("listcustomers")) {
-                    return new ListCustomers();
-                } else if (line.equals("help")) {
-                    return new Help(role);
-                }
-            } else if (parts.length == 2) {
-                int id = Integer.parseInt(parts[1]);
-
-                if (cmd.equals("showflight")) {
-                    return new ShowFlight(--id); // Adjusting id to zero-based index
-                } else if (cmd.equals("showcustomer")) {
-                    return new ShowCustomer(--id); // Adjusting id to zero-based index
-                }
-            } else if (parts.length == 3) {
-                int customer_id = Integer.parseInt(parts[1]);
-                int flight_id = Integer.parseInt(parts[2]);
-
-                if (cmd.equals("addbooking")) {
-                    checkPermissions(role, "customer");
-                    return new AddBooking(customer_id, flight_id);
-                } else if (cmd.equals("cancelbooking")) {
-                    checkPermissions(role, "customer");
-                    return new CancelBooking(customer_id, flight_id);
-                } else if (cmd.equals("editbooking")) {
-                    checkPermissions(role, "customer");
-                    return new EditBooking(customer_id, flight_id);
-                }
             }
         } catch (NumberFormatException ex) {
             throw new FlightBookingSystemException("Invalid number format.");
         }
 
-        throw new FlightBookingSystemException("Invalid command.");
+        return parse(tokens.reset(line), role);
+    }
+
+    /**
+     * Parses a fully specified one-line command, without prompting. The add commands take
+     * their fields on the line, in the order the command line prompts for them:
+     * <pre>
+     * addflight [flight number] [origin] [destination] [price] [plane id] [YYYY-MM-DD]
+     * addcustomer [name] [age] [phone] [email]
+     * addplane [model] [capacity] [airline id]
+     * addairline [name] [email] [password]
+     * </pre>
+     * {@code searchconnections [origin] [destination]} may be followed by the departure date
+     * (or {@code any}), the most stops and the order of the results ({@code price} or
+     * {@code arrival}), each optional in that order.
+     * Fields holding spaces are written between double quotes, as in {@code "Aryan Malla"}.
+     * 
+     * @param tokens The tokenizer, reset to the line to parse
+     * @param role The role of the user (admin, airline, customer)
+     * @return Command object corresponding to the command line
+     * @throws FlightBookingSystemException If the line is not a valid command, or the user may not run it
+     */
+    public static Command parse(CommandTokenizer tokens, String role) throws FlightBookingSystemException {
+        String cmd = tokens.next();
+        Command command;
+        switch (cmd) {
+            case "addflight" -> {
+                checkPermissions(role, "airline");
+                String flightNumber = tokens.next();
+                String origin = tokens.next();
+                String destination = tokens.next();
+                double price = tokens.nextDouble();
+                int planeId = tokens.nextInt();
+                LocalDate departureDate = tokens.nextDate();
+                if (departureDate.isBefore(LocalDate.now())) {
+                    throw new FlightBookingSystemException("Date should be after " + LocalDate.now() + ". Cannot create flight.");
+                }
+                command = new AddFlight(flightNumber, origin, destination, price, planeId, departureDate);
+            }
+            case "addcustomer" -> {
+                checkPermissions(role, "customer");
+                String name = tokens.next();
+                int age = tokens.nextInt();
+                command = new AddCustomer(name, age, tokens.next(), tokens.next());
+            }
+            case "addplane" -> {
+                checkPermissions(role, "airline");
+                String name = tokens.next();
+                int capacity = tokens.nextInt();
+                command = new AddPlane(name, capacity, tokens.nextInt());
+            }
+            case "addairline" -> {
+                checkPermissions(role, "admin");
+                command = new AddAirline(tokens.next(), tokens.next(), tokens.next());
+            }
+            case "farecalendar" -> command = new ShowFareCalendar(tokens.next(), tokens.next());
+            case "searchconnections" -> {
+                String origin = tokens.next();
+                String destination = tokens.next();
+                LocalDate departureDate = null;
+                int maxStops = SearchConnections.DEFAULT_MAX_STOPS;
+                ConnectionSearch.Ranking ranking = ConnectionSearch.Ranking.PRICE;
+                if (tokens.hasNext()) {
+                    String date = tokens.next();
+                    try {
+                        departureDate = date.equals("any") ? null : LocalDate.parse(date);
+                    } catch (DateTimeParseException ex) {
+                        throw new FlightBookingSystemException("Date must be in YYYY-MM-DD format.");
+                    }
+                }
+                if (tokens.hasNext()) {
+                    maxStops = tokens.nextInt();
+                }
+                if (tokens.hasNext()) {
+                    String order = tokens.next();
+                    if (order.equals("arrival")) {
+                        ranking = ConnectionSearch.Ranking.ARRIVAL;
+                    } else if (!order.equals("price")) {
+                        throw new FlightBookingSystemException("Results can be sorted by price or arrival.");
+                    }
+                }
+                command = new SearchConnections(origin, destination, departureDate, maxStops, ranking);
+            }
+            case "loadgui" -> {
+                return new LoadGUI();
+            }
+            case "listflights" -> command = new ListFlights();
+            case "listplanes" -> command = new ListPlane();
+            case "listcustomers" -> command = new ListCustomers();
+            case "help" -> command = new Help(role);
+            case "showflight" -> command = new ShowFlight(tokens.nextInt() - 1); // Adjusting id to zero-based index
+            case "showcustomer" -> command = new ShowCustomer(tokens.nextInt() - 1); // Adjusting id to zero-based index
+            case "addbooking" -> {
+                int customer_id = tokens.nextInt();
+                int flight_id = tokens.nextInt();
+                // addbooking takes an optional seat preference after the flight id
+                String seat = tokens.hasNext() ? tokens.next() : null;
+                checkPermissions(role, "customer");
+                command = new AddBooking(customer_id, flight_id, seat);
+            }
+            case "cancelbooking" -> {
+                int customer_id = tokens.nextInt();
+                int flight_id = tokens.nextInt();
+                checkPermissions(role, "customer");
+                command = new CancelBooking(customer_id, flight_id);
+            }
+            case "editbooking" -> {
+                int booking_id = tokens.nextInt();
+                int flight_id = tokens.nextInt();
+                checkPermissions(role, "customer");
+                command = new EditBooking(booking_id, flight_id);
+            }
+            default -> throw new FlightBookingSystemException("Invalid command.");
+        }
+        tokens.expectEnd();
+        return command;
     }
 
     /**
@@ -151,11 +253,11 @@ public class CommandParser {
      * Verifies if the user is an airline based on provided credentials.
      * 
      * @param reader BufferedReader for reading user input
-     * @param airlines List of airlines for verification
+     * @param airlines the airlines to verify against
      * @return true if user is verified as airline, false otherwise
      * @throws IOException If an I/O error occurs
      */
-    private static boolean verifyAirline(BufferedReader reader, List<Airline> airlines) throws IOException {
+    private static boolean verifyAirline(BufferedReader reader, Collection<Airline> airlines) throws IOException {
         System.out.print("Email: ");
         String email = reader.readLine();
         System.out.print("Password: ");
@@ -206,7 +308,7 @@ public class CommandParser {
      * @throws IOException If an I/O error occurs
      */
     public static String checkRole(FlightBookingSystem fbs) throws IOException {
-        BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
+        BufferedReader reader = console();
 
         while (true) {
             System.out.print("Who are you? (admin, airline, customer): ");
@@ -219,7 +321,7 @@ public class CommandParser {
                     System.out.println("Invalid admin credentials.");
                 }
             } else if (role.equals("airline")) {
-                if (verifyAirline(reader, fbs.getAirlines())) {
+                if (verifyAirline(reader, fbs.getAirlinesView())) {
                     return "airline";
                 } else {
                     System.out.println("Invalid airline credentials.");
@@ -0,0 +1,152 @@
+package bcu.cmp5332.bookingsystem.main;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Splits a command line into its words.
+ *
+ * <p>Words are separated by spaces or tabs. A word holding spaces, such as a customer's
+ * full name, is written between double quotes, and a quote inside it is written twice.
+ * The tokenizer is {@link #reset(String) reset} for every line, so a script of any length
+ * is read with a single instance and no intermediate arrays.</p>
+ */
+public final class CommandTokenizer {
+
+    private String line = "";
+    private int position;
+    private final StringBuilder quoted = new StringBuilder();
+
+    /**
+     * Creates a tokenizer with no line; {@link #reset(String)} gives it one.
+     */
+    public CommandTokenizer() {
+    }
+
+    /**
+     * Creates a tokenizer over a line.
+     *
+     * @param line the line to split
+     */
+    public CommandTokenizer(String line) {
+        reset(line);
+    }
+
+    /**
+     * Starts splitting another line.
+     *
+     * @param line the line to split
+     * @return this tokenizer
+     */
+    public CommandTokenizer reset(String line) {
+        this.line = line == null ? "" : line;
+        this.position = 0;
+        return this;
+    }
+
+    /**
+     * Checks whether the line has another word.
+     *
+     * @return true if there is another word
+     */
+    public boolean hasNext() {
+        skipBlanks();
+        return position < line.length();
+    }
+
+    /**
+     * Reads the next word.
+     *
+     * @return the word, without its quotes
+     * @throws FlightBookingSystemException if the line has no more words, or a quote is not closed
+     */
+    public String next() throws FlightBookingSystemException {
+        if (!hasNext()) {
+            throw new FlightBookingSystemException("Invalid command.");
+        }
+        if (line.charAt(position) != '"') {
+            int start = position;
+            while (position < line.length() && !isBlank(line.charAt(position))) {
+                position++;
+            }
+            return line.substring(start, position);
+        }
+        quoted.setLength(0);
+        position++;
+        while (position < line.length()) {
+            char c = line.charAt(position++);
+            if (c != '"') {
+                quoted.append(c);
+            } else if (position < line.length() && line.charAt(position) == '"') {
+                quoted.append('"');
+                position++;
+            } else {
+                return quoted.toString();
+            }
+        }
+        throw new FlightBookingSystemException("Missing closing quote.");
+    }
+
+    /**
+     * Reads the next word as a whole number.
+     *
+     * @return the number
+     * @throws FlightBookingSystemException if there is no word, or it is not a number
+     */
+    public int nextInt() throws FlightBookingSystemException {
+        try {
+            return Integer.parseInt(next());
+        } catch (NumberFormatException ex) {
+            throw new FlightBookingSystemException("Invalid number format.");
+        }
+    }
+
+    /**
+     * Reads the next word as a decimal number.
+     *
+     * @return the number
+     * @throws FlightBookingSystemException if there is no word, or it is not a number
+     */
+    public double nextDouble() throws FlightBookingSystemException {
+        try {
+            return Double.parseDouble(next());
+        } catch (NumberFormatException ex) {
+            throw new FlightBookingSystemException("Invalid number format.");
+        }
+    }
+
+    /**
+     * Reads the next word as a date in {@code YYYY-MM-DD} format.
+     *
+     * @return the date
+     * @throws FlightBookingSystemException if there is no word, or it is not a date
+     */
+    public LocalDate nextDate() throws FlightBookingSystemException {
+        try {
+            return LocalDate.parse(next());
+        } catch (DateTimeParseException ex) {
+            throw new FlightBookingSystemException("Date must be in YYYY-MM-DD format.");
+        }
+    }
+
+    /**
+     * Checks that every word of the line has been read.
+     *
+     * @throws FlightBookingSystemException if words are left over, naming the first of them
+     */
+    public void expectEnd() throws FlightBookingSystemException {
+        if (hasNext()) {
+            throw new FlightBookingSystemException("Too many arguments, unexpected: " + next());
+        }
+    }
+
+    private void skipBlanks() {
+        while (position < line.length() && isBlank(line.charAt(position))) {
+            position++;
+        }
+    }
+
+    private static boolean isBlank(char c) {
+        return c == ' ' || c == '\t';
+    }
+}
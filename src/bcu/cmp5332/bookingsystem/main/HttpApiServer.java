@@ -0,0 +1,407 @@
+package bcu.cmp5332.bookingsystem.main;
+
+import bcu.cmp5332.bookingsystem.commands.AddBooking;
+import bcu.cmp5332.bookingsystem.commands.CancelBooking;
+import bcu.cmp5332.bookingsystem.commands.CommandPipeline;
+import bcu.cmp5332.bookingsystem.commands.EditBooking;
+import bcu.cmp5332.bookingsystem.data.FlightBookingSystemData;
+import bcu.cmp5332.bookingsystem.model.Booking;
+import bcu.cmp5332.bookingsystem.model.Customer;
+import bcu.cmp5332.bookingsystem.model.Flight;
+import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A local HTTP front end to the flight booking system.
+ *
+ * <p>Every request is handled on a virtual thread of its own, so thousands of sessions
+ * can be open at once against one process. Flights, customers and bookings are looked up
+ * in the system's {@link FlightBookingSystem#snapshot() snapshot}, so they never wait for
+ * commands to run; only a record the snapshot lacks, which may still be in the history
+ * partition, is looked up on the pipeline's writer thread, the one thread that loads
+ * history into the system. Searches use the system's synchronized flight indexes.
+ * Bookings are made, cancelled and edited by the same
+ * {@link AddBooking}, {@link CancelBooking} and {@link EditBooking} commands the command
+ * line uses, run through the system's
+ * {@link CommandPipeline}, so a response is only sent once the change has been written.</p>
+ *
+ * <p>Endpoints, all answering in plain text:</p>
+ * <ul>
+ *   <li>{@code GET /flights?origin=&destination=&date=} searches the active future
+ *       flights; every parameter is optional.</li>
+ *   <li>{@code GET /flights/{id}} shows a flight.</li>
+ *   <li>{@code GET /customers/{id}} shows a customer.</li>
+ *   <li>{@code POST /bookings?customer=&flight=&seat=} books a flight; the seat is
+ *       optional and may be a label such as {@code 12C} or {@code window}.</li>
+ *   <li>{@code DELETE /bookings?customer=&flight=} cancels a booking.</li>
+ *   <li>{@code PUT /bookings/{id}?flight=} moves a booking to another flight.</li>
+ * </ul>
+ * <p>Parameters may be passed in the query string or as a form-encoded request body. A
+ * request that cannot be decoded is answered with 400, and an unexpected error while
+ * handling a request with 500, so a client is never left without a response.</p>
+ */
+public class HttpApiServer implements AutoCloseable {
+
+    /**
+     * Port the server listens on when none is given.
+     */
+    public static final int DEFAULT_PORT = 8080;
+
+    private final FlightBookingSystem fbs;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Creates a server for a system, listening on the loopback interface. The server
+     * does not accept requests until it is {@link #start() started}.
+     *
+     * @param fbs the system to serve
+     * @param port the port to listen on, or 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public HttpApiServer(FlightBookingSystem fbs, int port) throws IOException {
+        this.fbs = fbs;
+        this.server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.server.setExecutor(executor);
+        this.server.createContext("/flights", guarded(this::handleFlights));
+        this.server.createContext("/customers", guarded(this::handleCustomers));
+        this.server.createContext("/bookings", guarded(this::handleBookings));
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Gets the port the server listens on.
+     *
+     * @return the port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops accepting requests and waits up to a second for those in progress to finish.
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.close();
+    }
+
+    /**
+     * Serves the booking system over HTTP without the command line or the GUI.
+     *
+     * @param args the port to listen on; {@value #DEFAULT_PORT} if none is given
+     * @throws IOException if the data cannot be loaded or the port cannot be bound
+     * @throws FlightBookingSystemException if the data is invalid
+     * @throws CustomerException if the customer data is invalid
+     */
+    public static void main(String[] args) throws IOException, FlightBookingSystemException, CustomerException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        FlightBookingSystem fbs = FlightBookingSystemData.load();
+        HttpApiServer server = new HttpApiServer(fbs, port);
+        server.start();
+        System.out.println("Serving the flight booking system on http://localhost:" + server.getPort() + "/");
+    }
+
+    /**
+     * Wraps a handler so a runtime exception it throws is answered rather than dropping the
+     * connection: with 400 for a malformed request, such as a bad percent-encoding, and with
+     * 500 for anything else.
+     */
+    private static HttpHandler guarded(HttpHandler handler) {
+        return exchange -> {
+            try {
+                handler.handle(exchange);
+            } catch (IllegalArgumentException ex) {
+                reply(exchange, 400, "Malformed request: " + ex.getMessage());
+            } catch (RuntimeException ex) {
+                reply(exchange, 500, "Internal error: " + ex);
+            } finally {
+                exchange.close();
+            }
+        };
+    }
+
+    private void handleFlights(HttpExchange exchange) throws IOException {
+        String[] path = path(exchange, "/flights");
+        if (!exchange.getRequestMethod().equals("GET")) {
+            reply(exchange, 405, "Method not allowed.");
+            return;
+        }
+        if (path.length == 0) {
+            try {
+                reply(exchange, 200, searchFlights(parameters(exchange)));
+            } catch (FlightBookingSystemException ex) {
+                reply(exchange, 400, ex.getMessage());
+            }
+            return;
+        }
+        try {
+            if (path.length == 1) {
+                Flight flight = flight(parseId(path[0]));
+                reply(exchange, 200, flight.getDetailsLong());
+                return;
+            }
+            reply(exchange, 404, "Not found.");
+        } catch (FlightBookingSystemException | CustomerException ex) {
+            reply(exchange, 404, ex.getMessage());
+        }
+    }
+
+    private void handleCustomers(HttpExchange exchange) throws IOException {
+        String[] path = path(exchange, "/customers");
+        if (!exchange.getRequestMethod().equals("GET")) {
+            reply(exchange, 405, "Method not allowed.");
+            return;
+        }
+        if (path.length != 1) {
+            reply(exchange, 404, "Not found.");
+            return;
+        }
+        try {
+            // The customer's past bookings may still be in the history partition
+            CommandPipeline.forSystem(fbs).execute(FlightBookingSystem::loadHistory);
+            Customer customer = customer(parseId(path[0]));
+            reply(exchange, 200, customer.getDetailsLong());
+        } catch (FlightBookingSystemException | CustomerException ex) {
+            reply(exchange, 404, ex.getMessage());
+        }
+    }
+
+    private void handleBookings(HttpExchange exchange) throws IOException {
+        String[] path = path(exchange, "/bookings");
+        Map<String, String> parameters = parameters(exchange);
+        try {
+            switch (exchange.getRequestMethod()) {
+                case "POST" -> {
+                    if (path.length != 0) {
+                        reply(exchange, 404, "Not found.");
+                        return;
+                    }
+                    addBooking(exchange, parameters);
+                }
+                case "DELETE" -> {
+                    if (path.length != 0) {
+                        reply(exchange, 404, "Not found.");
+                        return;
+                    }
+                    cancelBooking(exchange, parameters);
+                }
+                case "PUT" -> {
+                    if (path.length != 1) {
+                        reply(exchange, 404, "Not found.");
+                        return;
+                    }
+                    editBooking(exchange, parseId(path[0]), parameters);
+                }
+                default -> reply(exchange, 405, "Method not allowed.");
+            }
+        } catch (FlightBookingSystemException | CustomerException ex) {
+            reply(exchange, 400, ex.getMessage());
+        }
+    }
+
+    /**
+     * Books a flight. The command only prints why it turned a booking down, so whether it
+     * was made is read back on the writer thread, right after the command has run.
+     */
+    private void addBooking(HttpExchange exchange, Map<String, String> parameters) throws IOException,
+            FlightBookingSystemException, CustomerException {
+        Customer customer = customer(parseId(required(parameters, "customer")));
+        Flight flight = flight(parseId(required(parameters, "flight")));
+        Booking[] made = new Booking[1];
+        CommandPipeline.forSystem(fbs).execute(system -> {
+            Booking before = system.getBooking(customer, flight);
+            new AddBooking(customer.getId(), flight.getId(), parameters.get("seat")).execute(system);
+            Booking after = system.getBooking(customer, flight);
+            made[0] = after == before ? null : after;
+        });
+        Booking booking = made[0];
+        if (booking == null) {
+            reply(exchange, 409, "Customer #" + customer.getId() + " could not be booked on Flight #" + flight.getId() + ".");
+            return;
+        }
+        reply(exchange, 201, "Booking #" + booking.getId() + " for Customer #" + customer.getId() + " on Flight #"
+                + flight.getId() + (booking.getSeat() == null ? "" : " Seat " + booking.getSeat())
+                + " Price: " + booking.getPrice());
+    }
+
+    private void cancelBooking(HttpExchange exchange, Map<String, String> parameters) throws IOException,
+            FlightBookingSystemException, CustomerException {
+        Customer customer = customer(parseId(required(parameters, "customer")));
+        Flight flight = flight(parseId(required(parameters, "flight")));
+        Booking[] outcome = new Booking[2];
+        CommandPipeline.forSystem(fbs).execute(system -> {
+            outcome[0] = system.getBooking(customer, flight);
+            if (outcome[0] != null) {
+                new CancelBooking(customer.getId(), flight.getId()).execute(system);
+                outcome[1] = system.getBooking(customer, flight);
+            }
+        });
+        Booking booking = outcome[0];
+        if (booking == null) {
+            reply(exchange, 404, "No booking found for Customer #" + customer.getId() + " on Flight #" + flight.getId());
+            return;
+        }
+        if (outcome[1] == booking) {
+            reply(exchange, 409, "Booking #" + booking.getId() + " could not be cancelled.");
+            return;
+        }
+        reply(exchange, 200, "Cancelled booking #" + booking.getId());
+    }
+
+    private void editBooking(HttpExchange exchange, int bookingId, Map<String, String> parameters) throws IOException,
+            FlightBookingSystemException, CustomerException {
+        Booking booking;
+        try {
+            booking = booking(bookingId);
+        } catch (FlightBookingSystemException ex) {
+            reply(exchange, 404, ex.getMessage());
+            return;
+        }
+        Flight flight = flight(parseId(required(parameters, "flight")));
+        CommandPipeline.forSystem(fbs).execute(new EditBooking(booking.getId(), flight.getId()));
+        if (booking.getFlight() != flight) {
+            reply(exchange, 409, "Booking #" + booking.getId() + " could not be moved to Flight #" + flight.getId() + ".");
+            return;
+        }
+        reply(exchange, 200, "Booking #" + booking.getId() + " is now on Flight #" + flight.getId()
+                + (booking.getSeat() == null ? "" : " Seat " + booking.getSeat()));
+    }
+
+    /**
+     * Looks a flight up in the snapshot, falling back to the writer thread, which loads
+     * it from the history partition if it is there.
+     */
+    private Flight flight(int id) throws FlightBookingSystemException, CustomerException {
+        Flight flight = fbs.snapshot().getFlight(id);
+        if (flight == null) {
+            CommandPipeline.forSystem(fbs).execute(system -> system.getFlightByID(id));
+            flight = fbs.snapshot().getFlight(id);
+        }
+        return flight;
+    }
+
+    private Customer customer(int id) throws CustomerException {
+        Customer customer = fbs.snapshot().getCustomer(id);
+        if (customer == null) {
+            throw new CustomerException("There is no customer with that ID.");
+        }
+        return customer;
+    }
+
+    private Booking booking(int id) throws FlightBookingSystemException, CustomerException {
+        Booking booking = fbs.snapshot().getBooking(id);
+        if (booking == null) {
+            CommandPipeline.forSystem(fbs).execute(system -> system.getBookingByID(id));
+            booking = fbs.snapshot().getBooking(id);
+        }
+        return booking;
+    }
+
+    private String searchFlights(Map<String, String> parameters) throws FlightBookingSystemException {
+        String origin = parameters.getOrDefault("origin", "");
+        String destination = parameters.getOrDefault("destination", "");
+        LocalDate date = null;
+        if (parameters.containsKey("date")) {
+            try {
+                date = LocalDate.parse(parameters.get("date"));
+            } catch (DateTimeParseException ex) {
+                throw new FlightBookingSystemException("Date must be in YYYY-MM-DD format.");
+            }
+        }
+        StringBuilder result = new StringBuilder();
+        for (Flight flight : fbs.searchFlights(origin, destination, date)) {
+            result.append(flight.getDetailsShort())
+                    .append(" - Seats left: ").append(flight.getRemainingCapacity()).append('\n');
+        }
+        return result.toString();
+    }
+
+    /**
+     * Splits the part of the request path after a context into its segments.
+     */
+    private static String[] path(HttpExchange exchange, String context) {
+        String rest = exchange.getRequestURI().getPath().substring(context.length());
+        while (rest.startsWith("/")) {
+            rest = rest.substring(1);
+        }
+        return rest.isEmpty() ? new String[0] : rest.split("/+");
+    }
+
+    /**
+     * Reads the query string parameters of a request, followed by those of a form-encoded
+     * body. A parameter given in both takes the body's value.
+     */
+    private static Map<String, String> parameters(HttpExchange exchange) throws IOException {
+        Map<String, String> parameters = new HashMap<>();
+        decode(exchange.getRequestURI().getRawQuery(), parameters);
+        try (InputStream body = exchange.getRequestBody()) {
+            decode(new String(body.readAllBytes(), StandardCharsets.UTF_8), parameters);
+        }
+        return parameters;
+    }
+
+    private static void decode(String encoded, Map<String, String> parameters) {
+        if (encoded == null || encoded.isBlank()) {
+            return;
+        }
+        for (String pair : encoded.trim().split("&")) {
+            int equals = pair.indexOf('=');
+            String name = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            String decoded = URLDecoder.decode(value, StandardCharsets.UTF_8).trim();
+            if (!decoded.isEmpty()) {
+                parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8), decoded);
+            }
+        }
+    }
+
+    private static String required(Map<String, String> parameters, String name) throws FlightBookingSystemException {
+        String value = parameters.get(name);
+        if (value == null) {
+            throw new FlightBookingSystemException("Missing parameter: " + name + ".");
+        }
+        return value;
+    }
+
+    private static int parseId(String id) throws FlightBookingSystemException {
+        try {
+            return Integer.parseInt(id);
+        } catch (NumberFormatException ex) {
+            throw new FlightBookingSystemException("Invalid number format.");
+        }
+    }
+
+    private static void reply(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = (body.endsWith("\n") ? body : body + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -3,8 +3,12 @@ package bcu.cmp5332.bookingsystem.main;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 import bcu.cmp5332.bookingsystem.commands.Command;
+import bcu.cmp5332.bookingsystem.commands.CommandPipeline;
 import bcu.cmp5332.bookingsystem.data.FlightBookingSystemData;
 import bcu.cmp5332.bookingsystem.gui.LandingGUI;
 import bcu.cmp5332.bookingsystem.model.FlightBookingSystem;
@@ -17,7 +21,12 @@ public class Main {
     
     /**
      * The main method that runs the Flight Booking System application.
-     * @param args Command line arguments (not used).
+     * 
+     * <p>Run as {@code Main --batch [script] [save every]}, it runs a script of one-line
+     * commands as admin without the GUI or the console, reading the commands from standard
+     * input if the script is {@code -}, and exits with status 1 if any of its commands failed. See {@link BatchRunner}.</p>
+     * 
+     * @param args Command line arguments: none for the interactive application, or the batch options.
      * @throws IOException If an input or output exception occurs.
      * @throws FlightBookingSystemException If an exception specific to the flight booking system occurs.
      * @throws CustomerException If an exception related to customer operations occurs.
@@ -27,12 +36,25 @@ public class Main {
         // Load the flight booking system data from persistent storage
         FlightBookingSystem fbs = FlightBookingSystemData.load();
         
+        if (args.length > 0 && args[0].equals("--batch")) {
+            System.exit(runBatch(fbs, args) == 0 ? 0 : 1);
+        }
+        
         new LandingGUI(fbs);
+
+        // Serve the HTTP API alongside the console when a port is configured
+        Integer httpPort = Integer.getInteger("fbs.httpPort");
+        if (httpPort != null) {
+            HttpApiServer server = new HttpApiServer(fbs, httpPort);
+            server.start();
+            System.out.println("HTTP API listening on http://localhost:" + server.getPort() + "/");
+        }
+
         // Determine the role of the user (admin, airline, customer)
         String role = CommandParser.checkRole(fbs);
         
-        // Create a BufferedReader to read input from the console
-        BufferedReader br = new BufferedReader(new InputStreamReader(System.in));
+        // Read commands from the console reader shared with the prompts
+        BufferedReader br = CommandParser.console();
         
         // Display the welcome message and instructions
         System.out.println("Flight Booking System");
@@ -43,18 +65,16 @@ public class Main {
             System.out.print("> ");
             String line = br.readLine();
             
-            // Exit the loop if the user types "exit"
-            if (line.equals("exit")) {
+            // Exit the loop if the user types "exit" or the input ends
+            if (line == null || line.equals("exit")) {
                 break;
             }
             
             try {
-                // Parse the user input into a Command object and execute it
+                // Parse the user input into a Command object and run it on the writer thread,
+                // which also saves the updated flight booking system data to persistent storage
                 Command command = CommandParser.parse(line, role);
-                command.execute(fbs);
-                
-                // Save the updated flight booking system data to persistent storage
-                FlightBookingSystemData.store(fbs);
+                CommandPipeline.forSystem(fbs).execute(command);
                 
             } catch (FlightBookingSystemException ex) {
                 // Print the exception message if a FlightBookingSystemException occurs
@@ -68,4 +88,26 @@ public class Main {
         // Exit the application
         System.exit(0);
     }
+
+    /**
+     * Runs a batch script given on the command line.
+     * 
+     * @param fbs the system to run the script on
+     * @param args the command line arguments, starting with {@code --batch}
+     * @return the number of commands that failed
+     * @throws IOException If the script cannot be read
+     * @throws FlightBookingSystemException If the changes cannot be saved
+     */
+    private static int runBatch(FlightBookingSystem fbs, String[] args) throws IOException, FlightBookingSystemException {
+        String script = args.length > 1 ? args[1] : "-";
+        int saveEvery = args.length > 2 ? Integer.parseInt(args[2]) : BatchRunner.DEFAULT_SAVE_EVERY;
+        BatchRunner runner = new BatchRunner(fbs, "admin", saveEvery);
+        try (BufferedReader reader = script.equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Path.of(script), StandardCharsets.UTF_8)) {
+            return runner.run(reader);
+        } finally {
+            CommandPipeline.forSystem(fbs).close();
+        }
+    }
 }
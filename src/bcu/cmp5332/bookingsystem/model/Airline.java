@@ -10,6 +10,7 @@ public class Airline {
     private String name;
     private String email;
     private String password;
+    FlightBookingSystem system;
 
     /**
      * Constructs an Airline object with the specified id, name, email, and password.
@@ -39,6 +40,7 @@ public class Airline {
      */
     public void setName(String name) {
         this.name = name;
+        changed();
     }
 
     /**
@@ -54,7 +56,10 @@ public class Airline {
      * @param email The new email address of the airline.
      */
     public void setEmail(String email) {
+        unindex();
         this.email = email;
+        index();
+        changed();
     }
 
     /**
@@ -70,7 +75,10 @@ public class Airline {
      * @param password The new password of the airline.
      */
     public void setPassword(String password) {
+        unindex();
         this.password = password;
+        index();
+        changed();
     }
 
     /**
@@ -86,6 +94,35 @@ public class Airline {
      * @param id The new id of the airline.
      */
     public void setId(int id) {
+        changed();
         this.id = id;
+        changed();
+    }
+
+    /**
+     * Records that this airline has changed, so the system knows to write it on the next store.
+     */
+    private void changed() {
+        if (system != null) {
+            system.markDirty(EntityType.AIRLINE, id);
+        }
+    }
+
+    /**
+     * Removes this airline from the system's email and password index before one of them changes.
+     */
+    private void unindex() {
+        if (system != null) {
+            system.unindex(this);
+        }
+    }
+
+    /**
+     * Adds this airline back to the system's email and password index after one of them has changed.
+     */
+    private void index() {
+        if (system != null) {
+            system.index(this);
+        }
     }
 }
@@ -1,11 +1,10 @@
 package bcu.cmp5332.bookingsystem.model;
 
 import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
 
 /**
  * The Booking class represents a booking made by a customer for a flight.
- * It contains attributes such as id, customer, flight, bookingDate, and price.
+ * It contains attributes such as id, customer, flight, bookingDate, price and the assigned seat.
  */
 public class Booking {
 
@@ -14,6 +13,8 @@ public class Booking {
     private Flight flight;
     private LocalDate bookingDate;
     private double price;
+    private String seat;
+    FlightBookingSystem system;
 
     /**
      * Constructs a Booking object with the specified id, customer, flight,
@@ -26,11 +27,27 @@ public class Booking {
      * @param price The price of the booking.
      */
     public Booking(int id, Customer customer, Flight flight, LocalDate bookingDate, double price) {
+        this(id, customer, flight, bookingDate, price, null);
+    }
+
+    /**
+     * Constructs a Booking object with the specified id, customer, flight,
+     * booking date, price and seat.
+     * 
+     * @param id The unique identifier of the booking.
+     * @param customer The customer who made the booking.
+     * @param flight The flight booked by the customer.
+     * @param bookingDate The date when the booking was made.
+     * @param price The price of the booking.
+     * @param seat The label of the seat assigned on the flight, or null if none was assigned.
+     */
+    public Booking(int id, Customer customer, Flight flight, LocalDate bookingDate, double price, String seat) {
         this.id = id;
         this.customer = customer;
         this.flight = flight;
         this.bookingDate = bookingDate;
         this.price = price;
+        this.seat = seat;
     }
 
     /**
@@ -40,31 +57,18 @@ public class Booking {
      */
     public void setPrice(double newPrice) {
         this.price = newPrice;
+        changed();
     }
 
     /**
-     * Calculates a dynamic price adjustment based on various factors such as
-     * days until departure and remaining capacity of the flight.
+     * Calculates the dynamic price of a flight with the {@link PricingEngine} of its system,
+     * which caches it until the date rolls over or the flight's base price changes.
      * 
      * @param flight The flight for which to calculate the dynamic price.
      * @return The dynamically adjusted price based on flight conditions.
      */
     public static double calculateDynamicPrice(Flight flight) {
-        double basePrice = flight.getPrice();
-        int daysUntilDeparture = (int) ChronoUnit.DAYS.between(LocalDate.now(), flight.getDepartureDate());
-
-        // Adjust price based on days until departure
-        if (daysUntilDeparture <= 2) {
-            basePrice = basePrice * 1.7; // 70% increase for bookings made 2 or fewer days before departure
-        } else if (daysUntilDeparture <= 7) {
-            basePrice *= 1.4; // 40% increase for bookings made 3-7 days before departure
-        } else if (daysUntilDeparture <= 30) {
-            basePrice *= 1.1; // 10% increase for bookings made 8-30 days before departure
-        }
-        
-        // You can add more sophisticated price adjustments based on remaining capacity here
-        
-        return basePrice;
+        return PricingEngine.of(flight).price(flight);
     }
 
     /**
@@ -86,9 +90,35 @@ public class Booking {
     }
 
     public void updateBooking(Flight flight) {
+        updateBooking(flight, null);
+    }
+
+    /**
+     * Moves the booking to another flight and seat, repricing it as of today.
+     * 
+     * @param flight The new flight.
+     * @param seat The label of the seat assigned on the new flight, or null if none was assigned.
+     */
+    public void updateBooking(Flight flight, String seat) {
+    	updateBooking(flight, seat, Booking.calculateDynamicPrice(flight));
+    }
+
+    /**
+     * Moves the booking to another flight and seat at a price quoted before the seat was
+     * taken, so the booking's own seat does not count towards the flight's load factor.
+     * 
+     * @param flight The new flight.
+     * @param seat The label of the seat assigned on the new flight, or null if none was assigned.
+     * @param price The price quoted for the new flight.
+     */
+    public void updateBooking(Flight flight, String seat, double price) {
+    	unindex();
     	this.flight = flight;
-    	this.price = Booking.calculateDynamicPrice(flight);
-    	this.bookingDate = LocalDate.now();
+    	this.seat = seat;
+    	this.price = price;
+    	this.bookingDate = PricingEngine.of(flight).today();
+    	index();
+    	changed();
     }
     
     /**
@@ -97,7 +127,10 @@ public class Booking {
      * @param customer The new customer to set for the booking.
      */
     public void setCustomer(Customer customer) {
+        unindex();
         this.customer = customer;
+        index();
+        changed();
     }
 
     /**
@@ -115,7 +148,33 @@ public class Booking {
      * @param flight The new flight to set for the booking.
      */
     public void setFlight(Flight flight) {
+        unindex();
         this.flight = flight;
+        // A seat label only means something on the flight it was assigned on
+        this.seat = null;
+        index();
+        changed();
+    }
+
+    /**
+     * Retrieves the label of the seat assigned to the booking, such as {@code 12C}.
+     * 
+     * @return The seat label, or null if no seat was assigned.
+     */
+    public String getSeat() {
+        return seat;
+    }
+
+    /**
+     * Sets the seat assigned to the booking.
+     * 
+     * @param seat The label of the seat on the booked flight, or null to assign none.
+     */
+    public void setSeat(String seat) {
+        unindex();
+        this.seat = seat;
+        index();
+        changed();
     }
 
     /**
@@ -142,6 +201,37 @@ public class Booking {
      * @param bookingDate The new booking date to set.
      */
     public void setBookingDate(LocalDate bookingDate) {
+        unindex();
         this.bookingDate = bookingDate;
+        index();
+        changed();
+    }
+
+    /**
+     * Records that this booking has changed, so the system knows to write it on the next store.
+     */
+    private void changed() {
+        if (system != null) {
+            system.markDirty(EntityType.BOOKING, id);
+        }
+    }
+
+    /**
+     * Removes this booking from the system's customer and flight indexes, and from its flight's
+     * recent bookings, before one of them changes.
+     */
+    private void unindex() {
+        if (system != null) {
+            system.unindex(this);
+        }
+    }
+
+    /**
+     * Adds this booking back to the system's customer and flight indexes after one of them has changed.
+     */
+    private void index() {
+        if (system != null) {
+            system.index(this);
+        }
     }
 }
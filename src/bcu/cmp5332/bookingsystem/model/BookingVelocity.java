@@ -0,0 +1,85 @@
+package bcu.cmp5332.bookingsystem.model;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Counts the bookings a flight has gained over the last {@value #WINDOW_DAYS} days.
+ *
+ * <p>The counts are kept in a ring with a bucket per day, stamped with the day it counts,
+ * so a booking or cancellation updates one bucket and the count is read by summing a
+ * fixed number of buckets, however many bookings the flight has. Buckets older than the
+ * window are reused for new days as the date moves along. Bookings are counted on the day
+ * they were made, so a cancelled booking is taken off that day if it is still in the window.</p>
+ *
+ * <p>The counter is updated by the {@link FlightBookingSystem} under its monitor and may be
+ * read from any thread.</p>
+ */
+final class BookingVelocity {
+
+    /**
+     * Number of days of bookings counted.
+     */
+    static final int WINDOW_DAYS = 7;
+
+    private final long[] days = new long[WINDOW_DAYS];
+    private final int[] counts = new int[WINDOW_DAYS];
+    private int changes;
+
+    BookingVelocity() {
+        Arrays.fill(days, Long.MIN_VALUE);
+    }
+
+    /**
+     * Adds to the count of a day.
+     *
+     * @param date the day the bookings were made
+     * @param delta the number of bookings made, or minus the number cancelled
+     */
+    synchronized void record(LocalDate date, int delta) {
+        long day = date.toEpochDay();
+        int bucket = (int) Math.floorMod(day, (long) WINDOW_DAYS);
+        if (days[bucket] > day) {
+            // The bucket has moved on to a later day, so this one is out of every window read from now on
+            return;
+        }
+        if (days[bucket] < day) {
+            if (delta < 0) {
+                // Nothing was counted on this day, the booking was made before the window
+                return;
+            }
+            days[bucket] = day;
+            counts[bucket] = 0;
+        }
+        counts[bucket] = Math.max(0, counts[bucket] + delta);
+        changes++;
+    }
+
+    /**
+     * Gets the number of bookings made in the window ending on a day.
+     *
+     * @param today the last day of the window
+     * @return the bookings made from {@value #WINDOW_DAYS} days before, exclusive, up to today
+     */
+    synchronized int count(LocalDate today) {
+        long last = today.toEpochDay();
+        int total = 0;
+        for (int bucket = 0; bucket < WINDOW_DAYS; bucket++) {
+            long age = last - days[bucket];
+            if (age >= 0 && age < WINDOW_DAYS) {
+                total += counts[bucket];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Gets the number of times the counts have changed, so caches of prices worked out
+     * from them can tell whether they are still valid.
+     *
+     * @return the number of changes
+     */
+    synchronized int changes() {
+        return changes;
+    }
+}
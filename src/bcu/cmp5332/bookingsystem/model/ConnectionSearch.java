@@ -0,0 +1,322 @@
+package bcu.cmp5332.bookingsystem.model;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Finds itineraries of one or more connecting flights between two places.
+ *
+ * <p>Flights are treated as the edges of a time-expanded graph: a flight leads from its
+ * origin on its departure date to its destination, and another flight can follow it if
+ * it leaves from that destination within the connection window after it. Flights carry a
+ * departure date but no time of day, so each leg is taken to arrive on the day it
+ * departs, and the window is counted in whole days: at least {@code minConnectionDays}
+ * and at most {@code maxLayoverDays} after the previous leg. An itinerary never passes
+ * through the same place twice, and full or removed flights are left out.</p>
+ *
+ * <p>The search starts a depth-first walk from every flight leaving the origin on the
+ * requested date, and the walks are split between the threads of the common fork-join
+ * pool. The flights leaving each place are read from the system's origin index once per
+ * search and shared between the walks, so they hold the system's monitor only briefly.</p>
+ */
+public class ConnectionSearch {
+
+    /**
+     * The order itineraries are returned in.
+     */
+    public enum Ranking {
+        /**
+         * Cheapest total dynamic price first, then earliest arrival.
+         */
+        PRICE,
+        /**
+         * Earliest arrival first, then cheapest total dynamic price.
+         */
+        ARRIVAL
+    }
+
+    /**
+     * Number of first legs below which a task walks them itself rather than splitting them.
+     */
+    private static final int SPLIT_THRESHOLD = 4;
+
+    private final FlightBookingSystem fbs;
+    private final int maxStops;
+    private final int minConnectionDays;
+    private final int maxLayoverDays;
+
+    /**
+     * Creates a search over a system.
+     *
+     * @param fbs the system whose flights are searched
+     * @param maxStops the most stops an itinerary may make; 0 only finds direct flights
+     * @param minConnectionDays the fewest days between a leg and the next one
+     * @param maxLayoverDays the most days between a leg and the next one
+     */
+    public ConnectionSearch(FlightBookingSystem fbs, int maxStops, int minConnectionDays, int maxLayoverDays) {
+        if (maxStops < 0 || minConnectionDays < 0 || maxLayoverDays < minConnectionDays) {
+            throw new IllegalArgumentException("Invalid connection rules.");
+        }
+        this.fbs = fbs;
+        this.maxStops = maxStops;
+        this.minConnectionDays = minConnectionDays;
+        this.maxLayoverDays = maxLayoverDays;
+    }
+
+    /**
+     * Finds the itineraries from an origin to a destination.
+     *
+     * @param origin the place to leave from, matched regardless of case
+     * @param destination the place to arrive at, matched regardless of case
+     * @param date the departure date of the first leg, or null for any future date
+     * @param ranking the order to return the itineraries in
+     * @param limit the most itineraries to return
+     * @return the best itineraries found, in the order of the ranking
+     */
+    public List<Itinerary> search(String origin, String destination, LocalDate date, Ranking ranking, int limit) {
+        LocalDate tomorrow = fbs.getPricingEngine().today().plusDays(1);
+        if (limit <= 0 || (date != null && date.isBefore(tomorrow))) {
+            return new ArrayList<>();
+        }
+        LocalDate first = date == null ? tomorrow : date;
+        // Later legs can only leave in the dates the connection windows reach
+        Walk walk = new Walk(FlightBookingSystem.normalizePlace(origin), FlightBookingSystem.normalizePlace(destination),
+                first.plusDays(minConnectionDays), date == null ? null : date.plusDays((long) maxStops * maxLayoverDays),
+                comparator(ranking), limit);
+        List<Flight> firstLegs = fbs.getFlightsFrom(origin, first, date);
+        firstLegs.removeIf(flight -> flight.getRemainingCapacity() <= 0);
+        if (firstLegs.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return ForkJoinPool.commonPool().invoke(new SearchTask(walk, firstLegs, 0, firstLegs.size()));
+    }
+
+    private static Comparator<Itinerary> comparator(Ranking ranking) {
+        Comparator<Itinerary> byPrice = Comparator.comparingDouble(Itinerary::getPrice);
+        Comparator<Itinerary> byArrival = Comparator.comparing(Itinerary::getArrivalDate);
+        Comparator<Itinerary> first = ranking == Ranking.ARRIVAL ? byArrival.thenComparing(byPrice) : byPrice.thenComparing(byArrival);
+        return first.thenComparingInt(Itinerary::getStops);
+    }
+
+    /**
+     * The flights leaving a place in the dates a search can reach, in departure order,
+     * with their departure dates as epoch days for binary searching.
+     */
+    private record Departures(Flight[] flights, long[] days) {
+    }
+
+    /**
+     * The state shared by the walks of one search.
+     */
+    private final class Walk {
+
+        private final String origin;
+        private final String destination;
+        private final LocalDate from;
+        private final LocalDate to;
+        private final Comparator<Itinerary> order;
+        private final int limit;
+        private final Map<String, Departures> departures = new ConcurrentHashMap<>();
+
+        private Walk(String origin, String destination, LocalDate from, LocalDate to, Comparator<Itinerary> order, int limit) {
+            this.origin = origin;
+            this.destination = destination;
+            this.from = from;
+            this.to = to;
+            this.order = order;
+            this.limit = limit;
+        }
+
+        /**
+         * Gets the flights leaving a place, reading them from the system the first time.
+         */
+        private Departures departuresFrom(String place) {
+            return departures.computeIfAbsent(place, key -> {
+                List<Flight> flights = fbs.getFlightsFrom(key, from, to);
+                flights.removeIf(flight -> flight.getRemainingCapacity() <= 0);
+                long[] days = new long[flights.size()];
+                for (int i = 0; i < days.length; i++) {
+                    days[i] = flights.get(i).getDepartureDate().toEpochDay();
+                }
+                return new Departures(flights.toArray(new Flight[0]), days);
+            });
+        }
+
+        /**
+         * Walks every itinerary that starts with a flight, adding those that reach the
+         * destination to a list.
+         */
+        private void walk(Flight first, List<Itinerary> found) {
+            List<Flight> legs = new ArrayList<>(maxStops + 1);
+            Set<String> visited = new HashSet<>();
+            visited.add(origin);
+            extend(first, legs, visited, found);
+        }
+
+        private void extend(Flight leg, List<Flight> legs, Set<String> visited, List<Itinerary> found) {
+            String arrival = FlightBookingSystem.normalizePlace(leg.getDestination());
+            if (!visited.add(arrival)) {
+                return;
+            }
+            legs.add(leg);
+            if (arrival.equals(destination)) {
+                found.add(new Itinerary(legs));
+            } else if (legs.size() <= maxStops) {
+                Departures next = departuresFrom(arrival);
+                long landed = leg.getDepartureDate().toEpochDay();
+                int i = lowerBound(next.days(), landed + minConnectionDays);
+                for (; i < next.days().length && next.days()[i] <= landed + maxLayoverDays; i++) {
+                    extend(next.flights()[i], legs, visited, found);
+                }
+            }
+            legs.remove(legs.size() - 1);
+            visited.remove(arrival);
+        }
+
+        /**
+         * Keeps the best itineraries of a list, in order.
+         */
+        private List<Itinerary> best(List<Itinerary> found) {
+            found.sort(order);
+            return found.size() > limit ? new ArrayList<>(found.subList(0, limit)) : found;
+        }
+    }
+
+    private static int lowerBound(long[] days, long day) {
+        int index = Arrays.binarySearch(days, day);
+        if (index < 0) {
+            return -index - 1;
+        }
+        while (index > 0 && days[index - 1] == day) {
+            index--;
+        }
+        return index;
+    }
+
+    /**
+     * Walks the itineraries starting with a range of first legs, splitting the range
+     * between two subtasks while it is large.
+     */
+    private final class SearchTask extends RecursiveTask<List<Itinerary>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient Walk walk;
+        private final transient List<Flight> firstLegs;
+        private final int from;
+        private final int to;
+
+        private SearchTask(Walk walk, List<Flight> firstLegs, int from, int to) {
+            this.walk = walk;
+            this.firstLegs = firstLegs;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<Itinerary> compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                List<Itinerary> found = new ArrayList<>();
+                for (int i = from; i < to; i++) {
+                    walk.walk(firstLegs.get(i), found);
+                }
+                return walk.best(found);
+            }
+            int middle = (from + to) >>> 1;
+            SearchTask left = new SearchTask(walk, firstLegs, from, middle);
+            left.fork();
+            List<Itinerary> found = new SearchTask(walk, firstLegs, middle, to).compute();
+            found.addAll(left.join());
+            return walk.best(found);
+        }
+    }
+
+    /**
+     * A sequence of connecting flights from an origin to a destination.
+     */
+    public static final class Itinerary {
+
+        private final List<Flight> legs;
+        private final double price;
+
+        private Itinerary(List<Flight> legs) {
+            this.legs = Collections.unmodifiableList(new ArrayList<>(legs));
+            double total = 0;
+            for (Flight leg : legs) {
+                total += Booking.calculateDynamicPrice(leg);
+            }
+            this.price = total;
+        }
+
+        /**
+         * Gets the flights of the itinerary.
+         *
+         * @return an unmodifiable list of the flights, in the order they are flown
+         */
+        public List<Flight> getLegs() {
+            return legs;
+        }
+
+        /**
+         * Gets the total dynamic price of the flights, as priced when the itinerary was found.
+         *
+         * @return the total price
+         */
+        public double getPrice() {
+            return price;
+        }
+
+        /**
+         * Gets the number of stops between the origin and the destination.
+         *
+         * @return the number of stops
+         */
+        public int getStops() {
+            return legs.size() - 1;
+        }
+
+        /**
+         * Gets the departure date of the first flight.
+         *
+         * @return the departure date
+         */
+        public LocalDate getDepartureDate() {
+            return legs.get(0).getDepartureDate();
+        }
+
+        /**
+         * Gets the date the last flight arrives, which is the day it departs.
+         *
+         * @return the arrival date
+         */
+        public LocalDate getArrivalDate() {
+            return legs.get(legs.size() - 1).getDepartureDate();
+        }
+
+        /**
+         * Gets a short description of the itinerary.
+         *
+         * @return the places, dates, stops and price of the itinerary
+         */
+        public String getDetailsShort() {
+            DateTimeFormatter dtf = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+            StringBuilder route = new StringBuilder(legs.get(0).getOrigin());
+            for (Flight leg : legs) {
+                route.append(" to ").append(leg.getDestination());
+            }
+            return route + " - Departs " + getDepartureDate().format(dtf) + " - Arrives " + getArrivalDate().format(dtf)
+                    + " - " + getStops() + " stop(s) - Total Price: " + price;
+        }
+    }
+}
@@ -1,7 +1,7 @@
 package bcu.cmp5332.bookingsystem.model;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * The Customer class represents a customer in the flight booking system.
@@ -15,7 +15,9 @@ public class Customer {
     private String email;
     private int age;
     private boolean isRemoved;
-    private final List<Booking> bookings = new ArrayList<>();
+    // Bookings on different flights may be added by threads holding different flight locks
+    private final List<Booking> bookings = new CopyOnWriteArrayList<>();
+    FlightBookingSystem system;
 
     /**
      * Constructs a Customer object with the specified id, name, age, phone, email, and removal status.
@@ -64,6 +66,7 @@ public class Customer {
      */
     public void removeCustomer() {
         this.isRemoved = true;
+        changed();
     }
 
     /**
@@ -81,7 +84,10 @@ public class Customer {
      * @param newEmail The new email address to set.
      */
     public void setEmail(String newEmail) {
+        unindex();
         this.email = newEmail;
+        index();
+        changed();
     }
 
     /**
@@ -132,6 +138,9 @@ public class Customer {
                         .append(" to ").append(booking.getFlight().getDestination())
                         .append(" on ").append(booking.getFlight().getDepartureDate())
                         .append(". Price: Rs.").append(booking.getPrice());
+                if (booking.getSeat() != null) {
+                    result.append(" - Seat ").append(booking.getSeat());
+                }
                 counter++;
             }
             result.append("\n").append(counter).append(" booking(s)");
@@ -165,7 +174,9 @@ public class Customer {
      * @param newId The new id to set for the customer.
      */
     public void setId(int newId) {
+        changed();
         this.id = newId;
+        changed();
     }
 
     /**
@@ -175,6 +186,7 @@ public class Customer {
      */
     public void setName(String newName) {
         this.name = newName;
+        changed();
     }
 
     /**
@@ -183,7 +195,10 @@ public class Customer {
      * @param newPhone The new phone number to set for the customer.
      */
     public void setPhone(String newPhone) {
+        unindex();
         this.phone = newPhone;
+        index();
+        changed();
     }
 
     /**
@@ -220,11 +235,38 @@ public class Customer {
      */
     public void setAge(int age) {
         this.age = age;
+        changed();
     }
 
 	public void setRemoved(boolean b) {
 		this.isRemoved = b;
-		// TODO Auto-generated method stub
-		
+		changed();
 	}
+
+    /**
+     * Records that this customer has changed, so the system knows to write it on the next store.
+     */
+    private void changed() {
+        if (system != null) {
+            system.markDirty(EntityType.CUSTOMER, id);
+        }
+    }
+
+    /**
+     * Removes this customer from the system's phone and email indexes before one of them changes.
+     */
+    private void unindex() {
+        if (system != null) {
+            system.unindex(this);
+        }
+    }
+
+    /**
+     * Adds this customer back to the system's phone and email indexes after one of them has changed.
+     */
+    private void index() {
+        if (system != null) {
+            system.index(this);
+        }
+    }
 }
@@ -0,0 +1,88 @@
+package bcu.cmp5332.bookingsystem.model;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Flights ordered by departure date.
+ *
+ * <p>Flights are grouped by date in a sorted map, so the flights departing in a range of
+ * dates are found by a range lookup over the dates in it rather than a scan of every
+ * flight. Flights departing on the same date are kept in the order they were added.
+ * Removed flights stay in the index, like in the other indexes of the system, and are
+ * skipped by {@link #collect}.</p>
+ *
+ * <p>Like the stores it indexes, it is not thread-safe.</p>
+ */
+final class DepartureIndex {
+
+    private final NavigableMap<LocalDate, List<Flight>> byDate = new TreeMap<>();
+    private int size;
+
+    /**
+     * Adds a flight under its departure date.
+     *
+     * @param flight the flight to add
+     */
+    void add(Flight flight) {
+        byDate.computeIfAbsent(flight.getDepartureDate(), date -> new ArrayList<>(1)).add(flight);
+        size++;
+    }
+
+    /**
+     * Removes a flight from under its departure date.
+     *
+     * @param flight the flight to remove
+     */
+    void remove(Flight flight) {
+        List<Flight> flights = byDate.get(flight.getDepartureDate());
+        if (flights != null && flights.remove(flight)) {
+            size--;
+            if (flights.isEmpty()) {
+                byDate.remove(flight.getDepartureDate());
+            }
+        }
+    }
+
+    /**
+     * Checks whether the index holds no flights.
+     *
+     * @return true if there are no flights
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Adds the flights that have not been removed and depart in a range of dates to a
+     * collection, in departure order.
+     *
+     * @param from the first date of the range, or null for no lower bound
+     * @param to the last date of the range, or null for no upper bound
+     * @param out the collection the flights are added to
+     */
+    void collect(LocalDate from, LocalDate to, Collection<Flight> out) {
+        if (from != null && to != null && from.isAfter(to)) {
+            return;
+        }
+        NavigableMap<LocalDate, List<Flight>> range = byDate;
+        if (from != null) {
+            range = range.tailMap(from, true);
+        }
+        if (to != null) {
+            range = range.headMap(to, true);
+        }
+        for (Map.Entry<LocalDate, List<Flight>> entry : range.entrySet()) {
+            for (Flight flight : entry.getValue()) {
+                if (!flight.isRemoved()) {
+                    out.add(flight);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package bcu.cmp5332.bookingsystem.model;
+
+/**
+ * The kinds of entity stored by the Flight Booking System, in the order they depend on
+ * each other: planes belong to airlines, flights use planes and bookings refer to
+ * customers and flights.
+ */
+public enum EntityType {
+    AIRLINE,
+    PLANE,
+    FLIGHT,
+    CUSTOMER,
+    BOOKING
+}
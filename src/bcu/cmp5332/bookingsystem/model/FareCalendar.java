@@ -0,0 +1,109 @@
+package bcu.cmp5332.bookingsystem.model;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * The cheapest fare of a route for each of the next {@value #DAYS} days.
+ *
+ * <p>The fares are materialized in an array with a slot per day, so reading the calendar
+ * costs one step per day however many flights the route has. A slot is priced the first
+ * time it is read after it went stale, by pricing the route's flights of that day only.
+ * Slots go stale when a flight of their day is added, removed, moved or repriced, or
+ * gains or loses a booking, since a full flight cannot be booked. Dynamic prices depend on
+ * the days left to departure, so when the date rolls over the window moves along and
+ * every slot is priced again once, on the first read of the new day; the same happens
+ * when the {@link PricingEngine}'s rules or clock are replaced.</p>
+ *
+ * <p>A calendar is owned by the {@link FlightBookingSystem} and guarded by its monitor.</p>
+ */
+public final class FareCalendar {
+
+    /**
+     * Number of days a calendar covers, starting tomorrow.
+     */
+    public static final int DAYS = 90;
+
+    /**
+     * The cheapest fare of a day.
+     *
+     * @param date the departure date
+     * @param price the cheapest dynamic price of the day, or {@code Double.NaN} if no
+     *              flight of the route can be booked on it
+     * @param flight the flight with the cheapest price, or null if there is none
+     */
+    public record Fare(LocalDate date, double price, Flight flight) {
+    }
+
+    private long firstDay = Long.MIN_VALUE;
+    private long generation = -1;
+    private final double[] prices = new double[DAYS];
+    private final Flight[] cheapest = new Flight[DAYS];
+    private final BitSet stale = new BitSet(DAYS);
+    private final List<Flight> scratch = new ArrayList<>();
+
+    FareCalendar() {
+    }
+
+    /**
+     * Marks the slot of a date stale, if the date is in the window.
+     *
+     * @param date the departure date whose cheapest fare may have changed
+     */
+    void invalidate(LocalDate date) {
+        long slot = date.toEpochDay() - firstDay;
+        if (slot >= 0 && slot < DAYS) {
+            stale.set((int) slot);
+        }
+    }
+
+    /**
+     * Reads the calendar, pricing the slots that are stale.
+     *
+     * @param tomorrow the first day of the window
+     * @param generation the {@link PricingEngine#getGeneration() generation} of the pricing rules
+     * @param flights the route's flights, or null if it has none
+     * @return the cheapest fare of each day of the window, in date order
+     */
+    List<Fare> read(LocalDate tomorrow, long generation, DepartureIndex flights) {
+        if (tomorrow.toEpochDay() != firstDay || generation != this.generation) {
+            firstDay = tomorrow.toEpochDay();
+            this.generation = generation;
+            stale.set(0, DAYS);
+        }
+        for (int slot = stale.nextSetBit(0); slot >= 0; slot = stale.nextSetBit(slot + 1)) {
+            price(slot, flights);
+        }
+        stale.clear();
+        List<Fare> fares = new ArrayList<>(DAYS);
+        for (int slot = 0; slot < DAYS; slot++) {
+            fares.add(new Fare(tomorrow.plusDays(slot), prices[slot], cheapest[slot]));
+        }
+        return fares;
+    }
+
+    private void price(int slot, DepartureIndex flights) {
+        double best = Double.NaN;
+        Flight bestFlight = null;
+        if (flights != null) {
+            LocalDate date = LocalDate.ofEpochDay(firstDay + slot);
+            scratch.clear();
+            flights.collect(date, date, scratch);
+            for (Flight flight : scratch) {
+                if (flight.getRemainingCapacity() <= 0) {
+                    continue;
+                }
+                double price = Booking.calculateDynamicPrice(flight);
+                if (bestFlight == null || price < best) {
+                    best = price;
+                    bestFlight = flight;
+                }
+            }
+            scratch.clear();
+        }
+        prices[slot] = best;
+        cheapest[slot] = bestFlight;
+    }
+}
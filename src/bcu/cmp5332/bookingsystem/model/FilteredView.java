@@ -0,0 +1,100 @@
+package bcu.cmp5332.bookingsystem.model;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A read-only cursor over the records of a collection that match a filter.
+ *
+ * <p>Nothing is copied: every iteration walks the underlying collection and skips the
+ * records that do not match, so the view always reflects the current state of the
+ * system. Like the views it is built on, it must not be iterated while the system is
+ * being changed.</p>
+ *
+ * @param <T> the type of record
+ */
+public final class FilteredView<T> implements Iterable<T> {
+
+    private final Iterable<T> source;
+    private final Predicate<? super T> filter;
+
+    /**
+     * Creates a view of the records of {@code source} that match {@code filter}.
+     *
+     * @param source the records to filter
+     * @param filter the condition a record must meet to be part of the view
+     */
+    public FilteredView(Iterable<T> source, Predicate<? super T> filter) {
+        this.source = source;
+        this.filter = filter;
+    }
+
+    /**
+     * Narrows the view to the records that also match another condition.
+     *
+     * @param condition the additional condition
+     * @return a view of the records that match both conditions
+     */
+    public FilteredView<T> where(Predicate<? super T> condition) {
+        return new FilteredView<>(source, item -> filter.test(item) && condition.test(item));
+    }
+
+    /**
+     * Counts the records in the view.
+     *
+     * @return the number of matching records
+     */
+    public int count() {
+        int count = 0;
+        for (T item : source) {
+            if (filter.test(item)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Streams the records in the view, in the order of the underlying collection.
+     *
+     * @return a sequential stream of the matching records
+     */
+    public Stream<T> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        Iterator<T> items = source.iterator();
+        return new Iterator<T>() {
+            private T next;
+            private boolean ready;
+
+            @Override
+            public boolean hasNext() {
+                while (!ready && items.hasNext()) {
+                    T item = items.next();
+                    if (filter.test(item)) {
+                        next = item;
+                        ready = true;
+                    }
+                }
+                return ready;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                ready = false;
+                T item = next;
+                next = null;
+                return item;
+            }
+        };
+    }
+}
@@ -3,9 +3,10 @@ package bcu.cmp5332.bookingsystem.model;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Represents a flight in the flight booking system.
@@ -24,6 +25,15 @@ public class Flight {
     private boolean isRemoved;
     private LocalDate departureDate;
     private final Set<Customer> passengers;
+    /** Seats taken by passengers plus seats reserved by bookings still being made. */
+    private final AtomicInteger seatsTaken = new AtomicInteger();
+    /** Built from the plane and the seats of the flight's bookings on first use. */
+    private volatile SeatMap seatMap;
+    /** Bookings made on this flight lately, counted by the system as bookings are indexed. */
+    private final BookingVelocity velocity = new BookingVelocity();
+    FlightBookingSystem system;
+    /** The last dynamic price worked out for the flight, cached by the {@link PricingEngine}. */
+    volatile PricingEngine.Quote quote;
 
     /**
      * Constructor to create a flight with the specified details.
@@ -46,7 +56,8 @@ public class Flight {
         this.setPlane(plane);
         this.departureDate = departureDate;
         this.isRemoved = isRemoved;
-        passengers = new HashSet<>();
+        // Read by reports on other threads while bookings change it under the flight lock
+        passengers = ConcurrentHashMap.newKeySet();
     }
 
     /**
@@ -87,6 +98,8 @@ public class Flight {
      */
     public void removeFlight() {
         this.isRemoved = true;
+        changed();
+        fareChanged();
     }
 
     /**
@@ -96,6 +109,8 @@ public class Flight {
      */
     public void setPrice(double newPrice) {
         this.price = newPrice;
+        changed();
+        fareChanged();
     }
 
     /**
@@ -131,7 +146,9 @@ public class Flight {
      * @param id the new ID of the flight
      */
     public void setId(int id) {
+        changed();
         this.id = id;
+        changed();
     }
 
     /**
@@ -144,12 +161,75 @@ public class Flight {
     }
 
     /**
-     * Gets the remaining capacity of the flight.
+     * Gets the remaining capacity of the flight. Seats reserved by bookings still being
+     * made are not counted as remaining.
      * 
      * @return the remaining capacity of the flight
      */
     public int getRemainingCapacity() {
-        return this.plane.getCapacity() - passengers.size();
+        return this.plane.getCapacity() - seatsTaken.get();
+    }
+
+    /**
+     * Gets the share of the flight's seats that are taken. Read from the flight's seat
+     * counter, so it takes the same time however many passengers the flight has.
+     * 
+     * @return the load factor, from 0 for an empty flight to 1 for a full one
+     */
+    public double getLoadFactor() {
+        int capacity = this.plane.getCapacity();
+        return capacity <= 0 ? 1 : Math.min(1, (double) seatsTaken.get() / capacity);
+    }
+
+    /**
+     * Gets the number of bookings made on the flight in the last
+     * {@value BookingVelocity#WINDOW_DAYS} days, less those since cancelled, counted up to
+     * the business date of the flight's {@link PricingEngine}.
+     * 
+     * @return the number of recent bookings
+     */
+    public int getRecentBookings() {
+        return velocity.count(PricingEngine.of(this).today());
+    }
+
+    /**
+     * Reserves a seat for a booking about to be made, if one is left.
+     * The seat is taken with a compare-and-set on the flight's seat counter, so threads
+     * booking the same flight never oversell it and never wait for each other to find
+     * out it is full. A reservation must be followed by either
+     * {@link #confirmReservation(Customer)} or {@link #cancelReservation()}.
+     * 
+     * @return true if a seat was reserved, false if the flight is full
+     */
+    public boolean tryReserveSeat() {
+        while (true) {
+            int taken = seatsTaken.get();
+            if (taken >= this.plane.getCapacity()) {
+                return false;
+            }
+            if (seatsTaken.compareAndSet(taken, taken + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Gives the seat reserved by {@link #tryReserveSeat()} to a passenger.
+     * If the passenger is already on the flight the reserved seat is given back.
+     * 
+     * @param passenger the passenger the seat was reserved for
+     */
+    public void confirmReservation(Customer passenger) {
+        if (!passengers.add(passenger)) {
+            seatsTaken.decrementAndGet();
+        }
+    }
+
+    /**
+     * Gives back a seat reserved by {@link #tryReserveSeat()} for a booking that was not made.
+     */
+    public void cancelReservation() {
+        seatsTaken.decrementAndGet();
     }
 
     /**
@@ -158,7 +238,10 @@ public class Flight {
      * @param flightNumber the new flight number
      */
     public void setFlightNumber(String flightNumber) {
+        unindex();
         this.flightNumber = flightNumber;
+        index();
+        changed();
     }
 
     /**
@@ -176,7 +259,10 @@ public class Flight {
      * @param origin the new origin of the flight
      */
     public void setOrigin(String origin) {
+        unindex();
         this.origin = origin;
+        index();
+        changed();
     }
 
     /**
@@ -194,7 +280,10 @@ public class Flight {
      * @param destination the new destination of the flight
      */
     public void setDestination(String destination) {
+        unindex();
         this.destination = destination;
+        index();
+        changed();
     }
 
     /**
@@ -212,7 +301,10 @@ public class Flight {
      * @param departureDate the new departure date of the flight
      */
     public void setDepartureDate(LocalDate departureDate) {
+        unindex();
         this.departureDate = departureDate;
+        index();
+        changed();
     }
 
     /**
@@ -259,11 +351,11 @@ public class Flight {
                         .append(" - ").append(passenger.getPhone())
                         .append(" - Rs.");
 
-                // Calculate the total booking price for this passenger on this flight
-                List<Booking> bookings = passenger.getBookings();
-                for (Booking booking : bookings) {
-                    if (booking.getFlight() == this) {
-                        result.append(booking.getPrice());
+                Booking booking = getBooking(passenger);
+                if (booking != null) {
+                    result.append(booking.getPrice());
+                    if (booking.getSeat() != null) {
+                        result.append(" - Seat ").append(booking.getSeat());
                     }
                 }
                 counter++;
@@ -276,12 +368,34 @@ public class Flight {
     }
 
     /**
-     * Adds a passenger to the flight.
+     * Gets the booking a passenger has made on this flight.
+     * 
+     * @param passenger the passenger whose booking to get
+     * @return the passenger's booking, or null if they have no booking on this flight
+     */
+    public Booking getBooking(Customer passenger) {
+        if (system != null) {
+            return system.getBooking(passenger, this);
+        }
+        for (Booking booking : passenger.getBookings()) {
+            if (booking.getFlight() == this) {
+                return booking;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Adds a passenger to the flight, taking a seat whether or not one is left.
+     * Used for bookings that have already been made, such as when they are loaded;
+     * a new booking reserves its seat with {@link #tryReserveSeat()} instead.
      * 
      * @param passenger the passenger to add
      */
     public void addPassenger(Customer passenger) {
-        passengers.add(passenger);
+        if (passengers.add(passenger)) {
+            seatsTaken.incrementAndGet();
+        }
     }
 
     /**
@@ -290,7 +404,9 @@ public class Flight {
      * @param passenger the passenger to remove
      */
     public void removePassenger(Customer passenger) {
-        passengers.remove(passenger);
+        if (passengers.remove(passenger)) {
+            seatsTaken.decrementAndGet();
+        }
     }
 
     /**
@@ -309,6 +425,30 @@ public class Flight {
      */
     public void setPlane(Plane plane) {
         this.plane = plane;
+        this.seatMap = null;
+        changed();
+    }
+
+    /**
+     * Gets the seat map of the flight, laid out for its plane, with the seats of its
+     * bookings taken. Seats are assigned under the flight's
+     * {@link FlightBookingSystem#getFlightLocks() flight lock}.
+     * 
+     * @return the seat map of the flight
+     */
+    public synchronized SeatMap getSeatMap() {
+        SeatMap map = seatMap;
+        if (map == null || map.getCapacity() != getCapacity()) {
+            map = new SeatMap(getCapacity());
+            List<Booking> bookings = system != null ? new ArrayList<>(system.getBookings(this)) : List.of();
+            for (Booking booking : bookings) {
+                if (booking.getSeat() != null) {
+                    map.take(map.seatOf(booking.getSeat()));
+                }
+            }
+            seatMap = map;
+        }
+        return map;
     }
 
 	public Object getFlightName() {
@@ -318,7 +458,86 @@ public class Flight {
 
 	public void setRemoved(boolean b) {
 		this.isRemoved = b;
-		// TODO Auto-generated method stub
-		
+		changed();
+		fareChanged();
 	}
+
+    /**
+     * Marks a booking's seat as taken, if the seat map has been built. Called by the
+     * system when a booking on this flight is added or changed.
+     */
+    void seatTaken(String seat) {
+        SeatMap map = seatMap;
+        if (map != null && seat != null) {
+            map.take(map.seatOf(seat));
+        }
+    }
+
+    /**
+     * Marks a booking's seat as free again, if the seat map has been built. Called by the
+     * system when a booking on this flight is cancelled or changed.
+     */
+    void seatFreed(String seat) {
+        SeatMap map = seatMap;
+        if (map != null && seat != null) {
+            map.release(map.seatOf(seat));
+        }
+    }
+
+    /**
+     * Adds to the recent bookings of the flight. Called by the system when a booking on this
+     * flight is added, cancelled or changed.
+     * 
+     * @param bookingDate the day the booking was made
+     * @param delta 1 for a booking added, -1 for one taken away
+     */
+    void bookingRecorded(LocalDate bookingDate, int delta) {
+        if (bookingDate != null) {
+            velocity.record(bookingDate, delta);
+        }
+    }
+
+    /**
+     * Gets a number that changes whenever the flight's seats taken or recent bookings
+     * change, so prices worked out from its demand can be cached.
+     */
+    long demandStamp() {
+        return ((long) velocity.changes() << 32) | (seatsTaken.get() & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Records that this flight has changed, so the system knows to write it on the next store.
+     */
+    private void changed() {
+        if (system != null) {
+            system.markDirty(EntityType.FLIGHT, id);
+        }
+    }
+
+    /**
+     * Tells the system that this flight's fare may have changed, so its fare calendar is updated.
+     */
+    private void fareChanged() {
+        if (system != null) {
+            system.fareChanged(this);
+        }
+    }
+
+    /**
+     * Removes this flight from the system's flight number, route and departure date indexes before one of their fields changes.
+     */
+    private void unindex() {
+        if (system != null) {
+            system.unindex(this);
+        }
+    }
+
+    /**
+     * Adds this flight back to the system's flight number, route and departure date indexes after one of their fields has changed.
+     */
+    private void index() {
+        if (system != null) {
+            system.index(this);
+        }
+    }
 }
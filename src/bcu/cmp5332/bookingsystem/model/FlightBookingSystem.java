@@ -2,23 +2,191 @@ package bcu.cmp5332.bookingsystem.model;
 
 import bcu.cmp5332.bookingsystem.main.FlightBookingSystemException;
 import bcu.cmp5332.bookingsystem.main.CustomerException;
+import java.time.Clock;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Represents the Flight Booking System.
  * Manages customers, flights, bookings, planes, and airlines.
  * Provides methods to add, retrieve, and manage these entities.
+ *
+ * <p>The records and indexes are guarded by the system's monitor: the methods that add,
+ * look up or remove records hold it for the length of the call, so several threads can
+ * use them at once. Making or cancelling a booking spans several calls and is guarded by
+ * the {@link #getFlightLocks() lock of the flight} as well, which must be taken before the
+ * monitor. The collection views are not guarded and must not be iterated while another
+ * thread changes the system; readers on other threads, such as the GUI and reports,
+ * read a {@link #snapshot()} instead.</p>
  */
 public class FlightBookingSystem {
     
     private final LocalDate systemDate = LocalDate.now();
     
-    private final Map<Integer, Customer> customers = new TreeMap<>();
-    private final Map<Integer, Flight> flights = new TreeMap<>();
-    private final Map<Integer, Booking> bookings = new TreeMap<>();
-    private final Map<Integer, Plane> planes = new TreeMap<>();
-    private final Map<Integer, Airline> airlines = new TreeMap<>();
+    private final PricingEngine pricingEngine = new PricingEngine(Clock.systemDefaultZone(), PricingEngine.defaultRules());
+    
+    private final RecordStore<Customer> customers = new RecordStore<>();
+    private final RecordStore<Flight> flights = new RecordStore<>();
+    private final RecordStore<Booking> bookings = new RecordStore<>();
+    private final RecordStore<Plane> planes = new RecordStore<>();
+    private final RecordStore<Airline> airlines = new RecordStore<>();
+    
+    /*
+     * Read-only views of the stores above, created once and handed out by the getXView methods.
+     */
+    private final Collection<Customer> customersView = Collections.unmodifiableCollection(customers.values());
+    private final Collection<Flight> flightsView = Collections.unmodifiableCollection(flights.values());
+    private final Collection<Booking> bookingsView = Collections.unmodifiableCollection(bookings.values());
+    private final Collection<Plane> planesView = Collections.unmodifiableCollection(planes.values());
+    private final Collection<Airline> airlinesView = Collections.unmodifiableCollection(airlines.values());
+    
+    /*
+     * Secondary indexes on the natural keys that must be unique, and on customers' phone
+     * numbers. They hold every record in the stores above, including removed ones, and are
+     * updated by the add methods and by the entities' setters for the key fields.
+     */
+    private final Map<CustomerKey, Customer> customersByKey = new HashMap<>();
+    private final Map<String, List<Customer>> customersByPhone = new HashMap<>();
+    private final Map<FlightKey, Flight> flightsByKey = new HashMap<>();
+    private final Map<PlaneKey, Plane> planesByKey = new HashMap<>();
+    private final Map<AirlineKey, Airline> airlinesByKey = new HashMap<>();
+    
+    /*
+     * Flights by departure date, for the whole system, for each route and for each origin,
+     * so searches by route and date are range lookups. Updated by addFlight and by the
+     * flight's setters for its origin, destination and departure date. Routes and origins
+     * that lose their last flight are dropped.
+     */
+    private final DepartureIndex flightsByDeparture = new DepartureIndex();
+    private final Map<RouteKey, DepartureIndex> flightsByRoute = new HashMap<>();
+    private final Map<String, DepartureIndex> flightsByOrigin = new HashMap<>();
+    
+    /*
+     * Fare calendars of the routes that have been asked for, kept up to date by the flight
+     * and booking index methods and by fareChanged.
+     */
+    private final Map<RouteKey, FareCalendar> faresByRoute = new HashMap<>();
+    
+    /*
+     * Bookings by customer and flight, and the bookings of each flight and of each customer
+     * in the order they were added. Updated by addBooking, cancelBooking and the booking's
+     * setters, which also take and free the booking's seat in the flight's seat map.
+     * Emptied lists are kept, so views handed out of them stay live.
+     */
+    private final Map<BookingKey, Booking> bookingsByKey = new HashMap<>();
+    private final Map<Flight, List<Booking>> bookingsByFlight = new HashMap<>();
+    private final Map<Customer, List<Booking>> bookingsByCustomer = new HashMap<>();
+    
+    private record CustomerKey(String phone, String email) {
+        CustomerKey(Customer customer) {
+            this(customer.getPhone(), customer.getEmail());
+        }
+    }
+    
+    private record FlightKey(String flightNumber, LocalDate departureDate) {
+        FlightKey(Flight flight) {
+            this(flight.getFlightNumber(), flight.getDepartureDate());
+        }
+    }
+    
+    /**
+     * A route, matched regardless of case and of surrounding spaces.
+     */
+    private record RouteKey(String origin, String destination) {
+        RouteKey(Flight flight) {
+            this(flight.getOrigin(), flight.getDestination());
+        }
+        
+        RouteKey {
+            origin = normalizePlace(origin);
+            destination = normalizePlace(destination);
+        }
+    }
+    
+    /**
+     * Gets the form of a place name that the route and origin indexes match on, ignoring
+     * case and surrounding spaces.
+     */
+    static String normalizePlace(String place) {
+        return place == null ? "" : place.trim().toLowerCase(Locale.ROOT);
+    }
+    
+    private record PlaneKey(String model, int capacity) {
+        PlaneKey(Plane plane) {
+            this(plane.getModel(), plane.getCapacity());
+        }
+    }
+    
+    private record BookingKey(Customer customer, Flight flight) {
+        BookingKey(Booking booking) {
+            this(booking.getCustomer(), booking.getFlight());
+        }
+    }
+    
+    private record AirlineKey(String email, String password) {
+        AirlineKey(Airline airline) {
+            this(airline.getEmail(), airline.getPassword());
+        }
+    }
+    
+    /**
+     * Ids of the records of each type that changed since they were last stored.
+     */
+    private final Map<EntityType, Set<Integer>> dirty = new EnumMap<>(EntityType.class);
+    
+    private final IdAllocator idAllocator = new IdAllocator();
+    
+    private final FlightLocks flightLocks = new FlightLocks(64);
+    
+    /**
+     * Raised by every change to a record, so a snapshot can tell whether it is still current.
+     */
+    private final AtomicLong version = new AtomicLong();
+    private volatile SystemSnapshot latestSnapshot;
+    
+    private HistoryLoader historyLoader;
+    private boolean historyLoaded = true;
+    
+    /**
+     * Loads records that were left out when the system was loaded, such as flights that
+     * departed in earlier months and their bookings.
+     */
+    public interface HistoryLoader {
+        
+        /**
+         * Loads the records that were left out into the system.
+         * 
+         * @param fbs the system to load the records into
+         * @throws FlightBookingSystemException if the records cannot be loaded
+         */
+        void loadHistory(FlightBookingSystem fbs) throws FlightBookingSystemException;
+        
+        /**
+         * Loads the records left out that may include a record, leaving the others out.
+         * 
+         * @param fbs the system to load the records into
+         * @param type the type of the record
+         * @param id the ID of the record
+         * @return true if no records are left out any more, false otherwise
+         * @throws FlightBookingSystemException if the records cannot be loaded
+         */
+        boolean loadHistory(FlightBookingSystem fbs, EntityType type, int id) throws FlightBookingSystemException;
+        
+        /**
+         * Gets the highest ID of the records of a type that were left out.
+         * 
+         * @param type the type of record
+         * @return the highest ID of the records left out, or 0 if there are none
+         */
+        int getHighestId(EntityType type);
+    }
+    
+    {
+        for (EntityType type : EntityType.values()) {
+            dirty.put(type, new HashSet<>());
+        }
+    }
 
     /**
      * Gets the current system date.
@@ -29,8 +197,20 @@ public class FlightBookingSystem {
         return systemDate;
     }
     
+    /**
+     * Gets the engine that works out the dynamic prices of the system's flights. Its clock
+     * also gives the business date that future flights, searches and fare calendars are
+     * counted from.
+     * 
+     * @return the pricing engine
+     */
+    public PricingEngine getPricingEngine() {
+        return pricingEngine;
+    }
+    
     /**
      * Retrieves all flights in the system.
+     * The list is a copy; use {@link #getFlightsView()} to read the flights without copying them.
      * 
      * @return an unmodifiable list of flights
      */
@@ -39,8 +219,221 @@ public class FlightBookingSystem {
         return Collections.unmodifiableList(out);
     }
     
+    /**
+     * Gets a read-only view of every flight in the system, in ID order. The view is not a
+     * copy: it reflects later changes and must not be iterated while the system changes.
+     * 
+     * @return an unmodifiable view of the flights
+     */
+    public Collection<Flight> getFlightsView() {
+        return flightsView;
+    }
+    
+    /**
+     * Gets a read-only view of every plane in the system, in ID order.
+     * 
+     * @return an unmodifiable view of the planes
+     * @see #getFlightsView()
+     */
+    public Collection<Plane> getPlanesView() {
+        return planesView;
+    }
+    
+    /**
+     * Gets a read-only view of every airline in the system, in ID order.
+     * 
+     * @return an unmodifiable view of the airlines
+     * @see #getFlightsView()
+     */
+    public Collection<Airline> getAirlinesView() {
+        return airlinesView;
+    }
+    
+    /**
+     * Gets a read-only view of every customer in the system, in ID order.
+     * 
+     * @return an unmodifiable view of the customers
+     * @see #getFlightsView()
+     */
+    public Collection<Customer> getCustomersView() {
+        return customersView;
+    }
+    
+    /**
+     * Gets a read-only view of every booking in the system, in ID order.
+     * 
+     * @return an unmodifiable view of the bookings
+     * @see #getFlightsView()
+     */
+    public Collection<Booking> getBookingsView() {
+        return bookingsView;
+    }
+    
+    /**
+     * Takes a point-in-time snapshot of the records in the system, which can be read on
+     * any thread while the system keeps changing. Taking it copies one array per type of
+     * record under the system's monitor; until the system changes again the same snapshot
+     * is handed out without copying or locking anything.
+     * 
+     * @return a snapshot of the current records
+     */
+    public SystemSnapshot snapshot() {
+        SystemSnapshot snapshot = latestSnapshot;
+        if (snapshot != null && snapshot.getVersion() == version.get()) {
+            return snapshot;
+        }
+        synchronized (this) {
+            snapshot = latestSnapshot;
+            long current = version.get();
+            if (snapshot == null || snapshot.getVersion() != current) {
+                snapshot = new SystemSnapshot(current, airlines.snapshot(), planes.snapshot(),
+                        flights.snapshot(), customers.snapshot(), bookings.snapshot());
+                latestSnapshot = snapshot;
+            }
+            return snapshot;
+        }
+    }
+    
+    /**
+     * Gets a cursor over the flights that have not been removed and have not departed yet.
+     * 
+     * @return a view of the active future flights, in ID order
+     */
+    public FilteredView<Flight> getActiveFutureFlights() {
+        return new FilteredView<>(flightsView,
+                flight -> !flight.isRemoved() && flight.getDepartureDate().isAfter(pricingEngine.today()));
+    }
+    
+    /**
+     * Gets a cursor over the customers that have not been removed.
+     * 
+     * @return a view of the active customers, in ID order
+     */
+    public FilteredView<Customer> getActiveCustomers() {
+        return new FilteredView<>(customersView, customer -> !customer.isRemoved());
+    }
+    
+    /**
+     * Retrieves the flights that have not been removed and depart after today.
+     * Found with a range lookup of the departure index.
+     * 
+     * @return a new list of the future flights, in departure order
+     */
+    public List<Flight> getFutureFlights() {
+        return getFlightsDeparting(pricingEngine.today().plusDays(1), null);
+    }
+    
+    /**
+     * Retrieves the flights that have not been removed and depart in a range of dates.
+     * 
+     * @param from the first departure date, or null for no lower bound
+     * @param to the last departure date, or null for no upper bound
+     * @return a new list of the flights, in departure order
+     */
+    public synchronized List<Flight> getFlightsDeparting(LocalDate from, LocalDate to) {
+        List<Flight> out = new ArrayList<>();
+        flightsByDeparture.collect(from, to, out);
+        return out;
+    }
+    
+    /**
+     * Retrieves the flights on a route that have not been removed and depart in a range
+     * of dates. Origin and destination are matched regardless of case.
+     * 
+     * @param origin the origin of the route
+     * @param destination the destination of the route
+     * @param from the first departure date, or null for no lower bound
+     * @param to the last departure date, or null for no upper bound
+     * @return a new list of the flights, in departure order
+     */
+    public synchronized List<Flight> getFlightsOnRoute(String origin, String destination, LocalDate from, LocalDate to) {
+        List<Flight> out = new ArrayList<>();
+        DepartureIndex route = flightsByRoute.get(new RouteKey(origin, destination));
+        if (route != null) {
+            route.collect(from, to, out);
+        }
+        return out;
+    }
+    
+    /**
+     * Retrieves the flights from an origin that have not been removed and depart in a
+     * range of dates. The origin is matched regardless of case.
+     * 
+     * @param origin the origin of the flights
+     * @param from the first departure date, or null for no lower bound
+     * @param to the last departure date, or null for no upper bound
+     * @return a new list of the flights, in departure order
+     */
+    public synchronized List<Flight> getFlightsFrom(String origin, LocalDate from, LocalDate to) {
+        List<Flight> out = new ArrayList<>();
+        DepartureIndex departures = flightsByOrigin.get(normalizePlace(origin));
+        if (departures != null) {
+            departures.collect(from, to, out);
+        }
+        return out;
+    }
+    
+    /**
+     * Gets the cheapest fare of a route for each of the next {@value FareCalendar#DAYS}
+     * days, starting tomorrow. The calendar of a route is materialized the first time it
+     * is asked for and then kept up to date, so reading it again only prices the days
+     * that changed. Origin and destination are matched regardless of case.
+     * 
+     * @param origin the origin of the route
+     * @param destination the destination of the route
+     * @return the cheapest fare of each day, in date order
+     */
+    public synchronized List<FareCalendar.Fare> getFareCalendar(String origin, String destination) {
+        RouteKey key = new RouteKey(origin, destination);
+        FareCalendar calendar = faresByRoute.computeIfAbsent(key, route -> new FareCalendar());
+        return calendar.read(pricingEngine.today().plusDays(1), pricingEngine.getGeneration(), flightsByRoute.get(key));
+    }
+    
+    /**
+     * Records that the fare of a flight may have changed, such as when its price changes
+     * or it is removed, so the fare calendar of its route prices its day again.
+     * 
+     * @param flight the flight whose fare may have changed
+     */
+    synchronized void fareChanged(Flight flight) {
+        FareCalendar calendar = faresByRoute.get(new RouteKey(flight));
+        if (calendar != null) {
+            calendar.invalidate(flight.getDepartureDate());
+        }
+    }
+    
+    /**
+     * Searches the future flights, as the customer search does. Blank criteria match any
+     * flight. With both an origin and a destination the route index is used, otherwise the
+     * departure index; either way a date narrows the lookup to that day.
+     * 
+     * @param origin the origin of the flights, or null or blank for any
+     * @param destination the destination of the flights, or null or blank for any
+     * @param date the departure date of the flights, or null for any future date
+     * @return a new list of the matching flights, in departure order
+     */
+    public List<Flight> searchFlights(String origin, String destination, LocalDate date) {
+        LocalDate tomorrow = pricingEngine.today().plusDays(1);
+        if (date != null && date.isBefore(tomorrow)) {
+            return new ArrayList<>();
+        }
+        LocalDate from = date == null ? tomorrow : date;
+        boolean anyOrigin = origin == null || origin.isBlank();
+        boolean anyDestination = destination == null || destination.isBlank();
+        if (!anyOrigin && !anyDestination) {
+            return getFlightsOnRoute(origin, destination, from, date);
+        }
+        List<Flight> flights = getFlightsDeparting(from, date);
+        if (!anyOrigin || !anyDestination) {
+            String place = normalizePlace(anyOrigin ? destination : origin);
+            flights.removeIf(flight -> !normalizePlace(anyOrigin ? flight.getDestination() : flight.getOrigin()).equals(place));
+        }
+        return flights;
+    }
+    
     /**
      * Retrieves all planes in the system.
+     * The list is a copy; use {@link #getPlanesView()} to read the planes without copying them.
      * 
      * @return an unmodifiable list of planes
      */
@@ -55,14 +448,8 @@ public class FlightBookingSystem {
      * @param customer the customer to check
      * @return true if the customer exists, false otherwise
      */
-    public boolean customerExists(Customer customer) {
-    	for (Customer existing : customers.values()) {
-            if (existing.getPhone().equals(customer.getPhone()) 
-                && existing.getEmail().equals(customer.getEmail())) {
-                return true;
-            }
-        }
-		return false;
+    public synchronized boolean customerExists(Customer customer) {
+        return customersByKey.containsKey(new CustomerKey(customer));
     }
 
     /**
@@ -72,22 +459,38 @@ public class FlightBookingSystem {
      * @return the plane with the specified ID
      * @throws FlightBookingSystemException if no plane with the ID is found
      */
-    public Plane getPlaneByID(int id) throws FlightBookingSystemException {
-        if (!planes.containsKey(id)) {
+    public synchronized Plane getPlaneByID(int id) throws FlightBookingSystemException {
+        Plane plane = planes.get(id);
+        if (plane == null) {
             throw new FlightBookingSystemException("There is no plane with that ID.");
         }
-        return planes.get(id);
+        return plane;
     }
     
-    public Booking getBookingByID(int id) throws FlightBookingSystemException {
-        if (!bookings.containsKey(id)) {
-            throw new FlightBookingSystemException("There is no plane with that ID.");
+    /**
+     * Retrieves a booking by its ID, loading the history first if the booking may be in it.
+     * Since that changes the system, call this on the command pipeline's writer thread;
+     * other threads look bookings up in a {@link #snapshot()}.
+     * 
+     * @param id the ID of the booking to retrieve
+     * @return the booking with the specified ID
+     * @throws FlightBookingSystemException if no booking with the ID is found
+     */
+    public synchronized Booking getBookingByID(int id) throws FlightBookingSystemException {
+        Booking booking = bookings.get(id);
+        if (booking == null && mayBeInHistory(EntityType.BOOKING, id)) {
+            loadHistory(EntityType.BOOKING, id);
+            booking = bookings.get(id);
+        }
+        if (booking == null) {
+            throw new FlightBookingSystemException("There is no booking with that ID.");
         }
-        return bookings.get(id);
+        return booking;
     }
     
     /**
      * Retrieves all airlines in the system.
+     * The list is a copy; use {@link #getAirlinesView()} to read the airlines without copying them.
      * 
      * @return an unmodifiable list of airlines
      */
@@ -103,29 +506,38 @@ public class FlightBookingSystem {
      * @return the airline with the specified ID
      * @throws FlightBookingSystemException if no airline with the ID is found
      */
-    public Airline getAirlineByID(int id) throws FlightBookingSystemException {
-        if (!airlines.containsKey(id)) {
+    public synchronized Airline getAirlineByID(int id) throws FlightBookingSystemException {
+        Airline airline = airlines.get(id);
+        if (airline == null) {
             throw new FlightBookingSystemException("There is no airline with that ID.");
         }
-        return airlines.get(id);
+        return airline;
     }
 
     /**
-     * Retrieves a flight by its ID.
+     * Retrieves a flight by its ID, loading the history first if the flight may be in it.
+     * Since that changes the system, call this on the command pipeline's writer thread;
+     * other threads look flights up in a {@link #snapshot()}.
      * 
      * @param id the ID of the flight to retrieve
      * @return the flight with the specified ID
      * @throws FlightBookingSystemException if no flight with the ID is found
      */
-    public Flight getFlightByID(int id) throws FlightBookingSystemException {
-        if (!flights.containsKey(id)) {
+    public synchronized Flight getFlightByID(int id) throws FlightBookingSystemException {
+        Flight flight = flights.get(id);
+        if (flight == null && mayBeInHistory(EntityType.FLIGHT, id)) {
+            loadHistory(EntityType.FLIGHT, id);
+            flight = flights.get(id);
+        }
+        if (flight == null) {
             throw new FlightBookingSystemException("There is no flight with that ID.");
         }
-        return flights.get(id);
+        return flight;
     }
 
     /**
      * Retrieves all customers in the system.
+     * The list is a copy; use {@link #getCustomersView()} to read the customers without copying them.
      * 
      * @return an unmodifiable list of customers
      */
@@ -141,11 +553,12 @@ public class FlightBookingSystem {
      * @return the customer with the specified ID
      * @throws CustomerException if no customer with the ID is found
      */
-    public Customer getCustomerByID(int id) throws CustomerException {
-        if (!customers.containsKey(id)) {
+    public synchronized Customer getCustomerByID(int id) throws CustomerException {
+        Customer customer = customers.get(id);
+        if (customer == null) {
             throw new CustomerException("There is no customer with that ID.");
         }
-        return customers.get(id);
+        return customer;
     }
     
     /**
@@ -155,17 +568,24 @@ public class FlightBookingSystem {
      * @return the customer with the specified phone number
      * @throws CustomerException if no customer with the phone number is found
      */
-    public Customer getCustomerByPhone(String phone) throws CustomerException {
-        for (Customer existing : customers.values()) {
-            if (existing.getPhone().equals(phone)) {
-            	return existing;
+    public synchronized Customer getCustomerByPhone(String phone) throws CustomerException {
+        List<Customer> matches = customersByPhone.get(phone);
+        if (matches == null) {
+            return null;
+        }
+        // Several customers may share a phone number with different emails
+        Customer first = matches.get(0);
+        for (Customer match : matches) {
+            if (match.getId() < first.getId()) {
+                first = match;
             }
         }
-		return null;
+        return first;
     }
 
     /**
      * Retrieves all bookings in the system.
+     * The list is a copy; use {@link #getBookingsView()} to read the bookings without copying them.
      * 
      * @return an unmodifiable list of bookings
      */
@@ -174,13 +594,48 @@ public class FlightBookingSystem {
         return Collections.unmodifiableList(out);
     }
     
+    /**
+     * Retrieves the booking a customer has made on a flight.
+     * 
+     * @param customer the customer who made the booking
+     * @param flight the flight that was booked
+     * @return the booking, or null if the customer has no booking on the flight
+     */
+    public synchronized Booking getBooking(Customer customer, Flight flight) {
+        return bookingsByKey.get(new BookingKey(customer, flight));
+    }
+    
+    /**
+     * Retrieves the bookings made on a flight. The list is a read-only view that reflects
+     * later bookings and cancellations.
+     * 
+     * @param flight the flight whose bookings to retrieve
+     * @return an unmodifiable view of the flight's bookings, in the order they were added
+     */
+    public synchronized List<Booking> getBookings(Flight flight) {
+        return Collections.unmodifiableList(bookingsByFlight.computeIfAbsent(flight, key -> new ArrayList<>()));
+    }
+    
+    /**
+     * Retrieves the bookings made by a customer. The list is a read-only view that reflects
+     * later bookings and cancellations.
+     * 
+     * @param customer the customer whose bookings to retrieve
+     * @return an unmodifiable view of the customer's bookings, in the order they were added
+     */
+    public synchronized List<Booking> getBookings(Customer customer) {
+        return Collections.unmodifiableList(bookingsByCustomer.computeIfAbsent(customer, key -> new ArrayList<>()));
+    }
+    
     /**
      * Cancels a booking.
      * 
      * @param booking the booking to cancel
      */
-    public void cancelBooking(Booking booking) {
+    public synchronized void cancelBooking(Booking booking) {
     	bookings.remove(booking.getId());
+    	unindex(booking);
+    	markDirty(EntityType.BOOKING, booking.getId());
     }
     
     /**
@@ -189,8 +644,12 @@ public class FlightBookingSystem {
      * @param booking the booking to add
      * @throws FlightBookingSystemException if there's an issue adding the booking
      */
-    public void addBooking(Booking booking) throws FlightBookingSystemException{
+    public synchronized void addBooking(Booking booking) throws FlightBookingSystemException{
         bookings.put(booking.getId(), booking);
+        index(booking);
+        booking.system = this;
+        idAllocator.observe(EntityType.BOOKING, booking.getId());
+        markDirty(EntityType.BOOKING, booking.getId());
     }
     
     /**
@@ -199,17 +658,18 @@ public class FlightBookingSystem {
      * @param flight the flight to add
      * @throws FlightBookingSystemException if there's an issue adding the flight
      */
-    public void addFlight(Flight flight) throws FlightBookingSystemException {
+    public synchronized void addFlight(Flight flight) throws FlightBookingSystemException {
         if (flights.containsKey(flight.getId())) {
             throw new IllegalArgumentException("Duplicate flight ID.");
         }
-        for (Flight existing : flights.values()) {
-            if (existing.getFlightNumber().equals(flight.getFlightNumber()) 
-                && existing.getDepartureDate().isEqual(flight.getDepartureDate())) {
-                throw new FlightBookingSystemException("There is a flight with the same number and departure date in the system");
-            }
+        if (flightsByKey.containsKey(new FlightKey(flight))) {
+            throw new FlightBookingSystemException("There is a flight with the same number and departure date in the system");
         }
         flights.put(flight.getId(), flight);
+        index(flight);
+        flight.system = this;
+        idAllocator.observe(EntityType.FLIGHT, flight.getId());
+        markDirty(EntityType.FLIGHT, flight.getId());
     }
     
     /**
@@ -218,17 +678,18 @@ public class FlightBookingSystem {
      * @param plane the plane to add
      * @throws FlightBookingSystemException if there's an issue adding the plane
      */
-    public void addPlane(Plane plane) throws FlightBookingSystemException {
+    public synchronized void addPlane(Plane plane) throws FlightBookingSystemException {
         if (planes.containsKey(plane.getId())) {
             throw new IllegalArgumentException("Duplicate plane ID.");
         }
-        for (Plane existing : planes.values()) {
-            if (existing.getModel().equals(plane.getModel()) 
-                && existing.getCapacity() == plane.getCapacity()) {
-                throw new FlightBookingSystemException("There is a plane with the same model and capacity in the system");
-            }
+        if (planesByKey.containsKey(new PlaneKey(plane))) {
+            throw new FlightBookingSystemException("There is a plane with the same model and capacity in the system");
         }
         planes.put(plane.getId(), plane);
+        index(plane);
+        plane.system = this;
+        idAllocator.observe(EntityType.PLANE, plane.getId());
+        markDirty(EntityType.PLANE, plane.getId());
     }
     
     /**
@@ -237,17 +698,18 @@ public class FlightBookingSystem {
      * @param airline the airline to add
      * @throws FlightBookingSystemException if there's an issue adding the airline
      */
-    public void addAirline(Airline airline) throws FlightBookingSystemException {
+    public synchronized void addAirline(Airline airline) throws FlightBookingSystemException {
         if (airlines.containsKey(airline.getId())) {
             throw new IllegalArgumentException("Duplicate airline ID.");
         }
-        for (Airline existing : airlines.values()) {
-            if (existing.getEmail().equals(airline.getEmail()) 
-                && existing.getPassword().equals(airline.getPassword())) {
-                throw new FlightBookingSystemException("There is an airline with the same email and password in the system");
-            }
+        if (airlinesByKey.containsKey(new AirlineKey(airline))) {
+            throw new FlightBookingSystemException("There is an airline with the same email and password in the system");
         }
         airlines.put(airline.getId(), airline);
+        index(airline);
+        airline.system = this;
+        idAllocator.observe(EntityType.AIRLINE, airline.getId());
+        markDirty(EntityType.AIRLINE, airline.getId());
     }
 
     /**
@@ -256,16 +718,316 @@ public class FlightBookingSystem {
      * @param customer the customer to add
      * @throws CustomerException if there's an issue adding the customer
      */
-    public void addCustomer(Customer customer) throws CustomerException {
+    public synchronized void addCustomer(Customer customer) throws CustomerException {
         if (customers.containsKey(customer.getId())) {
             throw new IllegalArgumentException("Duplicate customer ID.");
         }
-        for (Customer existing : customers.values()) {
-            if (existing.getPhone().equals(customer.getPhone()) 
-                && existing.getEmail().equals(customer.getEmail())) {
-                throw new CustomerException("There is a customer with the same phone and email in the system");
-            }
+        if (customerExists(customer)) {
+            throw new CustomerException("There is a customer with the same phone and email in the system");
         }
         customers.put(customer.getId(), customer);
+        index(customer);
+        customer.system = this;
+        idAllocator.observe(EntityType.CUSTOMER, customer.getId());
+        markDirty(EntityType.CUSTOMER, customer.getId());
+    }
+    
+    /**
+     * Gets the allocator that hands out the IDs of new records. Every record added to the
+     * system raises its type's sequence, so allocated IDs never clash with loaded ones.
+     * 
+     * @return the ID allocator of this system
+     */
+    public IdAllocator getIdAllocator() {
+        return idAllocator;
+    }
+    
+    /**
+     * Gets the striped locks that guard the seat inventory and bookings of each flight.
+     * A command that books, cancels or moves a booking holds the lock of every flight it
+     * changes, so bookings on different flights can be made in parallel without overselling
+     * any of them.
+     * 
+     * @return the flight locks of this system
+     */
+    public FlightLocks getFlightLocks() {
+        return flightLocks;
+    }
+    
+    /**
+     * Sets the loader for the records that were left out when the system was loaded.
+     * Until {@link #loadHistory()} is called, {@link #getFlights()} and {@link #getBookings()}
+     * only return the records that were loaded; looking up a record by ID loads the
+     * history first if the record may be part of it.
+     * 
+     * @param loader the loader for the records left out, or null if every record was loaded
+     */
+    public void setHistoryLoader(HistoryLoader loader) {
+        this.historyLoader = loader;
+        this.historyLoaded = loader == null;
+        if (loader != null) {
+            idAllocator.observe(EntityType.FLIGHT, loader.getHighestId(EntityType.FLIGHT));
+            idAllocator.observe(EntityType.BOOKING, loader.getHighestId(EntityType.BOOKING));
+        }
+    }
+    
+    /**
+     * Gets the loader for the records that were left out when the system was loaded.
+     * 
+     * @return the loader, or null if every record was loaded
+     */
+    public HistoryLoader getHistoryLoader() {
+        return historyLoader;
+    }
+    
+    /**
+     * Checks if every record has been loaded.
+     * 
+     * @return true if no records are waiting to be loaded, false otherwise
+     */
+    public boolean isHistoryLoaded() {
+        return historyLoaded;
+    }
+    
+    /**
+     * Loads the records that were left out when the system was loaded, if they have not
+     * been loaded yet. Reports and views of past flights and bookings call this first,
+     * through the command pipeline, so the records are only added on its writer thread.
+     * 
+     * @throws FlightBookingSystemException if the records cannot be loaded
+     */
+    public synchronized void loadHistory() throws FlightBookingSystemException {
+        if (historyLoaded) {
+            return;
+        }
+        historyLoaded = true;
+        try {
+            historyLoader.loadHistory(this);
+        } catch (FlightBookingSystemException | RuntimeException ex) {
+            historyLoaded = false;
+            throw ex;
+        }
+    }
+    
+    /**
+     * Gets the highest ID in use for a type of record, including records that have not
+     * been loaded yet.
+     * 
+     * @param type the type of record
+     * @return the highest ID in use, or 0 if there are no records of that type
+     */
+    public synchronized int getHighestId(EntityType type) {
+        RecordStore<?> records = switch (type) {
+            case AIRLINE -> airlines;
+            case PLANE -> planes;
+            case FLIGHT -> flights;
+            case CUSTOMER -> customers;
+            case BOOKING -> bookings;
+        };
+        int highest = records.isEmpty() ? 0 : records.lastKey();
+        if (!historyLoaded) {
+            highest = Math.max(highest, historyLoader.getHighestId(type));
+        }
+        return highest;
+    }
+    
+    /**
+     * Loads the part of the history that may hold a record.
+     */
+    private void loadHistory(EntityType type, int id) throws FlightBookingSystemException {
+        if (historyLoader.loadHistory(this, type, id)) {
+            historyLoaded = true;
+        }
+    }
+    
+    private boolean mayBeInHistory(EntityType type, int id) {
+        return !historyLoaded && id <= historyLoader.getHighestId(type);
+    }
+    
+    /*
+     * Index maintenance. A setter that changes a key field unindexes the record, changes
+     * the field and indexes it again. A key that a setter makes equal to another record's
+     * key keeps pointing at the record indexed last.
+     */
+    
+    synchronized void index(Customer customer) {
+        customersByKey.put(new CustomerKey(customer), customer);
+        customersByPhone.computeIfAbsent(customer.getPhone(), phone -> new ArrayList<>(1)).add(customer);
+    }
+    
+    synchronized void unindex(Customer customer) {
+        customersByKey.remove(new CustomerKey(customer), customer);
+        List<Customer> matches = customersByPhone.get(customer.getPhone());
+        if (matches != null) {
+            matches.remove(customer);
+            if (matches.isEmpty()) {
+                customersByPhone.remove(customer.getPhone());
+            }
+        }
+    }
+    
+    synchronized void index(Booking booking) {
+        if (bookings.get(booking.getId()) != booking) {
+            // Cancelled bookings keep their system but are no longer indexed
+            return;
+        }
+        bookingsByKey.put(new BookingKey(booking), booking);
+        bookingsByFlight.computeIfAbsent(booking.getFlight(), flight -> new ArrayList<>()).add(booking);
+        bookingsByCustomer.computeIfAbsent(booking.getCustomer(), customer -> new ArrayList<>()).add(booking);
+        booking.getFlight().seatTaken(booking.getSeat());
+        booking.getFlight().bookingRecorded(booking.getBookingDate(), 1);
+        fareChanged(booking.getFlight());
+    }
+    
+    synchronized void unindex(Booking booking) {
+        bookingsByKey.remove(new BookingKey(booking), booking);
+        List<Booking> flightBookings = bookingsByFlight.get(booking.getFlight());
+        if (flightBookings != null && flightBookings.remove(booking)) {
+            // Only a booking that was indexed holds its seat
+            booking.getFlight().seatFreed(booking.getSeat());
+            booking.getFlight().bookingRecorded(booking.getBookingDate(), -1);
+            fareChanged(booking.getFlight());
+        }
+        List<Booking> customerBookings = bookingsByCustomer.get(booking.getCustomer());
+        if (customerBookings != null) {
+            customerBookings.remove(booking);
+        }
+    }
+    
+    synchronized void index(Flight flight) {
+        flightsByKey.put(new FlightKey(flight), flight);
+        flightsByDeparture.add(flight);
+        flightsByRoute.computeIfAbsent(new RouteKey(flight), route -> new DepartureIndex()).add(flight);
+        flightsByOrigin.computeIfAbsent(normalizePlace(flight.getOrigin()), origin -> new DepartureIndex()).add(flight);
+        fareChanged(flight);
+    }
+    
+    synchronized void unindex(Flight flight) {
+        fareChanged(flight);
+        flightsByKey.remove(new FlightKey(flight), flight);
+        flightsByDeparture.remove(flight);
+        RouteKey key = new RouteKey(flight);
+        DepartureIndex route = flightsByRoute.get(key);
+        if (route != null) {
+            route.remove(flight);
+            if (route.isEmpty()) {
+                flightsByRoute.remove(key);
+            }
+        }
+        String origin = normalizePlace(flight.getOrigin());
+        DepartureIndex departures = flightsByOrigin.get(origin);
+        if (departures != null) {
+            departures.remove(flight);
+            if (departures.isEmpty()) {
+                flightsByOrigin.remove(origin);
+            }
+        }
+    }
+    
+    synchronized void index(Plane plane) {
+        planesByKey.put(new PlaneKey(plane), plane);
+    }
+    
+    synchronized void unindex(Plane plane) {
+        planesByKey.remove(new PlaneKey(plane), plane);
+    }
+    
+    synchronized void index(Airline airline) {
+        airlinesByKey.put(new AirlineKey(airline), airline);
+    }
+    
+    synchronized void unindex(Airline airline) {
+        airlinesByKey.remove(new AirlineKey(airline), airline);
+    }
+    
+    /**
+     * Records that a record has been added, changed or removed since it was last stored.
+     * Called by the add methods, {@link #cancelBooking(Booking)} and the setters of the
+     * entities held by this system. Also raises the version that {@link #snapshot()}
+     * checks its last snapshot against.
+     * 
+     * @param type the type of the record
+     * @param id the ID of the record
+     */
+    void markDirty(EntityType type, int id) {
+        synchronized (dirty) {
+            dirty.get(type).add(id);
+        }
+        version.incrementAndGet();
+    }
+    
+    /**
+     * Checks if any record of a type has changed since it was last stored.
+     * 
+     * @param type the type of record to check
+     * @return true if a record of that type has changed, false otherwise
+     */
+    public boolean isDirty(EntityType type) {
+        synchronized (dirty) {
+            return !dirty.get(type).isEmpty();
+        }
+    }
+    
+    /**
+     * Checks if any record has changed since it was last stored.
+     * 
+     * @return true if any record has changed, false otherwise
+     */
+    public boolean isDirty() {
+        synchronized (dirty) {
+            for (Set<Integer> ids : dirty.values()) {
+                if (!ids.isEmpty()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+    
+    /**
+     * Retrieves the IDs of the records of a type that changed since they were last stored.
+     * Removed records are included, so their IDs may no longer be found in the system.
+     * 
+     * @param type the type of record
+     * @return an unmodifiable set of record IDs
+     */
+    public Set<Integer> getDirtyIds(EntityType type) {
+        synchronized (dirty) {
+            return Collections.unmodifiableSet(new HashSet<>(dirty.get(type)));
+        }
+    }
+    
+    /**
+     * Marks every record of a type as stored.
+     * 
+     * @param type the type of record that has been stored
+     */
+    public void clearDirty(EntityType type) {
+        synchronized (dirty) {
+            dirty.get(type).clear();
+        }
+    }
+    
+    /**
+     * Marks some records of a type as stored.
+     * 
+     * @param type the type of record that has been stored
+     * @param ids the IDs of the records that have been stored
+     */
+    public void clearDirty(EntityType type, Collection<Integer> ids) {
+        synchronized (dirty) {
+            dirty.get(type).removeAll(ids);
+        }
+    }
+    
+    /**
+     * Marks every record as stored.
+     */
+    public void clearDirty() {
+        synchronized (dirty) {
+            for (Set<Integer> ids : dirty.values()) {
+                ids.clear();
+            }
+        }
     }
 }
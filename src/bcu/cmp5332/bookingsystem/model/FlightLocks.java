@@ -0,0 +1,119 @@
+package bcu.cmp5332.bookingsystem.model;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Striped locks guarding the seat inventory and bookings of flights.
+ *
+ * <p>Each flight maps to one of a fixed number of locks by its ID, so threads booking
+ * different flights rarely wait for each other while the number of locks stays bounded
+ * however many flights there are. Two flights may share a lock; that only costs some
+ * parallelism, never correctness.</p>
+ *
+ * <p>Lock ordering rules, which keep threads that hold several locks from deadlocking:</p>
+ * <ul>
+ *   <li>A thread that needs the locks of two flights, such as when a booking moves between
+ *       flights, takes both through {@link #lock(Flight, Flight)}, which always takes
+ *       the lower stripe first.</li>
+ *   <li>A thread holding a flight lock must not take another one on its own.</li>
+ *   <li>The monitor of the {@link FlightBookingSystem} is only ever taken after a flight
+ *       lock, never before one.</li>
+ * </ul>
+ */
+public class FlightLocks {
+
+    private final ReentrantLock[] stripes;
+
+    /**
+     * Creates a set of striped locks.
+     *
+     * @param stripes the minimum number of locks; rounded up to a power of two
+     */
+    public FlightLocks(int stripes) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("The number of stripes must be positive.");
+        }
+        int count = Integer.highestOneBit(stripes - 1) << 1;
+        this.stripes = new ReentrantLock[Math.max(count, 1)];
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Takes the lock of a flight, waiting for it if another thread holds it.
+     *
+     * @param flight the flight to lock
+     * @return the held lock, to be released by closing it
+     */
+    public Held lock(Flight flight) {
+        ReentrantLock lock = stripes[stripe(flight)];
+        lock.lock();
+        return new Held(lock, null);
+    }
+
+    /**
+     * Takes the locks of two flights, lower stripe first. Takes a single lock if both
+     * flights map to the same one, or if they are the same flight.
+     *
+     * @param first one of the flights to lock
+     * @param second the other flight to lock
+     * @return the held locks, to be released by closing them
+     */
+    public Held lock(Flight first, Flight second) {
+        int a = stripe(first);
+        int b = stripe(second);
+        if (a == b) {
+            stripes[a].lock();
+            return new Held(stripes[a], null);
+        }
+        ReentrantLock lower = stripes[Math.min(a, b)];
+        ReentrantLock upper = stripes[Math.max(a, b)];
+        lower.lock();
+        try {
+            upper.lock();
+        } catch (RuntimeException | Error ex) {
+            lower.unlock();
+            throw ex;
+        }
+        return new Held(upper, lower);
+    }
+
+    /**
+     * Checks whether the current thread holds the lock of a flight.
+     *
+     * @param flight the flight to check
+     * @return true if the current thread holds the flight's lock
+     */
+    public boolean isHeldByCurrentThread(Flight flight) {
+        return stripes[stripe(flight)].isHeldByCurrentThread();
+    }
+
+    private int stripe(Flight flight) {
+        int h = flight.getId() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (stripes.length - 1);
+    }
+
+    /**
+     * One or two flight locks held by the current thread. Closing it releases them in the
+     * reverse order they were taken.
+     */
+    public static final class Held implements AutoCloseable {
+
+        private final ReentrantLock last;
+        private final ReentrantLock first;
+
+        private Held(ReentrantLock last, ReentrantLock first) {
+            this.last = last;
+            this.first = first;
+        }
+
+        @Override
+        public void close() {
+            last.unlock();
+            if (first != null) {
+                first.unlock();
+            }
+        }
+    }
+}
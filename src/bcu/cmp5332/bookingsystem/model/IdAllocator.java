@@ -0,0 +1,128 @@
+package bcu.cmp5332.bookingsystem.model;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out the IDs of new airlines, planes, flights, customers and bookings.
+ *
+ * <p>Each type of entity has its own sequence holding the highest ID handed out or seen
+ * so far. {@link #next(EntityType)} takes the next ID with a single atomic increment, so
+ * it is safe to call from several threads without locking. A writer that adds many
+ * records can {@link #lease(EntityType, int) lease} a block of IDs and use them without
+ * touching the shared sequence again.</p>
+ *
+ * <p>Records that are loaded or added with an ID of their own raise the sequence through
+ * {@link #observe(EntityType, int)}, and the data layer stores the high-water marks so an
+ * ID is never handed out twice, even after the record holding it was cancelled.</p>
+ */
+public class IdAllocator {
+
+    private final AtomicLong[] highest;
+
+    /**
+     * Creates an allocator whose sequences all start at 1.
+     */
+    public IdAllocator() {
+        highest = new AtomicLong[EntityType.values().length];
+        for (int i = 0; i < highest.length; i++) {
+            highest[i] = new AtomicLong();
+        }
+    }
+
+    /**
+     * Takes the next ID of a type of entity.
+     *
+     * @param type the type of entity
+     * @return an ID that has not been handed out or seen before
+     * @throws ArithmeticException if the IDs of the type have run out
+     */
+    public int next(EntityType type) {
+        long id = highest[type.ordinal()].incrementAndGet();
+        if (id > Integer.MAX_VALUE) {
+            throw new ArithmeticException("The IDs of " + type + " have run out.");
+        }
+        return (int) id;
+    }
+
+    /**
+     * Takes a block of consecutive IDs of a type of entity for a single writer.
+     * IDs of the block that are not used are skipped, never handed out again.
+     *
+     * @param type the type of entity
+     * @param size the number of IDs in the block
+     * @return the leased block
+     * @throws ArithmeticException if the IDs of the type have run out
+     */
+    public Block lease(EntityType type, int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Block size must be positive.");
+        }
+        long first = highest[type.ordinal()].getAndAdd(size) + 1;
+        long last = first + size - 1;
+        if (last > Integer.MAX_VALUE) {
+            throw new ArithmeticException("The IDs of " + type + " have run out.");
+        }
+        return new Block(first, last);
+    }
+
+    /**
+     * Records that an ID of a type of entity is in use, so it is never handed out.
+     *
+     * @param type the type of entity
+     * @param id the ID in use
+     */
+    public void observe(EntityType type, long id) {
+        AtomicLong sequence = highest[type.ordinal()];
+        long current = sequence.get();
+        while (id > current && !sequence.compareAndSet(current, id)) {
+            current = sequence.get();
+        }
+    }
+
+    /**
+     * Gets the highest ID of a type of entity handed out or seen so far.
+     *
+     * @param type the type of entity
+     * @return the high-water mark of the type, or 0 if no ID has been used
+     */
+    public long getHighWaterMark(EntityType type) {
+        return highest[type.ordinal()].get();
+    }
+
+    /**
+     * A block of consecutive IDs leased to a single writer. It is not safe to share a
+     * block between threads; each writer leases its own.
+     */
+    public static final class Block {
+
+        private long next;
+        private final long last;
+
+        private Block(long first, long last) {
+            this.next = first;
+            this.last = last;
+        }
+
+        /**
+         * Checks whether the block has an ID left.
+         *
+         * @return true if {@link #next()} can be called
+         */
+        public boolean hasNext() {
+            return next <= last;
+        }
+
+        /**
+         * Takes the next ID of the block.
+         *
+         * @return the next unused ID of the block
+         * @throws IllegalStateException if every ID of the block has been used
+         */
+        public int next() {
+            if (next > last) {
+                throw new IllegalStateException("The block of IDs has been used up.");
+            }
+            return (int) next++;
+        }
+    }
+}
@@ -9,6 +9,7 @@ public class Plane {
     private int capacity;
     private int id;
     private Airline airline;
+    FlightBookingSystem system;
 
     /**
      * Constructor to create a Plane object with the specified details.
@@ -40,7 +41,10 @@ public class Plane {
      * @param model the new model of the plane
      */
     public void setModel(String model) {
+        unindex();
         this.model = model;
+        index();
+        changed();
     }
 
     /**
@@ -58,7 +62,10 @@ public class Plane {
      * @param capacity the new seating capacity of the plane
      */
     public void setCapacity(int capacity) {
+        unindex();
         this.capacity = capacity;
+        index();
+        changed();
     }
 
     /**
@@ -95,11 +102,39 @@ public class Plane {
      */
     public void setAirline(Airline airline) {
         this.airline = airline;
+        changed();
     }
 
 	public void setId(int id) {
+		changed();
 		this.id=id;
-		// TODO Auto-generated method stub
-		
+		changed();
 	}
+
+    /**
+     * Records that this plane has changed, so the system knows to write it on the next store.
+     */
+    private void changed() {
+        if (system != null) {
+            system.markDirty(EntityType.PLANE, id);
+        }
+    }
+
+    /**
+     * Removes this plane from the system's model and capacity index before one of them changes.
+     */
+    private void unindex() {
+        if (system != null) {
+            system.unindex(this);
+        }
+    }
+
+    /**
+     * Adds this plane back to the system's model and capacity index after one of them has changed.
+     */
+    private void index() {
+        if (system != null) {
+            system.index(this);
+        }
+    }
 }
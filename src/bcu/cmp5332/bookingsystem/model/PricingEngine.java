@@ -0,0 +1,220 @@
+package bcu.cmp5332.bookingsystem.model;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Works out the dynamic prices of flights.
+ *
+ * <p>The price of a flight is its base price passed through a list of
+ * {@link PricingRule pricing rules}, which can be replaced to change how flights are
+ * priced. The business date the days to departure are counted from comes from a
+ * {@link Clock}, so it can be pinned to a fixed date.</p>
+ *
+ * <p>A price is worked out once and then cached on the flight, together with the date,
+ * base price and rules it was worked out for; it is only worked out again when the date
+ * rolls over, the flight's base price changes, or the rules or clock are replaced, or, if
+ * a rule {@link PricingRule#usesDemand() uses demand}, when the flight is booked. The
+ * business date itself is cached until the clock passes the end of the day, so a cached
+ * price costs a read of the clock and a few comparisons.</p>
+ *
+ * <p>Every {@link FlightBookingSystem} has its own engine; {@link Booking#calculateDynamicPrice(Flight)}
+ * prices a flight with the engine of the system it belongs to.</p>
+ */
+public class PricingEngine {
+
+    /**
+     * Raises the price of flights departing soon: by 70% two days or fewer before
+     * departure, by 40% up to a week before and by 10% up to thirty days before.
+     */
+    public static final PricingRule DEPARTURE_TIERS = (flight, daysUntilDeparture, price) -> {
+        if (daysUntilDeparture <= 2) {
+            return price * 1.7;
+        } else if (daysUntilDeparture <= 7) {
+            return price * 1.4;
+        } else if (daysUntilDeparture <= 30) {
+            return price * 1.1;
+        }
+        return price;
+    };
+
+    /**
+     * The rules flights are priced with unless others are set.
+     */
+    public static final List<PricingRule> STANDARD_RULES = List.of(DEPARTURE_TIERS);
+
+    /**
+     * The rules of yield pricing: the departure tiers, then the {@link YieldPricingRule#STANDARD
+     * standard yield rule} for the flight's load factor and recent bookings.
+     */
+    public static final List<PricingRule> YIELD_RULES = List.of(DEPARTURE_TIERS, YieldPricingRule.STANDARD);
+
+    /**
+     * Prices flights that do not belong to a system.
+     */
+    private static final PricingEngine DETACHED = new PricingEngine(Clock.systemDefaultZone(), STANDARD_RULES);
+
+    /**
+     * A price worked out for a flight and what it was worked out for.
+     */
+    record Quote(PricingEngine engine, long generation, long day, double basePrice, long demand, double price) {
+    }
+
+    /**
+     * The business date and the span of clock time it lasts for.
+     */
+    private record Day(LocalDate date, long startMillis, long endMillis) {
+    }
+
+    private volatile Clock clock;
+    private volatile List<PricingRule> rules;
+    private volatile boolean usesDemand;
+    private volatile Day day;
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Creates an engine.
+     *
+     * @param clock the clock the business date is read from
+     * @param rules the rules to price flights with, applied in order
+     */
+    public PricingEngine(Clock clock, List<PricingRule> rules) {
+        this.clock = clock;
+        this.rules = List.copyOf(rules);
+        this.usesDemand = usesDemand(this.rules);
+    }
+
+    /**
+     * Gets the rules selected by the {@code fbs.pricing} system property: the
+     * {@link #YIELD_RULES yield rules} if it is {@code yield}, otherwise the
+     * {@link #STANDARD_RULES standard rules}.
+     *
+     * @return the rules to price flights with by default
+     */
+    public static List<PricingRule> defaultRules() {
+        return "yield".equalsIgnoreCase(System.getProperty("fbs.pricing")) ? YIELD_RULES : STANDARD_RULES;
+    }
+
+    /**
+     * Gets the engine that prices a flight: the engine of its system, or a shared engine
+     * with the standard rules if it does not belong to one.
+     *
+     * @param flight the flight
+     * @return the engine to price the flight with
+     */
+    static PricingEngine of(Flight flight) {
+        return flight.system != null ? flight.system.getPricingEngine() : DETACHED;
+    }
+
+    /**
+     * Gets the business date.
+     *
+     * @return today's date, according to the engine's clock
+     */
+    public LocalDate today() {
+        return currentDay().date();
+    }
+
+    /**
+     * Gets the dynamic price of a flight, from its cache if it is still valid.
+     *
+     * @param flight the flight to price
+     * @return the flight's dynamic price
+     */
+    public double price(Flight flight) {
+        Day today = currentDay();
+        long epochDay = today.date().toEpochDay();
+        double basePrice = flight.getPrice();
+        long current = generation.get();
+        // Read before pricing, so a booking made meanwhile makes the quote stale
+        long demand = usesDemand ? flight.demandStamp() : 0;
+        Quote quote = flight.quote;
+        if (quote != null && quote.engine() == this && quote.generation() == current
+                && quote.day() == epochDay && quote.basePrice() == basePrice && quote.demand() == demand) {
+            return quote.price();
+        }
+        long daysUntilDeparture = flight.getDepartureDate().toEpochDay() - epochDay;
+        double price = basePrice;
+        for (PricingRule rule : rules) {
+            price = rule.adjust(flight, daysUntilDeparture, price);
+        }
+        flight.quote = new Quote(this, current, epochDay, basePrice, demand, price);
+        return price;
+    }
+
+    /**
+     * Gets the clock the business date is read from.
+     *
+     * @return the clock
+     */
+    public Clock getClock() {
+        return clock;
+    }
+
+    /**
+     * Replaces the clock the business date is read from. Cached prices are worked out again.
+     *
+     * @param clock the new clock, such as {@link Clock#fixed} to pin the date
+     */
+    public void setClock(Clock clock) {
+        this.clock = clock;
+        this.day = null;
+        generation.incrementAndGet();
+    }
+
+    /**
+     * Gets the rules flights are priced with.
+     *
+     * @return an unmodifiable list of the rules, in the order they are applied
+     */
+    public List<PricingRule> getRules() {
+        return rules;
+    }
+
+    /**
+     * Replaces the rules flights are priced with. Cached prices are worked out again.
+     *
+     * @param rules the new rules, applied in order
+     */
+    public void setRules(List<PricingRule> rules) {
+        List<PricingRule> copy = List.copyOf(rules);
+        this.usesDemand = usesDemand(copy);
+        this.rules = copy;
+        generation.incrementAndGet();
+    }
+
+    /**
+     * Gets a number that changes whenever the rules or the clock are replaced, so caches of
+     * prices can tell whether they are still valid.
+     *
+     * @return the generation of the rules
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    private static boolean usesDemand(List<PricingRule> rules) {
+        for (PricingRule rule : rules) {
+            if (rule.usesDemand()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Day currentDay() {
+        Clock current = clock;
+        long now = current.millis();
+        Day today = day;
+        if (today != null && now >= today.startMillis() && now < today.endMillis()) {
+            return today;
+        }
+        LocalDate date = LocalDate.now(current);
+        today = new Day(date, date.atStartOfDay(current.getZone()).toInstant().toEpochMilli(),
+                date.plusDays(1).atStartOfDay(current.getZone()).toInstant().toEpochMilli());
+        day = today;
+        return today;
+    }
+}
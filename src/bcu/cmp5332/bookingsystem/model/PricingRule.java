@@ -0,0 +1,35 @@
+package bcu.cmp5332.bookingsystem.model;
+
+/**
+ * One step of the dynamic pricing of a flight.
+ *
+ * <p>A {@link PricingEngine} starts from the flight's base price and passes it through its
+ * rules in order, each rule adjusting the price the previous one returned. Rules must only
+ * depend on the flight's base price and the days left to departure, as the engine caches
+ * the price it gets until one of those changes, unless they declare that they
+ * {@link #usesDemand() use the flight's demand} as well.</p>
+ */
+@FunctionalInterface
+public interface PricingRule {
+
+    /**
+     * Adjusts the price of a flight.
+     *
+     * @param flight the flight being priced
+     * @param daysUntilDeparture the days from the business date to the flight's departure
+     * @param price the price so far
+     * @return the adjusted price
+     */
+    double adjust(Flight flight, long daysUntilDeparture, double price);
+
+    /**
+     * Tells whether the rule depends on the flight's {@link Flight#getLoadFactor() load factor}
+     * or {@link Flight#getRecentBookings() recent bookings}, so cached prices must be worked
+     * out again when the flight is booked or a booking is cancelled.
+     *
+     * @return true if the rule uses the flight's demand
+     */
+    default boolean usesDemand() {
+        return false;
+    }
+}
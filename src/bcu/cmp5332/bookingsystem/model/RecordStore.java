@@ -0,0 +1,292 @@
+package bcu.cmp5332.bookingsystem.model;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Holds the records of one type by their int ID.
+ *
+ * <p>IDs are kept unboxed in an open-addressing hash table with linear probing, so a
+ * lookup by ID is a single array probe in the common case rather than a walk down a
+ * tree of boxed keys. A second array keeps the IDs in ascending order for
+ * {@link #values()}, next to the records themselves: records are almost always added
+ * with a higher ID than any before them, which simply appends to it; a record added out
+ * of order marks it stale, and it is rebuilt by sorting the first time it is needed
+ * again.</p>
+ *
+ * <p>Like the maps it replaces, a store is not thread-safe.</p>
+ *
+ * @param <T> the type of record
+ */
+final class RecordStore<T> {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] keys = new int[INITIAL_CAPACITY];
+    private Object[] values = new Object[INITIAL_CAPACITY];
+    private int size;
+
+    private int[] order = new int[INITIAL_CAPACITY];
+    private Object[] orderedValues = new Object[INITIAL_CAPACITY];
+    private boolean ordered = true;
+
+    private int modCount;
+
+    private final Collection<T> valuesView = new AbstractCollection<T>() {
+        @Override
+        public Iterator<T> iterator() {
+            return new ValueIterator();
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    };
+
+    /**
+     * Gets the record with an ID.
+     *
+     * @param id the ID of the record
+     * @return the record, or null if there is no record with the ID
+     */
+    @SuppressWarnings("unchecked")
+    T get(int id) {
+        int mask = keys.length - 1;
+        for (int slot = hash(id) & mask; values[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == id) {
+                return (T) values[slot];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether there is a record with an ID.
+     *
+     * @param id the ID of the record
+     * @return true if there is a record with the ID
+     */
+    boolean containsKey(int id) {
+        return get(id) != null;
+    }
+
+    /**
+     * Adds a record, replacing the record with the same ID if there is one.
+     *
+     * @param id the ID of the record
+     * @param value the record, which must not be null
+     */
+    void put(int id, T value) {
+        if (value == null) {
+            throw new NullPointerException("Records cannot be null.");
+        }
+        int mask = keys.length - 1;
+        int slot = hash(id) & mask;
+        while (values[slot] != null) {
+            if (keys[slot] == id) {
+                values[slot] = value;
+                if (ordered) {
+                    orderedValues[Arrays.binarySearch(order, 0, size, id)] = value;
+                }
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = id;
+        values[slot] = value;
+        if (ordered) {
+            if (size == 0 || id > order[size - 1]) {
+                if (size == order.length) {
+                    order = Arrays.copyOf(order, size * 2);
+                    orderedValues = Arrays.copyOf(orderedValues, size * 2);
+                }
+                order[size] = id;
+                orderedValues[size] = value;
+            } else {
+                ordered = false;
+            }
+        }
+        size++;
+        modCount++;
+        // Keep the table at most half full so probe sequences stay short
+        if (size * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+    }
+
+    /**
+     * Removes the record with an ID.
+     *
+     * @param id the ID of the record
+     * @return the record removed, or null if there was no record with the ID
+     */
+    @SuppressWarnings("unchecked")
+    T remove(int id) {
+        int mask = keys.length - 1;
+        int slot = hash(id) & mask;
+        while (values[slot] != null && keys[slot] != id) {
+            slot = (slot + 1) & mask;
+        }
+        if (values[slot] == null) {
+            return null;
+        }
+        T removed = (T) values[slot];
+        values[slot] = null;
+        // Shift later records of the same probe sequence back into the gap
+        int gap = slot;
+        for (int next = (gap + 1) & mask; values[next] != null; next = (next + 1) & mask) {
+            int home = hash(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                values[next] = null;
+                gap = next;
+            }
+        }
+        if (ordered) {
+            int index = Arrays.binarySearch(order, 0, size, id);
+            System.arraycopy(order, index + 1, order, index, size - index - 1);
+            System.arraycopy(orderedValues, index + 1, orderedValues, index, size - index - 1);
+            orderedValues[size - 1] = null;
+        }
+        size--;
+        modCount++;
+        return removed;
+    }
+
+    /**
+     * Checks whether the store holds no records.
+     *
+     * @return true if there are no records
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Gets the number of records in the store.
+     *
+     * @return the number of records
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Gets the highest ID in the store.
+     *
+     * @return the highest ID
+     * @throws NoSuchElementException if the store is empty
+     */
+    int lastKey() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        ensureOrdered();
+        return order[size - 1];
+    }
+
+    /**
+     * Gets a live view of the records in ascending ID order. The view cannot be changed
+     * through, and its iterators fail if the store is changed while they are in use.
+     *
+     * @return the records in ID order
+     */
+    Collection<T> values() {
+        return valuesView;
+    }
+
+    /**
+     * Copies the records, in ascending ID order, into a list that later changes to the
+     * store do not affect. The copy is a single array copy.
+     *
+     * @return an unmodifiable list of the records
+     */
+    @SuppressWarnings("unchecked")
+    List<T> snapshot() {
+        ensureOrdered();
+        return Collections.unmodifiableList(Arrays.asList((T[]) Arrays.copyOf(orderedValues, size)));
+    }
+
+    private void ensureOrdered() {
+        if (ordered) {
+            return;
+        }
+        if (order.length < size) {
+            order = new int[keys.length];
+            orderedValues = new Object[keys.length];
+        }
+        int count = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (values[slot] != null) {
+                order[count++] = keys[slot];
+            }
+        }
+        Arrays.sort(order, 0, count);
+        for (int i = 0; i < count; i++) {
+            orderedValues[i] = get(order[i]);
+        }
+        Arrays.fill(orderedValues, count, orderedValues.length, null);
+        ordered = true;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new int[capacity];
+        values = new Object[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = hash(oldKeys[i]) & mask;
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Spreads consecutive IDs over the table, so runs of IDs do not form long clusters.
+     */
+    private static int hash(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private final class ValueIterator implements Iterator<T> {
+
+        private final int expectedModCount = modCount;
+        private int index;
+
+        ValueIterator() {
+            ensureOrdered();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return index < size;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (index >= size) {
+                throw new NoSuchElementException();
+            }
+            return (T) orderedValues[index++];
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package bcu.cmp5332.bookingsystem.model;
+
+/**
+ * The seats of a flight and which of them are taken.
+ *
+ * <p>The layout is derived from the capacity of the flight's plane: small planes have
+ * four seats a row, mid-sized planes six and large planes eight, and planes of more than
+ * {@value #SMALL_PLANE} seats have a business cabin in their first rows. The last row
+ * holds whatever seats are left over. Seats are labelled by row and letter, as in
+ * {@code 12C}.</p>
+ *
+ * <p>Occupancy is kept in a bitset with a byte per row, so a row never spans two words
+ * and the searches below scan eight rows with a few word operations. A flight's seat map
+ * is changed under its {@link FlightBookingSystem#getFlightLocks() flight lock}.</p>
+ */
+public class SeatMap {
+
+    /**
+     * The cabins of a plane.
+     */
+    public enum Cabin {
+        BUSINESS, ECONOMY
+    }
+
+    private static final int SMALL_PLANE = 60;
+    private static final int MEDIUM_PLANE = 180;
+    private static final int ROW_BITS = 8;
+    private static final int ROWS_PER_WORD = Long.SIZE / ROW_BITS;
+    private static final String LETTERS = "ABCDEFGH";
+
+    private final int capacity;
+    private final int rows;
+    private final int columns;
+    private final int businessRows;
+    private final long[] seats;
+    private final long[] taken;
+    private final long windowMask;
+
+    /**
+     * Creates an empty seat map for a plane of a given capacity.
+     *
+     * @param capacity the number of seats of the plane
+     */
+    public SeatMap(int capacity) {
+        this.capacity = Math.max(capacity, 0);
+        this.columns = this.capacity <= SMALL_PLANE ? 4 : this.capacity <= MEDIUM_PLANE ? 6 : 8;
+        this.rows = (this.capacity + columns - 1) / columns;
+        this.businessRows = this.capacity > SMALL_PLANE ? Math.max(1, rows / 10) : 0;
+        int words = (rows + ROWS_PER_WORD - 1) / ROWS_PER_WORD;
+        this.seats = new long[words];
+        this.taken = new long[words];
+        for (int seat = 0, row = 0; row < rows; row++) {
+            for (int column = 0; column < columns && seat < this.capacity; column++, seat++) {
+                int index = row * ROW_BITS + column;
+                seats[index / Long.SIZE] |= 1L << (index % Long.SIZE);
+            }
+        }
+        this.windowMask = repeat(1L | 1L << (columns - 1));
+    }
+
+    /**
+     * Gets the number of seats of the plane the map was made for.
+     *
+     * @return the number of seats
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Gets the number of rows.
+     *
+     * @return the number of rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Gets the number of seats in a full row.
+     *
+     * @return the number of seats a row
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Gets the number of seats that are not taken.
+     *
+     * @return the number of free seats
+     */
+    public int getFreeSeats() {
+        int free = 0;
+        for (int i = 0; i < seats.length; i++) {
+            free += Long.bitCount(seats[i] & ~taken[i]);
+        }
+        return free;
+    }
+
+    /**
+     * Finds the first free seat, front to back.
+     *
+     * @return the seat, or -1 if every seat is taken
+     */
+    public int nextFreeSeat() {
+        return first(-1L);
+    }
+
+    /**
+     * Finds the first free seat of a cabin, front to back.
+     *
+     * @param cabin the cabin to search
+     * @return the seat, or -1 if every seat of the cabin is taken
+     */
+    public int nextFreeSeat(Cabin cabin) {
+        for (int i = 0; i < seats.length; i++) {
+            long free = seats[i] & ~taken[i] & cabinMask(i, cabin);
+            if (free != 0) {
+                return i * Long.SIZE + Long.numberOfTrailingZeros(free);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the first free window seat, front to back.
+     *
+     * @return the seat, or -1 if every window seat is taken
+     */
+    public int nextFreeWindowSeat() {
+        return first(windowMask);
+    }
+
+    /**
+     * Finds the first run of free seats side by side in one row, front to back.
+     *
+     * @param count the number of seats wanted
+     * @return the first seat of the run, or -1 if no row has that many free seats together
+     */
+    public int findAdjacentSeats(int count) {
+        if (count <= 0 || count > columns) {
+            return -1;
+        }
+        // Bits where a run of count seats may start without running off the end of its row
+        long starts = repeat((1L << (columns - count + 1)) - 1);
+        for (int i = 0; i < seats.length; i++) {
+            long free = seats[i] & ~taken[i];
+            long run = free & starts;
+            for (int k = 1; k < count && run != 0; k++) {
+                run &= free >>> k;
+            }
+            if (run != 0) {
+                return i * Long.SIZE + Long.numberOfTrailingZeros(run);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks whether a seat exists and is free.
+     *
+     * @param seat the seat
+     * @return true if the seat can be taken
+     */
+    public boolean isFree(int seat) {
+        return exists(seat) && (taken[seat / Long.SIZE] & 1L << (seat % Long.SIZE)) == 0;
+    }
+
+    /**
+     * Takes a seat.
+     *
+     * @param seat the seat to take
+     * @return true if the seat was free, false if it does not exist or is already taken
+     */
+    public boolean take(int seat) {
+        if (!isFree(seat)) {
+            return false;
+        }
+        taken[seat / Long.SIZE] |= 1L << (seat % Long.SIZE);
+        return true;
+    }
+
+    /**
+     * Frees a seat. Does nothing if the seat does not exist.
+     *
+     * @param seat the seat to free
+     */
+    public void release(int seat) {
+        if (exists(seat)) {
+            taken[seat / Long.SIZE] &= ~(1L << (seat % Long.SIZE));
+        }
+    }
+
+    /**
+     * Gets the cabin of a seat.
+     *
+     * @param seat the seat
+     * @return the seat's cabin
+     */
+    public Cabin getCabin(int seat) {
+        return seat / ROW_BITS < businessRows ? Cabin.BUSINESS : Cabin.ECONOMY;
+    }
+
+    /**
+     * Gets the label of a seat, such as {@code 12C}.
+     *
+     * @param seat the seat
+     * @return the seat's row number followed by its letter
+     */
+    public String label(int seat) {
+        return (seat / ROW_BITS + 1) + String.valueOf(LETTERS.charAt(seat % ROW_BITS));
+    }
+
+    /**
+     * Finds the seat with a label.
+     *
+     * @param label the label of the seat, such as {@code 12C}
+     * @return the seat, or -1 if the map has no seat with that label
+     */
+    public int seatOf(String label) {
+        if (label == null || label.length() < 2) {
+            return -1;
+        }
+        int column = LETTERS.indexOf(Character.toUpperCase(label.charAt(label.length() - 1)));
+        int row;
+        try {
+            row = Integer.parseInt(label.substring(0, label.length() - 1)) - 1;
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+        if (column < 0 || row < 0 || row >= rows) {
+            return -1;
+        }
+        int seat = row * ROW_BITS + column;
+        return exists(seat) ? seat : -1;
+    }
+
+    private boolean exists(int seat) {
+        return seat >= 0 && seat / Long.SIZE < seats.length && (seats[seat / Long.SIZE] & 1L << (seat % Long.SIZE)) != 0;
+    }
+
+    private int first(long mask) {
+        for (int i = 0; i < seats.length; i++) {
+            long free = seats[i] & ~taken[i] & mask;
+            if (free != 0) {
+                return i * Long.SIZE + Long.numberOfTrailingZeros(free);
+            }
+        }
+        return -1;
+    }
+
+    private long cabinMask(int word, Cabin cabin) {
+        long business = 0;
+        for (int row = word * ROWS_PER_WORD; row < businessRows && row < (word + 1) * ROWS_PER_WORD; row++) {
+            business |= 0xFFL << (row % ROWS_PER_WORD * ROW_BITS);
+        }
+        return cabin == Cabin.BUSINESS ? business : ~business;
+    }
+
+    /**
+     * Repeats the low byte of a mask in every byte of a word, so it applies to every row.
+     */
+    private static long repeat(long rowMask) {
+        return (rowMask & 0xFFL) * 0x0101010101010101L;
+    }
+}
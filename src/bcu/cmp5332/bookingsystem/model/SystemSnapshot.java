@@ -0,0 +1,159 @@
+package bcu.cmp5332.bookingsystem.model;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * A point-in-time copy of the records of a {@link FlightBookingSystem}.
+ *
+ * <p>A snapshot holds the airlines, planes, flights, customers and bookings that were in
+ * the system when it was taken, in ID order. Records added or cancelled afterwards do not
+ * show up in it, so it can be read on any thread, for as long as needed, while commands
+ * keep changing the system. The records themselves are shared with the system: a field
+ * changed after the snapshot was taken, such as a flight's price, is seen through it.</p>
+ *
+ * <p>Snapshots are taken with {@link FlightBookingSystem#snapshot()}, which hands out the
+ * same snapshot again until the system changes.</p>
+ */
+public final class SystemSnapshot {
+
+    private final long version;
+    private final List<Airline> airlines;
+    private final List<Plane> planes;
+    private final List<Flight> flights;
+    private final List<Customer> customers;
+    private final List<Booking> bookings;
+
+    SystemSnapshot(long version, List<Airline> airlines, List<Plane> planes, List<Flight> flights,
+            List<Customer> customers, List<Booking> bookings) {
+        this.version = version;
+        this.airlines = airlines;
+        this.planes = planes;
+        this.flights = flights;
+        this.customers = customers;
+        this.bookings = bookings;
+    }
+
+    /**
+     * Gets the version of the system the snapshot was taken at. The version goes up every
+     * time a record of the system is added, changed or removed.
+     *
+     * @return the version of the snapshot
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets the airlines of the snapshot.
+     *
+     * @return an unmodifiable list of airlines, in ID order
+     */
+    public List<Airline> getAirlines() {
+        return airlines;
+    }
+
+    /**
+     * Gets the planes of the snapshot.
+     *
+     * @return an unmodifiable list of planes, in ID order
+     */
+    public List<Plane> getPlanes() {
+        return planes;
+    }
+
+    /**
+     * Gets the flights of the snapshot.
+     *
+     * @return an unmodifiable list of flights, in ID order
+     */
+    public List<Flight> getFlights() {
+        return flights;
+    }
+
+    /**
+     * Gets the customers of the snapshot.
+     *
+     * @return an unmodifiable list of customers, in ID order
+     */
+    public List<Customer> getCustomers() {
+        return customers;
+    }
+
+    /**
+     * Gets the bookings of the snapshot.
+     *
+     * @return an unmodifiable list of bookings, in ID order
+     */
+    public List<Booking> getBookings() {
+        return bookings;
+    }
+
+    /**
+     * Finds a flight of the snapshot by its ID.
+     *
+     * @param id the ID of the flight
+     * @return the flight, or {@code null} if the snapshot holds no flight with that ID
+     */
+    public Flight getFlight(int id) {
+        return find(flights, id, Flight::getId);
+    }
+
+    /**
+     * Finds a customer of the snapshot by its ID.
+     *
+     * @param id the ID of the customer
+     * @return the customer, or {@code null} if the snapshot holds no customer with that ID
+     */
+    public Customer getCustomer(int id) {
+        return find(customers, id, Customer::getId);
+    }
+
+    /**
+     * Finds a booking of the snapshot by its ID.
+     *
+     * @param id the ID of the booking
+     * @return the booking, or {@code null} if the snapshot holds no booking with that ID
+     */
+    public Booking getBooking(int id) {
+        return find(bookings, id, Booking::getId);
+    }
+
+    /**
+     * Gets a cursor over the flights of the snapshot that have not been removed and have
+     * not departed yet.
+     *
+     * @return a view of the active future flights, in ID order
+     */
+    public FilteredView<Flight> getActiveFutureFlights() {
+        return new FilteredView<>(flights,
+                flight -> !flight.isRemoved() && flight.getDepartureDate().isAfter(LocalDate.now()));
+    }
+
+    /**
+     * Gets a cursor over the customers of the snapshot that have not been removed.
+     *
+     * @return a view of the active customers, in ID order
+     */
+    public FilteredView<Customer> getActiveCustomers() {
+        return new FilteredView<>(customers, customer -> !customer.isRemoved());
+    }
+
+    private static <T> T find(List<T> records, int id, ToIntFunction<T> idOf) {
+        int low = 0;
+        int high = records.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midId = idOf.applyAsInt(records.get(mid));
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return records.get(mid);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,57 @@
+package bcu.cmp5332.bookingsystem.model;
+
+/**
+ * Raises the price of flights in demand, by how full they are and how fast they have been
+ * booked lately.
+ *
+ * <p>Once a flight's load factor passes a threshold the price rises in step with it, up to
+ * a surcharge reached when the flight is full. On top of that, the bookings made in the
+ * last {@value BookingVelocity#WINDOW_DAYS} days, as a share of the plane's capacity, add
+ * the same share of the price, up to a cap. Both figures are kept up to date by the flight
+ * as bookings are made and cancelled, so applying the rule takes the same few steps for
+ * any flight.</p>
+ */
+public class YieldPricingRule implements PricingRule {
+
+    /**
+     * The rule yield pricing uses unless another is set: prices rise from half full up to
+     * 50% more when full, and by up to 30% more for recent bookings.
+     */
+    public static final YieldPricingRule STANDARD = new YieldPricingRule(0.5, 0.5, 0.3);
+
+    private final double loadThreshold;
+    private final double maxLoadSurcharge;
+    private final double maxVelocitySurcharge;
+
+    /**
+     * Creates a rule.
+     *
+     * @param loadThreshold the load factor, from 0 to 1, above which the price starts to rise
+     * @param maxLoadSurcharge the share of the price added when the flight is full
+     * @param maxVelocitySurcharge the largest share of the price added for recent bookings
+     */
+    public YieldPricingRule(double loadThreshold, double maxLoadSurcharge, double maxVelocitySurcharge) {
+        if (loadThreshold < 0 || loadThreshold >= 1 || maxLoadSurcharge < 0 || maxVelocitySurcharge < 0) {
+            throw new IllegalArgumentException("Invalid yield pricing rule.");
+        }
+        this.loadThreshold = loadThreshold;
+        this.maxLoadSurcharge = maxLoadSurcharge;
+        this.maxVelocitySurcharge = maxVelocitySurcharge;
+    }
+
+    @Override
+    public double adjust(Flight flight, long daysUntilDeparture, double price) {
+        int capacity = flight.getPlane().getCapacity();
+        if (capacity <= 0) {
+            return price;
+        }
+        double overThreshold = Math.max(0, flight.getLoadFactor() - loadThreshold) / (1 - loadThreshold);
+        double velocity = (double) flight.getRecentBookings() / capacity;
+        return price * (1 + maxLoadSurcharge * Math.min(1, overThreshold)) * (1 + Math.min(maxVelocitySurcharge, velocity));
+    }
+
+    @Override
+    public boolean usesDemand() {
+        return true;
+    }
+}
@@ -6,4 +6,5 @@ module FlightBookingSystem_Dist {
     exports bcu.cmp5332.bookingsystem.commands;
 
     requires java.desktop;
+    requires jdk.httpserver;
 }